@@ -0,0 +1,98 @@
+package de.iske.kistogramm.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set operations on entity relations of growing size, with the uuid based {@code hashCode()} and with the constant
+ * one it replaced. Run with
+ * <pre>./mvnw -Pbenchmark test-compile exec:exec -Djmh.include=EntityIdentityBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityIdentityBenchmark {
+
+    @Param({"1000", "10000"})
+    public int elements;
+
+    @Param({"uuid", "constant"})
+    public String hash;
+
+    private List<Object> relation;
+    private Set<Object> filled;
+    private Set<Object> desired;
+
+    @Setup
+    public void createEntities() {
+        relation = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++) {
+            ItemEntity item = new ItemEntity();
+            relation.add(hash.equals("uuid") ? item : new ConstantHash(item));
+        }
+        filled = new HashSet<>(relation);
+        desired = new HashSet<>(relation.subList(0, elements / 2));
+    }
+
+    @Benchmark
+    public Set<Object> add() {
+        Set<Object> set = new HashSet<>();
+        set.addAll(relation);
+        return set;
+    }
+
+    @Benchmark
+    public int contains() {
+        int found = 0;
+        for (Object element : relation) {
+            if (filled.contains(element)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * What replacing a relation does: keep the desired half, drop the rest.
+     */
+    @Benchmark
+    public Set<Object> retainAll() {
+        Set<Object> set = new HashSet<>(filled);
+        set.retainAll(desired);
+        return set;
+    }
+
+    /**
+     * The previous identity: equal by uuid, but every instance in the same hash bucket.
+     */
+    private record ConstantHash(ItemEntity entity) {
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ConstantHash that && entity.equals(that.entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
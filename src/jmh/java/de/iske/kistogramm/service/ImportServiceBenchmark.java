@@ -0,0 +1,162 @@
+package de.iske.kistogramm.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.iske.kistogramm.KistogrammApplication;
+import de.iske.kistogramm.dto.ImportResult;
+import de.iske.kistogramm.dto.export.ExportItem;
+import de.iske.kistogramm.dto.export.ExportResult;
+import de.iske.kistogramm.dto.export.ExportStorage;
+import de.iske.kistogramm.dto.export.ExportTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Import time for synthetic archives of growing size, against the in-memory H2 database of the test profile. Every
+ * measurement imports the archive into an empty inventory, through the same path as an uploaded import job. Run with
+ * <pre>./mvnw -Pbenchmark test-compile exec:exec -Djmh.include=ImportServiceBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ImportServiceBenchmark {
+
+    private static final int TAGS = 100;
+    private static final int ITEMS_PER_STORAGE = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int items;
+
+    private ConfigurableApplicationContext context;
+    private ImportService importService;
+    private JdbcTemplate jdbcTemplate;
+    private Path archive;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws IOException {
+        context = new SpringApplicationBuilder(KistogrammApplication.class)
+                .profiles("test")
+                .properties("server.port=0")
+                .run();
+        importService = context.getBean(ImportService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        archive = syntheticArchive(context.getBean(ObjectMapper.class));
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanDatabase() {
+        jdbcTemplate.update("DELETE FROM item_related");
+        jdbcTemplate.update("DELETE FROM item_tags");
+        jdbcTemplate.update("DELETE FROM items");
+        jdbcTemplate.update("UPDATE storages SET parent_storage_id = NULL");
+        jdbcTemplate.update("DELETE FROM storages");
+        jdbcTemplate.update("DELETE FROM tags");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() throws IOException {
+        cleanDatabase();
+        context.close();
+        Files.deleteIfExists(archive);
+    }
+
+    @Benchmark
+    public ImportResult importArchive() throws IOException {
+        ImportResult result = importService.importArchive(archive, false, true, new ImportProgress());
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Import failed: " + result.getErrors());
+        }
+        return result;
+    }
+
+    /**
+     * Items spread over nested storages, each with two tags and one related item. {@code data.json} is written
+     * record by record, so the million-item archive does not have to fit into memory.
+     */
+    private Path syntheticArchive(ObjectMapper objectMapper) throws IOException {
+        Path file = Files.createTempFile("kistogramm-benchmark-", ".zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(file))) {
+            zos.putNextEntry(new ZipEntry("data.json"));
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator((OutputStream) zos)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                gen.writeStartObject();
+                gen.writeStringField("version", ExportResult.VERSION);
+
+                List<UUID> tags = new ArrayList<>(TAGS);
+                gen.writeArrayFieldStart("tags");
+                for (int i = 0; i < TAGS; i++) {
+                    ExportTag tag = new ExportTag();
+                    tag.setUuid(UUID.randomUUID());
+                    tag.setName("Tag " + i);
+                    gen.writeObject(tag);
+                    tags.add(tag.getUuid());
+                }
+                gen.writeEndArray();
+
+                int storageCount = Math.max(1, items / ITEMS_PER_STORAGE);
+                List<UUID> storages = new ArrayList<>(storageCount);
+                gen.writeArrayFieldStart("storages");
+                for (int i = 0; i < storageCount; i++) {
+                    ExportStorage storage = new ExportStorage();
+                    storage.setUuid(UUID.randomUUID());
+                    storage.setName("Storage " + i);
+                    if (i > 0) {
+                        storage.setParentStorage(storages.get((i - 1) / 10));
+                    }
+                    gen.writeObject(storage);
+                    storages.add(storage.getUuid());
+                }
+                gen.writeEndArray();
+
+                UUID previous = null;
+                gen.writeArrayFieldStart("items");
+                for (int i = 0; i < items; i++) {
+                    ExportItem item = new ExportItem();
+                    item.setUuid(UUID.randomUUID());
+                    item.setName("Item " + i);
+                    item.setQuantity(1);
+                    item.setStorage(storages.get(i / ITEMS_PER_STORAGE % storageCount));
+                    item.setTags(List.of(tags.get(i % TAGS), tags.get((i + 1) % TAGS)));
+                    if (previous != null) {
+                        item.setRelatedItems(List.of(previous));
+                    }
+                    gen.writeObject(item);
+                    previous = item.getUuid();
+                }
+                gen.writeEndArray();
+
+                gen.writeEndObject();
+            }
+            zos.closeEntry();
+        }
+        return file;
+    }
+}
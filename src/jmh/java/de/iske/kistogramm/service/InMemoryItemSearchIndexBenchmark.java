@@ -0,0 +1,83 @@
+package de.iske.kistogramm.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the in-memory search index for synthetic inventories. Run with
+ * <pre>./mvnw -Pbenchmark test-compile exec:exec -Djmh.include=InMemoryItemSearchIndexBenchmark</pre>
+ * Further JMH options can follow the pattern, e.g. {@code -Djmh.include="InMemoryItemSearchIndexBenchmark -p items=10000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryItemSearchIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "kabel", "hdmi", "usb", "adapter", "lampe", "schraube", "bohrer", "akku", "ladegerät", "werkzeug",
+            "hammer", "zange", "buch", "ordner", "decke", "kissen", "topf", "pfanne", "messer", "gabel",
+            "löffel", "teller", "tasse", "glas", "koffer", "rucksack", "jacke", "schuhe", "mütze", "handschuhe"};
+
+    @Param({"10000", "100000"})
+    public int items;
+
+    private InMemoryItemSearchIndex index;
+    private Random random;
+
+    @Setup
+    public void buildIndex() {
+        random = new Random(items);
+        index = new InMemoryItemSearchIndex(null, null);
+        for (int id = 1; id <= items; id++) {
+            index.put(id, new InMemoryItemSearchIndex.Document(
+                    words(3) + " " + id,
+                    words(12),
+                    new ArrayList<>(List.of(words(1), words(1))),
+                    new ArrayList<>(List.of(words(2)))));
+        }
+    }
+
+    @Benchmark
+    public List<ItemSearchIndex.Match> oneTerm() {
+        return index.search(List.of(word()), 20);
+    }
+
+    @Benchmark
+    public List<ItemSearchIndex.Match> twoTerms() {
+        return index.search(List.of(word(), word()), 20);
+    }
+
+    @Benchmark
+    public List<ItemSearchIndex.Match> prefix() {
+        return index.search(List.of(word().substring(0, 2)), 20);
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private String words(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i > 0 ? " " : "").append(word());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package de.iske.kistogramm.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suggestion latency per keystroke for synthetic inventories. Run with
+ * <pre>./mvnw -Pbenchmark test-compile exec:exec -Djmh.include=SuggestionIndexBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestionIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "schraubenzieher", "akkuschrauber", "verlängerungskabel", "hdmi", "kabel", "ladegerät", "taschenlampe",
+            "werkzeugkoffer", "bohrmaschine", "wasserwaage", "zollstock", "kochtopf", "bratpfanne", "wolldecke",
+            "winterjacke", "wanderschuhe", "gartenschlauch", "rasenmäher", "fahrradpumpe", "schlafsack"};
+
+    @Param({"10000", "100000"})
+    public int names;
+
+    private SuggestionIndex index;
+    private Random random;
+
+    @Setup
+    public void buildIndex() {
+        random = new Random(names);
+        index = new SuggestionIndex(null);
+        for (int id = 1; id <= names; id++) {
+            String type = id % 10 == 0 ? SuggestionIndex.STORAGE : SuggestionIndex.ITEM;
+            index.put(type, id, word() + " " + word() + " " + id);
+        }
+    }
+
+    /**
+     * A prefix as typed so far.
+     */
+    @Benchmark
+    public List<?> prefix() {
+        String word = word();
+        return index.suggest(word.substring(0, 2 + random.nextInt(word.length() - 2)), 10);
+    }
+
+    /**
+     * The whole word with one letter dropped.
+     */
+    @Benchmark
+    public List<?> typo() {
+        String word = word();
+        return index.suggest(new StringBuilder(word).deleteCharAt(1 + random.nextInt(word.length() - 2)).toString(), 10);
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
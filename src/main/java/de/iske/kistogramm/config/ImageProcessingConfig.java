@@ -0,0 +1,44 @@
+package de.iske.kistogramm.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ImageProcessingConfig {
+
+    /**
+     * Executor for CPU-bound image compression, sized to the available cores. The queue is bounded; when it is
+     * full the submitting thread compresses the image itself, which throttles uploads instead of piling up
+     * decoded images in memory.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageCompressionExecutor(
+            @Value("${images.compression-threads:0}") int threads,
+            @Value("${images.compression-queue-capacity:100}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-compress-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+
+        Gauge.builder("images.compression.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Images waiting for compression")
+                .register(meterRegistry);
+        Gauge.builder("images.compression.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Images currently being compressed")
+                .register(meterRegistry);
+        return executor;
+    }
+}
@@ -0,0 +1,39 @@
+package de.iske.kistogramm.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ImportConfig {
+
+    /**
+     * Executor for background imports. A single thread, since concurrent imports would compete for the same
+     * UUIDs; further uploads wait in a small queue and are rejected once it is full.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor(@Value("${import.queue-capacity:5}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for the phases of one import that do not depend on each other. Three threads cover the widest level
+     * of the phase graph (images, categories and tags).
+     */
+    @Bean
+    public ThreadPoolTaskExecutor importPhaseExecutor(@Value("${import.phase-threads:3}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("import-phase-");
+        executor.initialize();
+        return executor;
+    }
+}
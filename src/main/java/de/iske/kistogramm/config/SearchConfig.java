@@ -0,0 +1,33 @@
+package de.iske.kistogramm.config;
+
+import de.iske.kistogramm.service.InMemoryItemSearchIndex;
+import de.iske.kistogramm.service.ItemSearchIndex;
+import de.iske.kistogramm.service.PostgresItemSearchIndex;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@Configuration
+public class SearchConfig {
+
+    /**
+     * The full-text index of the items: PostgreSQL's own where available, an in-memory index for H2, which has no
+     * comparable full-text search.
+     */
+    @Bean
+    public ItemSearchIndex itemSearchIndex(DataSource dataSource,
+                                           NamedParameterJdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if ("PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return new PostgresItemSearchIndex(jdbcTemplate, transactionManager);
+            }
+        }
+        return new InMemoryItemSearchIndex(jdbcTemplate, transactionManager);
+    }
+}
@@ -0,0 +1,72 @@
+package de.iske.kistogramm.config;
+
+import de.iske.kistogramm.service.BlobStore;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves the bytes of every existing image from the {@code images.data} column into the {@link BlobStore}.
+ * Registered as a Spring bean so Flyway picks it up together with the SQL migrations; the column itself is
+ * dropped by V18 once this migration has succeeded.
+ */
+@Component
+public class V17__MoveImageDataToBlobStore extends BaseJavaMigration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(V17__MoveImageDataToBlobStore.class);
+
+    private final BlobStore blobStore;
+
+    public V17__MoveImageDataToBlobStore(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+
+        List<Integer> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id FROM images WHERE blob_key IS NULL")) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+
+        // one row at a time, so only a single image is held in memory
+        try (PreparedStatement select = connection.prepareStatement("SELECT data FROM images WHERE id = ?");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE images SET blob_key = ?, content_hash = ?, size = ? WHERE id = ?")) {
+            for (Integer id : ids) {
+                select.setInt(1, id);
+                byte[] data;
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) {
+                        continue;
+                    }
+                    data = rs.getBytes(1);
+                }
+                if (data == null) {
+                    data = new byte[0];
+                }
+                String key = blobStore.put(data);
+                update.setString(1, key);
+                update.setString(2, key);
+                update.setLong(3, data.length);
+                update.setInt(4, id);
+                update.executeUpdate();
+            }
+        }
+
+        LOG.info("Moved {} image(s) from the database into the blob store", ids.size());
+    }
+}
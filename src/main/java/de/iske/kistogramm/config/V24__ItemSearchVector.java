@@ -0,0 +1,29 @@
+package de.iske.kistogramm.config;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Adds the full-text search vector of the items with its GIN index on PostgreSQL; other databases use the
+ * in-memory index and need no schema change. The vectors are computed at startup, see
+ * {@link de.iske.kistogramm.service.PostgresItemSearchIndex#rebuild()}.
+ */
+@Component
+public class V24__ItemSearchVector extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE items ADD COLUMN search_vector tsvector");
+            statement.execute("CREATE INDEX idx_items_search_vector ON items USING GIN (search_vector)");
+        }
+    }
+}
@@ -13,6 +13,7 @@ import de.iske.kistogramm.repository.ItemRepository;
 import de.iske.kistogramm.repository.TagRepository;
 import de.iske.kistogramm.service.AppSettingsService;
 import de.iske.kistogramm.service.ImageCompressionService;
+import de.iske.kistogramm.service.ImageService;
 import de.iske.kistogramm.service.ItemService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -48,6 +49,7 @@ public class AiWebhookController {
     private final ItemService itemService;
     private final ImageCompressionService imageCompressionService;
     private final AppSettingsService appSettingsService;
+    private final ImageService imageService;
 
     public AiWebhookController(AiJobRepository aiJobRepository,
                                 CategoryRepository categoryRepository,
@@ -56,7 +58,8 @@ public class AiWebhookController {
                                 ItemRepository itemRepository,
                                 ItemService itemService,
                                 ImageCompressionService imageCompressionService,
-                                AppSettingsService appSettingsService) {
+                                AppSettingsService appSettingsService,
+                                ImageService imageService) {
         this.aiJobRepository = aiJobRepository;
         this.categoryRepository = categoryRepository;
         this.tagRepository = tagRepository;
@@ -65,6 +68,7 @@ public class AiWebhookController {
         this.itemService = itemService;
         this.imageCompressionService = imageCompressionService;
         this.appSettingsService = appSettingsService;
+        this.imageService = imageService;
     }
 
     @PostMapping("/result")
@@ -214,13 +218,14 @@ public class AiWebhookController {
             }
 
             ImageEntity image = new ImageEntity();
-            image.setData(data);
+            boolean duplicate = imageService.storeData(image, data);
             image.setType(mimeType);
             image.setDateAdded(LocalDateTime.now());
             image.setDateModified(LocalDateTime.now());
             image.setItem(item);
             imageRepository.save(image);
-            log.debug("Captured image attached to itemId={} ({}B → {}B compressed)", itemId, raw.length, data.length);
+            log.debug("Captured image attached to itemId={} ({}B → {}B compressed{})", itemId, raw.length, data.length,
+                    duplicate ? ", content already stored" : "");
         } catch (Exception e) {
             log.warn("Failed to attach captured image for itemId={}: {}", itemId, e.getMessage());
         }
@@ -1,18 +1,21 @@
 package de.iske.kistogramm.controller;
 
+import de.iske.kistogramm.dto.export.ExportFormat;
+import de.iske.kistogramm.dto.export.ExportScope;
 import de.iske.kistogramm.service.ExportService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/export")
@@ -24,22 +27,28 @@ public class ExportController {
         this.exportService = exportService;
     }
 
-    // Endpoint to export data with path parameter for format
+    // Streams the archive while it is being written; ExportService opens its own read-only transaction.
+    // With since set, only the changes and deletions from then on are exported (delta archive).
+    // format=NDJSON writes sharded NDJSON files plus manifest.json instead of a single data.json.
     @GetMapping
-    @Transactional(readOnly = true)
-    public ResponseEntity<byte[]> export() throws IOException {
-        ByteArrayOutputStream baos = exportService.exportToArchive();
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(name = "since", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(name = "scope", required = false) List<ExportScope> scopes,
+            @RequestParam(name = "format", defaultValue = "JSON") ExportFormat format) {
+        // checked here, once the body streams the status can no longer change to 400
+        ExportService.requireArchiveFormat(format);
 
         // Generate timestamped filename
         String timestamp = LocalDateTime.now()
                 .format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-        String filename = "export_" + timestamp + ".zip";
+        String filename = (since != null ? "export_delta_" : "export_") + timestamp + ".zip";
 
         // Build response with appropriate headers
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
                 .contentType(MediaType.valueOf("application/zip"))
-                .body(baos.toByteArray());
+                .body(out -> exportService.writeArchive(out, since, scopes, format));
     }
 
 }
@@ -1,9 +1,11 @@
 package de.iske.kistogramm.controller;
 
 import de.iske.kistogramm.dto.Image;
+import de.iske.kistogramm.dto.ImageStorageStats;
 import de.iske.kistogramm.service.ImageService;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,6 +15,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/images")
@@ -30,6 +33,15 @@ public class ImageController {
         return imageService.getAllImages();
     }
 
+    /**
+     * Total image size versus the bytes actually stored, i.e. what content-hash deduplication saves.
+     */
+    @GetMapping("/stats")
+    @Transactional(readOnly = true)
+    public ImageStorageStats getStorageStats() {
+        return imageService.getStorageStats();
+    }
+
     @GetMapping("/{id}")
     @Transactional(readOnly = true)
     public ResponseEntity<Image> getImageById(@PathVariable Integer id) {
@@ -38,15 +50,28 @@ public class ImageController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Streams the image bytes from the blob store. Spring answers {@code Range} requests with 206 and
+     * {@code If-None-Match} with 304; the ETag is the content hash, so the response never changes for a given tag.
+     * With {@code size} (e.g. {@code thumb}) a downscaled rendition is returned instead of the original.
+     * <p>
+     * Not transactional: rendering may take a while and must not hold a database connection meanwhile.
+     */
     @GetMapping("/{id}/data")
-    @Transactional(readOnly = true)
-    public ResponseEntity<byte[]> getImageData(@PathVariable Integer id) {
-        return imageService.getImageById(id)
-                .map(image -> {
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.setContentType(MediaType.parseMediaType(image.getType()));
-                    return new ResponseEntity<>(image.getData(), headers, HttpStatus.OK);
-                }).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<Resource> getImageData(@PathVariable Integer id,
+                                                 @RequestParam(required = false) String size) {
+        return imageService.getImageContent(id, size)
+                .map(content -> ResponseEntity.ok()
+                        .contentType(content.getType() != null
+                                ? MediaType.parseMediaType(content.getType())
+                                : MediaType.APPLICATION_OCTET_STREAM)
+                        .eTag(content.getEtag())
+                        .cacheControl(content.isProcessing()
+                                ? CacheControl.noCache()
+                                : CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .body(content.getResource()))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
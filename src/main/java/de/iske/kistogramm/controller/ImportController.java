@@ -1,47 +1,100 @@
 package de.iske.kistogramm.controller;
 
-import de.iske.kistogramm.dto.ImportResult;
-import de.iske.kistogramm.exception.ImportException;
-import de.iske.kistogramm.service.ImportService;
-import jakarta.transaction.Transactional;
+import de.iske.kistogramm.dto.ImportJobStatus;
+import de.iske.kistogramm.dto.ImportUploadStatus;
+import de.iske.kistogramm.service.ImportJobService;
+import de.iske.kistogramm.service.ImportUploadService;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/import")
 public class ImportController {
 
-  private final ImportService importService;
+  private final ImportJobService importJobService;
+  private final ImportUploadService importUploadService;
 
-  public ImportController(ImportService importService) {
-    this.importService = importService;
+  public ImportController(ImportJobService importJobService, ImportUploadService importUploadService) {
+    this.importJobService = importJobService;
+    this.importUploadService = importUploadService;
   }
 
+  /**
+   * Starts a background import and returns its job right away; poll {@code GET /api/import/{jobId}} for progress
+   * and the final {@link de.iske.kistogramm.dto.ImportResult}.
+   */
   @PostMapping
-  @Transactional
-  public ResponseEntity<ImportResult> importData(
+  public ResponseEntity<ImportJobStatus> importData(
           @RequestParam(name = "overwrite", required = false, defaultValue = "false") boolean overwrite,
           @RequestParam(name = "failOnError", required = false, defaultValue = "true") boolean failOnError,
           @RequestParam("file") MultipartFile file) throws IOException {
+    return ResponseEntity.accepted().body(importJobService.submit(file, overwrite, failOnError));
+  }
+
+  @GetMapping("/{jobId}")
+  public ResponseEntity<ImportJobStatus> getJob(@PathVariable UUID jobId) {
+    return ResponseEntity.ok(importJobService.getJob(jobId));
+  }
+
+  @DeleteMapping("/{jobId}")
+  public ResponseEntity<ImportJobStatus> cancelJob(@PathVariable UUID jobId) {
+    return ResponseEntity.ok(importJobService.cancel(jobId));
+  }
+
+  /**
+   * Starts a chunked upload for archives too large for {@code POST /api/import}: {@code PUT} the chunks in order
+   * to {@code /api/import/uploads/{uploadId}?offset=...}, then {@code POST .../complete} to start the import. After
+   * an interruption, {@code GET /api/import/uploads/{uploadId}} tells the offset to resume from.
+   */
+  @PostMapping("/uploads")
+  public ResponseEntity<ImportUploadStatus> createUpload(
+          @RequestParam(name = "size", required = false) Long size) throws IOException {
+    return ResponseEntity.ok(importUploadService.create(size));
+  }
+
+  @GetMapping("/uploads/{uploadId}")
+  public ResponseEntity<ImportUploadStatus> getUpload(@PathVariable UUID uploadId) {
+    return ResponseEntity.ok(importUploadService.getUpload(uploadId));
+  }
+
+  /**
+   * Appends the request body to the upload. {@code sha256} is the hex checksum of this chunk; a chunk not matching
+   * it is rejected and has to be sent again.
+   */
+  @PutMapping("/uploads/{uploadId}")
+  public ResponseEntity<ImportUploadStatus> uploadChunk(
+          @PathVariable UUID uploadId,
+          @RequestParam("offset") long offset,
+          @RequestParam(name = "sha256", required = false) String sha256,
+          InputStream body) throws IOException {
+    return ResponseEntity.ok(importUploadService.appendChunk(uploadId, offset, sha256, body));
+  }
+
+  @PostMapping("/uploads/{uploadId}/complete")
+  public ResponseEntity<ImportJobStatus> completeUpload(
+          @PathVariable UUID uploadId,
+          @RequestParam(name = "sha256", required = false) String sha256,
+          @RequestParam(name = "overwrite", required = false, defaultValue = "false") boolean overwrite,
+          @RequestParam(name = "failOnError", required = false, defaultValue = "true") boolean failOnError)
+          throws IOException {
+    return ResponseEntity.accepted().body(importUploadService.complete(uploadId, sha256, overwrite, failOnError));
+  }
 
-    ImportResult importResult;
-    try {
-      importResult = importService.importArchive(file, overwrite, failOnError);
-      if (!importResult.isSuccess() && failOnError) {
-        return ResponseEntity.badRequest().body(importResult);
-      } else {
-        return ResponseEntity.ok(importResult);
-      }
-    } catch (ImportException e) { // if exception is thrown, rollback the transaction
-      TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
-      return ResponseEntity.badRequest().body(e.getImportResult());
-    }
+  @DeleteMapping("/uploads/{uploadId}")
+  public ResponseEntity<Void> abortUpload(@PathVariable UUID uploadId) throws IOException {
+    importUploadService.abort(uploadId);
+    return ResponseEntity.noContent().build();
   }
 }
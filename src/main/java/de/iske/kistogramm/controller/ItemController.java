@@ -3,14 +3,20 @@ package de.iske.kistogramm.controller;
 import de.iske.kistogramm.dto.AiJobResponse;
 import de.iske.kistogramm.dto.Image;
 import de.iske.kistogramm.dto.Item;
+import de.iske.kistogramm.dto.ItemCursor;
+import de.iske.kistogramm.dto.ItemFacets;
+import de.iske.kistogramm.dto.ItemQuery;
 import de.iske.kistogramm.model.AiJobEntity;
 import de.iske.kistogramm.service.AiQueueService;
 import de.iske.kistogramm.service.ItemService;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
 import java.util.List;
@@ -33,10 +39,40 @@ public class ItemController {
         public void setJobType(String jobType) { this.jobType = jobType; }
     }
 
+    /**
+     * Lists the items matching the filters of the query, one page of {@code limit} items or
+     * {@link ItemService#DEFAULT_PAGE_SIZE} without it. The response carries a {@code Link: <...>; rel="next"}
+     * header as long as more items follow; it repeats the query with {@code after} set to the {@link ItemCursor} of
+     * the last item returned.
+     */
     @GetMapping
     @Transactional(readOnly = true)
-    public List<Item> getAllItems() {
-        return itemService.getAllItems();
+    public ResponseEntity<List<Item>> getAllItems(ItemQuery query) {
+        Slice<Item> page = itemService.getItems(query);
+        return withNextLink(page, query).body(page.getContent());
+    }
+
+    /**
+     * Like {@link #getAllItems(ItemQuery)}, with the item counts per category, tag, room and storage for the same
+     * filters in the same response.
+     */
+    @GetMapping("/facets")
+    @Transactional(readOnly = true)
+    public ResponseEntity<ItemFacets> getItemFacets(ItemQuery query) {
+        Slice<Item> page = itemService.getItems(query);
+        ItemFacets facets = itemService.getFacets(query);
+        facets.setItems(page.getContent());
+        return withNextLink(page, query).body(facets);
+    }
+
+    private static ResponseEntity.BodyBuilder withNextLink(Slice<Item> page, ItemQuery query) {
+        if (!page.hasNext()) {
+            return ResponseEntity.ok();
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", ItemCursor.of(page.getContent().getLast(), query.getSort()).encode())
+                .toUriString();
+        return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
     }
 
     @GetMapping("/{id}")
@@ -1,11 +1,14 @@
 package de.iske.kistogramm.controller;
 
+import de.iske.kistogramm.dto.Item;
+import de.iske.kistogramm.dto.Suggestion;
 import de.iske.kistogramm.service.SearchService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,6 +22,27 @@ public class SearchController {
         this.searchService = searchService;
     }
 
+    /**
+     * Full-text search over the items, see {@link SearchService#searchItems(String, int)}.
+     */
+    @GetMapping
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<Item>> searchItems(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(searchService.searchItems(query, limit));
+    }
+
+    /**
+     * Autocomplete for search fields, answered from memory, see {@link SearchService#suggest(String, int)}.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(searchService.suggest(query, limit));
+    }
+
     @GetMapping("/{uuid}")
     @Transactional(readOnly = true)
     public ResponseEntity<?> searchByUuid(
@@ -0,0 +1,44 @@
+package de.iske.kistogramm.dto;
+
+/**
+ * Number of items of a facet value, e.g. of one category, under the current filter.
+ */
+public class FacetCount {
+
+    private Integer id;
+    private String name;
+    private long count;
+
+    public FacetCount() {
+    }
+
+    public FacetCount(Integer id, String name, long count) {
+        this.id = id;
+        this.name = name;
+        this.count = count;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
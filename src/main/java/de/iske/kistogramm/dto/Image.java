@@ -1,19 +1,32 @@
 package de.iske.kistogramm.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
 
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
 
+/**
+ * Image metadata. The bytes are never serialized; clients load them from {@link #getDataUrl()}, or a small
+ * rendition for list and grid views from {@link #getThumbnailUrl()}.
+ */
 public class Image {
 
     private Integer id;
     private UUID uuid;
+    // accepted when creating an image via JSON, never returned
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private byte[] data;
     private String description;
     private String type;
+    private Long size;
+    private Integer width;
+    private Integer height;
+    private String contentHash;
+    private String status;
+    private String dataUrl;
+    private String thumbnailUrl;
     private LocalDateTime dateAdded;
     private LocalDateTime dateModified;
 
@@ -57,6 +70,62 @@ public class Image {
         this.type = type;
     }
 
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getDataUrl() {
+        return dataUrl;
+    }
+
+    public void setDataUrl(String dataUrl) {
+        this.dataUrl = dataUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
     public LocalDateTime getDateAdded() {
         return dateAdded;
     }
@@ -78,16 +147,14 @@ public class Image {
         if (this == obj) return true;
         if (!(obj instanceof Image that)) return false;
         if (getUuid() != null && Objects.equals(getUuid(), that.getUuid())) return true;
-        return Arrays.equals(getData(), that.getData()) &&
+        return Objects.equals(getContentHash(), that.getContentHash()) &&
                 Objects.equals(getDateAdded(), that.getDateAdded()) &&
                 Objects.equals(getDateModified(), that.getDateModified());
     }
 
     @Override
     public int hashCode() {
-        int result = Objects.hash(id, dateAdded, dateModified);
-        result = 31 * result + Arrays.hashCode(data);
-        return result;
+        return Objects.hash(id, contentHash, dateAdded, dateModified);
     }
 
     @Override
@@ -97,7 +164,11 @@ public class Image {
                 .add("uuid", uuid)
                 .add("description", description)
                 .add("type", type)
-                .add("data.length", data != null ? data.length : 0)
+                .add("size", size)
+                .add("width", width)
+                .add("height", height)
+                .add("contentHash", contentHash)
+                .add("status", status)
                 .add("dateAdded", dateAdded)
                 .add("dateModified", dateModified)
                 .toString();
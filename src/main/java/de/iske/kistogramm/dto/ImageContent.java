@@ -0,0 +1,44 @@
+package de.iske.kistogramm.dto;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Bytes of an image as a streamable resource, together with the metadata needed for HTTP caching.
+ */
+public class ImageContent {
+
+    private final Resource resource;
+    private final String type;
+    private final String etag;
+    private final boolean processing;
+
+    public ImageContent(Resource resource, String type, String etag, boolean processing) {
+        this.resource = resource;
+        this.type = type;
+        this.etag = etag;
+        this.processing = processing;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Strong validator for the bytes: the content hash, suffixed with the rendition size for downscaled renditions.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Whether these are the uncompressed original bytes that will still be replaced, so they must not be cached
+     * as immutable.
+     */
+    public boolean isProcessing() {
+        return processing;
+    }
+}
@@ -0,0 +1,59 @@
+package de.iske.kistogramm.dto;
+
+/**
+ * How much space images take and how much content-hash deduplication saves.
+ */
+public class ImageStorageStats {
+
+    private long imageCount;
+    private long uniqueContentCount;
+    // sum of all image sizes as if every image had its own copy
+    private long totalBytes;
+    // bytes actually stored, each distinct content once
+    private long storedBytes;
+
+    public ImageStorageStats() {
+    }
+
+    public ImageStorageStats(Long imageCount, Long uniqueContentCount, Long totalBytes) {
+        this.imageCount = imageCount;
+        this.uniqueContentCount = uniqueContentCount;
+        this.totalBytes = totalBytes;
+    }
+
+    public long getImageCount() {
+        return imageCount;
+    }
+
+    public void setImageCount(long imageCount) {
+        this.imageCount = imageCount;
+    }
+
+    public long getUniqueContentCount() {
+        return uniqueContentCount;
+    }
+
+    public void setUniqueContentCount(long uniqueContentCount) {
+        this.uniqueContentCount = uniqueContentCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public void setStoredBytes(long storedBytes) {
+        this.storedBytes = storedBytes;
+    }
+
+    public long getSavedBytes() {
+        return totalBytes - storedBytes;
+    }
+}
@@ -0,0 +1,143 @@
+package de.iske.kistogramm.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class ImportJobStatus {
+
+  private UUID jobId;
+  private String status;
+  private List<String> runningPhases;
+
+  // rows per entity type in the archive and how many of them are done
+  private Map<String, Integer> total;
+  private Map<String, Integer> processed;
+  private long totalCount;
+  private long processedCount;
+
+  private double rowsPerSecond;
+  // null while no throughput is known yet
+  private Long etaSeconds;
+
+  // live counters while running, final result afterwards
+  private ImportResult result;
+  private String errorMessage;
+
+  private LocalDateTime dateCreated;
+  private LocalDateTime dateStarted;
+  private LocalDateTime dateFinished;
+
+  public UUID getJobId() {
+    return jobId;
+  }
+
+  public void setJobId(UUID jobId) {
+    this.jobId = jobId;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public List<String> getRunningPhases() {
+    return runningPhases;
+  }
+
+  public void setRunningPhases(List<String> runningPhases) {
+    this.runningPhases = runningPhases;
+  }
+
+  public Map<String, Integer> getTotal() {
+    return total;
+  }
+
+  public void setTotal(Map<String, Integer> total) {
+    this.total = total;
+  }
+
+  public Map<String, Integer> getProcessed() {
+    return processed;
+  }
+
+  public void setProcessed(Map<String, Integer> processed) {
+    this.processed = processed;
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  public void setTotalCount(long totalCount) {
+    this.totalCount = totalCount;
+  }
+
+  public long getProcessedCount() {
+    return processedCount;
+  }
+
+  public void setProcessedCount(long processedCount) {
+    this.processedCount = processedCount;
+  }
+
+  public double getRowsPerSecond() {
+    return rowsPerSecond;
+  }
+
+  public void setRowsPerSecond(double rowsPerSecond) {
+    this.rowsPerSecond = rowsPerSecond;
+  }
+
+  public Long getEtaSeconds() {
+    return etaSeconds;
+  }
+
+  public void setEtaSeconds(Long etaSeconds) {
+    this.etaSeconds = etaSeconds;
+  }
+
+  public ImportResult getResult() {
+    return result;
+  }
+
+  public void setResult(ImportResult result) {
+    this.result = result;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  public void setErrorMessage(String errorMessage) {
+    this.errorMessage = errorMessage;
+  }
+
+  public LocalDateTime getDateCreated() {
+    return dateCreated;
+  }
+
+  public void setDateCreated(LocalDateTime dateCreated) {
+    this.dateCreated = dateCreated;
+  }
+
+  public LocalDateTime getDateStarted() {
+    return dateStarted;
+  }
+
+  public void setDateStarted(LocalDateTime dateStarted) {
+    this.dateStarted = dateStarted;
+  }
+
+  public LocalDateTime getDateFinished() {
+    return dateFinished;
+  }
+
+  public void setDateFinished(LocalDateTime dateFinished) {
+    this.dateFinished = dateFinished;
+  }
+}
@@ -7,10 +7,16 @@ public class ImportResult {
   private boolean success;
   private boolean overwriteMode;
 
+  // shared by import phases running in parallel, hence synchronized
   private int importedTotalCount;
   private int updatedTotalCount;
+  // rows that exist already and were left alone because overwrite is off
   private int skippedTotalCount;
+  // rows identical to the stored ones (same version hash), not written even with overwrite on
+  private int unchangedTotalCount;
   private int failedTotalCount;
+  // rows removed because a delta archive listed them as deleted
+  private int deletedTotalCount;
 
   private int importedItemCount;
   private int updatedItemCount;
@@ -26,6 +32,12 @@ public class ImportResult {
   private int importedCategoryAttributeTemplateCount;
   private int updatedCategoryAttributeTemplateCount;
 
+  // images whose content was already stored and is now shared instead of copied
+  private int deduplicatedImageCount;
+  private long deduplicatedBytes;
+  // updated images whose content hash matched, so their bytes were neither read nor stored again
+  private int unchangedImageDataCount;
+
   private List<String> errors;
   private List<String> warnings;
 
@@ -45,38 +57,78 @@ public class ImportResult {
     this.overwriteMode = overwriteMode;
   }
 
-  public int getImportedTotalCount() {
+  public synchronized int getImportedTotalCount() {
     return importedTotalCount;
   }
 
-  public void setImportedTotalCount(int importedTotalCount) {
+  public synchronized void setImportedTotalCount(int importedTotalCount) {
     this.importedTotalCount = importedTotalCount;
   }
 
-  public int getUpdatedTotalCount() {
+  public synchronized void incrementImportedTotalCount() {
+    this.importedTotalCount++;
+  }
+
+  public synchronized int getUpdatedTotalCount() {
     return updatedTotalCount;
   }
 
-  public void setUpdatedTotalCount(int updatedTotalCount) {
+  public synchronized void setUpdatedTotalCount(int updatedTotalCount) {
     this.updatedTotalCount = updatedTotalCount;
   }
 
-  public int getSkippedTotalCount() {
+  public synchronized void incrementUpdatedTotalCount() {
+    this.updatedTotalCount++;
+  }
+
+  public synchronized int getSkippedTotalCount() {
     return skippedTotalCount;
   }
 
-  public void setSkippedTotalCount(int skippedTotalCount) {
+  public synchronized void setSkippedTotalCount(int skippedTotalCount) {
     this.skippedTotalCount = skippedTotalCount;
   }
 
-  public int getFailedTotalCount() {
+  public synchronized void incrementSkippedTotalCount() {
+    this.skippedTotalCount++;
+  }
+
+  public synchronized int getFailedTotalCount() {
     return failedTotalCount;
   }
 
-  public void setFailedTotalCount(int failedTotalCount) {
+  public synchronized void setFailedTotalCount(int failedTotalCount) {
     this.failedTotalCount = failedTotalCount;
   }
 
+  public synchronized void incrementFailedTotalCount() {
+    this.failedTotalCount++;
+  }
+
+  public synchronized int getUnchangedTotalCount() {
+    return unchangedTotalCount;
+  }
+
+  public synchronized void setUnchangedTotalCount(int unchangedTotalCount) {
+    this.unchangedTotalCount = unchangedTotalCount;
+  }
+
+  public synchronized void incrementUnchangedTotalCount() {
+    this.unchangedTotalCount++;
+  }
+
+  public synchronized int getDeletedTotalCount() {
+    return deletedTotalCount;
+  }
+
+  public synchronized void setDeletedTotalCount(int deletedTotalCount) {
+    this.deletedTotalCount = deletedTotalCount;
+  }
+
+  public synchronized void incrementDeletedTotalCount() {
+    this.deletedTotalCount++;
+  }
+
   public int getImportedItemCount() {
     return importedItemCount;
   }
@@ -181,6 +233,68 @@ public class ImportResult {
     this.updatedCategoryAttributeTemplateCount = updatedCategoryAttributeTemplateCount;
   }
 
+  public int getDeduplicatedImageCount() {
+    return deduplicatedImageCount;
+  }
+
+  public void setDeduplicatedImageCount(int deduplicatedImageCount) {
+    this.deduplicatedImageCount = deduplicatedImageCount;
+  }
+
+  public long getDeduplicatedBytes() {
+    return deduplicatedBytes;
+  }
+
+  public void setDeduplicatedBytes(long deduplicatedBytes) {
+    this.deduplicatedBytes = deduplicatedBytes;
+  }
+
+  public int getUnchangedImageDataCount() {
+    return unchangedImageDataCount;
+  }
+
+  public void setUnchangedImageDataCount(int unchangedImageDataCount) {
+    this.unchangedImageDataCount = unchangedImageDataCount;
+  }
+
+  /**
+   * Adds the counts, errors and warnings of a batch that has committed.
+   */
+  public synchronized void add(ImportResult batch) {
+    importedTotalCount += batch.importedTotalCount;
+    updatedTotalCount += batch.updatedTotalCount;
+    skippedTotalCount += batch.skippedTotalCount;
+    unchangedTotalCount += batch.unchangedTotalCount;
+    failedTotalCount += batch.failedTotalCount;
+    deletedTotalCount += batch.deletedTotalCount;
+    importedItemCount += batch.importedItemCount;
+    updatedItemCount += batch.updatedItemCount;
+    importedImageCount += batch.importedImageCount;
+    importedCategoryCount += batch.importedCategoryCount;
+    updatedCategoryCount += batch.updatedCategoryCount;
+    importedStorageCount += batch.importedStorageCount;
+    updatedStorageCount += batch.updatedStorageCount;
+    importedRoomCount += batch.importedRoomCount;
+    updatedRoomCount += batch.updatedRoomCount;
+    importedTagCount += batch.importedTagCount;
+    updatedTagCount += batch.updatedTagCount;
+    importedCategoryAttributeTemplateCount += batch.importedCategoryAttributeTemplateCount;
+    updatedCategoryAttributeTemplateCount += batch.updatedCategoryAttributeTemplateCount;
+    deduplicatedImageCount += batch.deduplicatedImageCount;
+    deduplicatedBytes += batch.deduplicatedBytes;
+    unchangedImageDataCount += batch.unchangedImageDataCount;
+    errors.addAll(batch.errors);
+    warnings.addAll(batch.warnings);
+  }
+
+  /**
+   * Adds only the failures of a batch that was rolled back; its other counts never took effect.
+   */
+  public synchronized void addErrors(ImportResult batch) {
+    failedTotalCount += batch.failedTotalCount;
+    errors.addAll(batch.errors);
+  }
+
   public List<String> getErrors() {
     return errors;
   }
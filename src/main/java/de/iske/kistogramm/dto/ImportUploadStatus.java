@@ -0,0 +1,56 @@
+package de.iske.kistogramm.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public class ImportUploadStatus {
+
+  private UUID uploadId;
+  // total size announced when the upload was created, null if unknown
+  private Long size;
+  // bytes stored so far; the offset of the next chunk
+  private long received;
+
+  private LocalDateTime dateCreated;
+  private LocalDateTime dateUpdated;
+
+  public UUID getUploadId() {
+    return uploadId;
+  }
+
+  public void setUploadId(UUID uploadId) {
+    this.uploadId = uploadId;
+  }
+
+  public Long getSize() {
+    return size;
+  }
+
+  public void setSize(Long size) {
+    this.size = size;
+  }
+
+  public long getReceived() {
+    return received;
+  }
+
+  public void setReceived(long received) {
+    this.received = received;
+  }
+
+  public LocalDateTime getDateCreated() {
+    return dateCreated;
+  }
+
+  public void setDateCreated(LocalDateTime dateCreated) {
+    this.dateCreated = dateCreated;
+  }
+
+  public LocalDateTime getDateUpdated() {
+    return dateUpdated;
+  }
+
+  public void setDateUpdated(LocalDateTime dateUpdated) {
+    this.dateUpdated = dateUpdated;
+  }
+}
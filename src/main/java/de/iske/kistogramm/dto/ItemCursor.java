@@ -0,0 +1,62 @@
+package de.iske.kistogramm.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the item listing: the sort key and id of the last item of a page. It carries the values themselves,
+ * so the next page needs no lookup of that item and still works after the item was deleted or changed.
+ * <p>
+ * Encoded as URL-safe Base64 of {@code <sort>:<id>} or {@code <sort>:<id>:<key>}, the key left out when it is null.
+ *
+ * @param key the item's value of the sort key; null for {@link ItemSort#ID} and for items without a value
+ */
+public record ItemCursor(ItemSort sort, int id, Comparable<?> key) {
+
+    public static ItemCursor of(Item item, ItemSort sort) {
+        Comparable<?> key = switch (sort) {
+            case ID -> null;
+            case NAME -> item.getName();
+            case DATE_MODIFIED -> item.getDateModified();
+            case PRICE -> item.getPurchasePrice();
+        };
+        return new ItemCursor(sort, item.getId(), key);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort key
+     */
+    public static ItemCursor decode(String cursor, ItemSort sort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        if (parts.length < 2 || !parts[0].equals(sort.name())) {
+            throw new IllegalArgumentException("Cursor does not belong to sort " + sort + ": " + cursor);
+        }
+        try {
+            int id = Integer.parseInt(parts[1]);
+            if (parts.length == 2 || sort == ItemSort.ID) {
+                return new ItemCursor(sort, id, null);
+            }
+            Comparable<?> key = switch (sort) {
+                case ID -> null;
+                case NAME -> parts[2];
+                case DATE_MODIFIED -> LocalDateTime.parse(parts[2]);
+                case PRICE -> Double.valueOf(parts[2]);
+            };
+            return new ItemCursor(sort, id, key);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String value = sort.name() + ":" + id + (key == null ? "" : ":" + key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
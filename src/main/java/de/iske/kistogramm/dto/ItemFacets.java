@@ -0,0 +1,58 @@
+package de.iske.kistogramm.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response of {@code GET /api/items/facets}: one page of the matching items plus the item counts for the filter
+ * sidebars. Each facet is counted with all filters of the query except its own, so the other values of a facet
+ * keep their counts once one of them is selected.
+ */
+public class ItemFacets {
+
+    private List<Item> items = new ArrayList<>();
+    private List<FacetCount> categories = new ArrayList<>();
+    private List<FacetCount> tags = new ArrayList<>();
+    private List<FacetCount> rooms = new ArrayList<>();
+    private List<FacetCount> storages = new ArrayList<>();
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public List<FacetCount> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<FacetCount> categories) {
+        this.categories = categories;
+    }
+
+    public List<FacetCount> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<FacetCount> tags) {
+        this.tags = tags;
+    }
+
+    public List<FacetCount> getRooms() {
+        return rooms;
+    }
+
+    public void setRooms(List<FacetCount> rooms) {
+        this.rooms = rooms;
+    }
+
+    public List<FacetCount> getStorages() {
+        return storages;
+    }
+
+    public void setStorages(List<FacetCount> storages) {
+        this.storages = storages;
+    }
+}
@@ -0,0 +1,108 @@
+package de.iske.kistogramm.dto;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Query parameters of {@code GET /api/items}. All filters are optional and combined with AND.
+ */
+public class ItemQuery {
+
+    private Integer categoryId;
+    private Integer storageId;
+    private Integer roomId;
+    private Integer tagId;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime modifiedSince;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime modifiedBefore;
+
+    private ItemSort sort = ItemSort.ID;
+    private Sort.Direction direction = Sort.Direction.ASC;
+    // ItemCursor of the last item of the previous page
+    private String after;
+    // null for ItemService.DEFAULT_PAGE_SIZE
+    private Integer limit;
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public Integer getStorageId() {
+        return storageId;
+    }
+
+    public void setStorageId(Integer storageId) {
+        this.storageId = storageId;
+    }
+
+    public Integer getRoomId() {
+        return roomId;
+    }
+
+    public void setRoomId(Integer roomId) {
+        this.roomId = roomId;
+    }
+
+    public Integer getTagId() {
+        return tagId;
+    }
+
+    public void setTagId(Integer tagId) {
+        this.tagId = tagId;
+    }
+
+    public LocalDateTime getModifiedSince() {
+        return modifiedSince;
+    }
+
+    public void setModifiedSince(LocalDateTime modifiedSince) {
+        this.modifiedSince = modifiedSince;
+    }
+
+    public LocalDateTime getModifiedBefore() {
+        return modifiedBefore;
+    }
+
+    public void setModifiedBefore(LocalDateTime modifiedBefore) {
+        this.modifiedBefore = modifiedBefore;
+    }
+
+    public ItemSort getSort() {
+        return sort;
+    }
+
+    public void setSort(ItemSort sort) {
+        this.sort = sort;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public void setDirection(Sort.Direction direction) {
+        this.direction = direction;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,19 @@
+package de.iske.kistogramm.dto;
+
+public enum ItemSort {
+    ID("id"),
+    NAME("name"),
+    DATE_MODIFIED("dateModified"),
+    PRICE("purchasePrice");
+
+    // attribute of ItemEntity
+    private final String property;
+
+    ItemSort(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+}
@@ -0,0 +1,45 @@
+package de.iske.kistogramm.dto;
+
+/**
+ * Autocomplete entry of {@code GET /api/search/suggest}: an item, tag, storage or room by name.
+ */
+public class Suggestion {
+
+    // "Item", "Tag", "Storage" or "Room", as in the results of the UUID search
+    private String type;
+    private Integer id;
+    private String name;
+
+    public Suggestion() {
+    }
+
+    public Suggestion(String type, Integer id, String name) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
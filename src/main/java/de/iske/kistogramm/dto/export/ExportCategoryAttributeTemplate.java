@@ -3,13 +3,14 @@ package de.iske.kistogramm.dto.export;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-public class ExportCategoryAttributeTemplate {
+public class ExportCategoryAttributeTemplate implements VersionedExport {
 
     private UUID uuid;
     private UUID category;
     private String attributeName;
     private LocalDateTime dateAdded;
     private LocalDateTime dateModified;
+    private String versionHash;
 
     public UUID getUuid() {
         return uuid;
@@ -50,4 +51,14 @@ public class ExportCategoryAttributeTemplate {
     public void setDateModified(LocalDateTime dateModified) {
         this.dateModified = dateModified;
     }
+
+    @Override
+    public String getVersionHash() {
+        return versionHash;
+    }
+
+    @Override
+    public void setVersionHash(String versionHash) {
+        this.versionHash = versionHash;
+    }
 }
@@ -3,6 +3,8 @@ package de.iske.kistogramm.dto.export;
 public enum ExportFormat {
     CSV("text/csv"),
     JSON("application/json"),
+    // one JSON document per line, used for the sharded archive layout
+    NDJSON("application/x-ndjson"),
     XML("application/xml");
 
     private final String mimeType;
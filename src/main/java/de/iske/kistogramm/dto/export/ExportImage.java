@@ -3,13 +3,16 @@ package de.iske.kistogramm.dto.export;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-public class ExportImage {
+public class ExportImage implements VersionedExport {
 
     private UUID uuid;
     private String description;
     private String type;
+    // images with the same content share one archive entry, written under the first of them
+    private String contentHash;
     private LocalDateTime dateAdded;
     private LocalDateTime dateModified;
+    private String versionHash;
 
     public UUID getUuid() {
         return uuid;
@@ -35,6 +38,14 @@ public class ExportImage {
         this.type = type;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public LocalDateTime getDateAdded() {
         return dateAdded;
     }
@@ -50,4 +61,14 @@ public class ExportImage {
     public void setDateModified(LocalDateTime dateModified) {
         this.dateModified = dateModified;
     }
+
+    @Override
+    public String getVersionHash() {
+        return versionHash;
+    }
+
+    @Override
+    public void setVersionHash(String versionHash) {
+        this.versionHash = versionHash;
+    }
 }
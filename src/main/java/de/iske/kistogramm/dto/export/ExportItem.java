@@ -6,7 +6,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-public class ExportItem {
+public class ExportItem implements VersionedExport {
 
     private UUID uuid;
     private String name;
@@ -23,6 +23,7 @@ public class ExportItem {
     private UUID category;
     private List<UUID> relatedItems;
     private Map<String, String> customAttributes;
+    private String versionHash;
 
     public UUID getUuid() {
         return uuid;
@@ -143,4 +144,14 @@ public class ExportItem {
     public void setCustomAttributes(Map<String, String> customAttributes) {
         this.customAttributes = customAttributes;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getVersionHash() {
+        return versionHash;
+    }
+
+    @Override
+    public void setVersionHash(String versionHash) {
+        this.versionHash = versionHash;
+    }
+}
@@ -0,0 +1,107 @@
+package de.iske.kistogramm.dto.export;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code manifest.json} of a sharded export archive. Every entity type is written as NDJSON files of at most
+ * {@link #getShardSize()} records, e.g. {@code items/00000.ndjson}; the manifest lists them in order together with
+ * the number of records, so an importer knows the totals without reading the shards.
+ */
+public class ExportManifest {
+
+    // 2.1: images/<uuid> only for the first image of each content hash, the others share that entry
+    public static final String VERSION = "2.1";
+
+    private String version = VERSION;
+    private ExportFormat format = ExportFormat.NDJSON;
+    private LocalDateTime exportedAt = LocalDateTime.now();
+    // the since of the next delta export; export.delta-overlap before exportedAt
+    private LocalDateTime watermark;
+    // watermark of a delta export; null for a full export
+    private LocalDateTime since;
+    private int shardSize;
+    // keyed like the lists of ExportResult ("items", "images", ...) plus "deleted" for tombstones
+    private Map<String, Shards> entities = new LinkedHashMap<>();
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(ExportFormat format) {
+        this.format = format;
+    }
+
+    public LocalDateTime getExportedAt() {
+        return exportedAt;
+    }
+
+    public void setExportedAt(LocalDateTime exportedAt) {
+        this.exportedAt = exportedAt;
+    }
+
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(LocalDateTime watermark) {
+        this.watermark = watermark;
+    }
+
+    public LocalDateTime getSince() {
+        return since;
+    }
+
+    public void setSince(LocalDateTime since) {
+        this.since = since;
+    }
+
+    public int getShardSize() {
+        return shardSize;
+    }
+
+    public void setShardSize(int shardSize) {
+        this.shardSize = shardSize;
+    }
+
+    public Map<String, Shards> getEntities() {
+        return entities;
+    }
+
+    public void setEntities(Map<String, Shards> entities) {
+        this.entities = entities;
+    }
+
+    public static class Shards {
+
+        private int count;
+        private List<String> files = new ArrayList<>();
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public List<String> getFiles() {
+            return files;
+        }
+
+        public void setFiles(List<String> files) {
+            this.files = files;
+        }
+    }
+}
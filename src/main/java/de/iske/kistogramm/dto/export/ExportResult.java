@@ -4,6 +4,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 public class ExportResult {
+
+    // 1.1: images/<uuid> only for the first image of each content hash, the others share that entry
+    public static final String VERSION = "1.1";
+
     List<ExportItem> items;
     List<ExportCategory> categories;
     List<ExportTag> tags;
@@ -11,8 +15,14 @@ public class ExportResult {
     List<ExportStorage> storages;
     List<ExportRoom> rooms;
     List<ExportCategoryAttributeTemplate> categoryAttributeTemplates;
-    private String version = "1.0";
+    // entities deleted since the watermark; only present in delta exports
+    List<ExportTombstone> deleted;
+    private String version = VERSION;
     private LocalDateTime exportedAt = LocalDateTime.now();
+    // the since of the next delta export; export.delta-overlap before exportedAt
+    private LocalDateTime watermark;
+    // watermark of a delta export; null for a full export
+    private LocalDateTime since;
 
     public String getVersion() {
         return version;
@@ -30,6 +40,22 @@ public class ExportResult {
         this.exportedAt = exportedAt;
     }
 
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(LocalDateTime watermark) {
+        this.watermark = watermark;
+    }
+
+    public LocalDateTime getSince() {
+        return since;
+    }
+
+    public void setSince(LocalDateTime since) {
+        this.since = since;
+    }
+
     public List<ExportItem> getItems() {
         return items;
     }
@@ -85,4 +111,12 @@ public class ExportResult {
     public void setCategoryAttributeTemplates(List<ExportCategoryAttributeTemplate> categoryAttributeTemplates) {
         this.categoryAttributeTemplates = categoryAttributeTemplates;
     }
+
+    public List<ExportTombstone> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<ExportTombstone> deleted) {
+        this.deleted = deleted;
+    }
 }
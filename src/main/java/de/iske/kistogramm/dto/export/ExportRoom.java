@@ -4,7 +4,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
-public class ExportRoom {
+public class ExportRoom implements VersionedExport {
 
     private UUID uuid;
     private String name;
@@ -13,6 +13,7 @@ public class ExportRoom {
     private LocalDateTime dateModified;
     private List<UUID> storages;
     private UUID image;
+    private String versionHash;
 
     public UUID getUuid() {
         return uuid;
@@ -69,4 +70,14 @@ public class ExportRoom {
     public void setImage(UUID image) {
         this.image = image;
     }
+
+    @Override
+    public String getVersionHash() {
+        return versionHash;
+    }
+
+    @Override
+    public void setVersionHash(String versionHash) {
+        this.versionHash = versionHash;
+    }
 }
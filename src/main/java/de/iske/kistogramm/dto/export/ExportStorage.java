@@ -4,7 +4,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
-public class ExportStorage {
+public class ExportStorage implements VersionedExport {
 
     private UUID uuid;
     private String name;
@@ -15,6 +15,7 @@ public class ExportStorage {
     private List<UUID> tags;
     private LocalDateTime dateAdded;
     private LocalDateTime dateModified;
+    private String versionHash;
 
     public UUID getUuid() {
         return uuid;
@@ -87,4 +88,14 @@ public class ExportStorage {
     public void setDateModified(LocalDateTime dateModified) {
         this.dateModified = dateModified;
     }
+
+    @Override
+    public String getVersionHash() {
+        return versionHash;
+    }
+
+    @Override
+    public void setVersionHash(String versionHash) {
+        this.versionHash = versionHash;
+    }
 }
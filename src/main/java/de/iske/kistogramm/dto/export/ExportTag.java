@@ -3,12 +3,13 @@ package de.iske.kistogramm.dto.export;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-public class ExportTag {
+public class ExportTag implements VersionedExport {
 
     private UUID uuid;
     private String name;
     private LocalDateTime dateAdded;
     private LocalDateTime dateModified;
+    private String versionHash;
 
     public UUID getUuid() {
         return uuid;
@@ -41,4 +42,14 @@ public class ExportTag {
     public void setDateModified(LocalDateTime dateModified) {
         this.dateModified = dateModified;
     }
+
+    @Override
+    public String getVersionHash() {
+        return versionHash;
+    }
+
+    @Override
+    public void setVersionHash(String versionHash) {
+        this.versionHash = versionHash;
+    }
 }
@@ -0,0 +1,44 @@
+package de.iske.kistogramm.dto.export;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public class ExportTombstone {
+
+    private ExportScope type;
+    private UUID uuid;
+    private LocalDateTime dateDeleted;
+
+    public ExportTombstone() {
+    }
+
+    public ExportTombstone(ExportScope type, UUID uuid, LocalDateTime dateDeleted) {
+        this.type = type;
+        this.uuid = uuid;
+        this.dateDeleted = dateDeleted;
+    }
+
+    public ExportScope getType() {
+        return type;
+    }
+
+    public void setType(ExportScope type) {
+        this.type = type;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public void setUuid(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    public LocalDateTime getDateDeleted() {
+        return dateDeleted;
+    }
+
+    public void setDateDeleted(LocalDateTime dateDeleted) {
+        this.dateDeleted = dateDeleted;
+    }
+}
@@ -0,0 +1,12 @@
+package de.iske.kistogramm.dto.export;
+
+/**
+ * An exported row that carries a hash of its content. Two rows with the same hash are identical, so an import can
+ * leave the stored row untouched instead of writing it again.
+ */
+public interface VersionedExport {
+
+    String getVersionHash();
+
+    void setVersionHash(String versionHash);
+}
@@ -5,6 +5,7 @@ import de.iske.kistogramm.dto.export.ExportCategoryAttributeTemplate;
 import de.iske.kistogramm.model.CategoryAttributeTemplateEntity;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.NullValueCheckStrategy;
 
 @Mapper(componentModel = "spring")
 public interface CategoryAttributeTemplateMapper {
@@ -13,8 +14,10 @@ public interface CategoryAttributeTemplateMapper {
     CategoryAttributeTemplate toDto(CategoryAttributeTemplateEntity entity);
 
     @Mapping(target = "category", ignore = true)
+    @Mapping(target = "uuid", nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
     CategoryAttributeTemplateEntity toEntity(CategoryAttributeTemplate dto);
 
     @Mapping(target = "category", source = "category.uuid")
+    @Mapping(target = "versionHash", ignore = true)
     ExportCategoryAttributeTemplate toExportCategoryAttributeTemplate(CategoryAttributeTemplateEntity categoryAttributeTemplateEntity);
 }
@@ -4,12 +4,16 @@ import de.iske.kistogramm.dto.Category;
 import de.iske.kistogramm.dto.export.ExportCategory;
 import de.iske.kistogramm.model.CategoryEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.NullValueCheckStrategy;
 
 @Mapper(componentModel = "spring")
 public interface CategoryMapper {
     Category toDto(CategoryEntity entity);
 
+    @Mapping(target = "uuid", nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
     CategoryEntity toEntity(Category dto);
 
+    @Mapping(target = "versionHash", ignore = true)
     ExportCategory toExportCategory(CategoryEntity categoryEntity);
 }
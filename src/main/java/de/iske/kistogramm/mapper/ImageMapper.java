@@ -3,18 +3,46 @@ package de.iske.kistogramm.mapper;
 import de.iske.kistogramm.dto.Image;
 import de.iske.kistogramm.dto.export.ExportImage;
 import de.iske.kistogramm.model.ImageEntity;
+import de.iske.kistogramm.service.ImageRenditionService;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Named;
+import org.mapstruct.NullValueCheckStrategy;
 
 @Mapper(componentModel = "spring")
 public interface ImageMapper {
+
+    @Named("mapIdToDataUrl")
+    static String mapIdToDataUrl(Integer id) {
+        if (id == null) return null;
+        return "/api/images/" + id + "/data";
+    }
+
+    @Named("mapIdToThumbnailUrl")
+    static String mapIdToThumbnailUrl(Integer id) {
+        if (id == null) return null;
+        return "/api/images/" + id + "/data?size=" + ImageRenditionService.THUMBNAIL;
+    }
+
+    @Mapping(target = "data", ignore = true)
+    @Mapping(target = "dataUrl", source = "id", qualifiedByName = "mapIdToDataUrl")
+    @Mapping(target = "thumbnailUrl", source = "id", qualifiedByName = "mapIdToThumbnailUrl")
     Image toDto(ImageEntity entity);
 
     @Mapping(target = "item", ignore = true)
     @Mapping(target = "storage", ignore = true)
     @Mapping(target = "room", ignore = true)
     @Mapping(target = "receiptItem", ignore = true)
+    // Bytes and everything derived from them are set by ImageService
+    @Mapping(target = "blobKey", ignore = true)
+    @Mapping(target = "size", ignore = true)
+    @Mapping(target = "contentHash", ignore = true)
+    @Mapping(target = "width", ignore = true)
+    @Mapping(target = "height", ignore = true)
+    @Mapping(target = "status", ignore = true)
+    @Mapping(target = "uuid", nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
     ImageEntity toEntity(Image dto);
 
+    @Mapping(target = "versionHash", ignore = true)
     ExportImage toExportImage(ImageEntity imageEntity);
 }
@@ -5,9 +5,11 @@ import de.iske.kistogramm.dto.export.ExportItem;
 import de.iske.kistogramm.model.ImageEntity;
 import de.iske.kistogramm.model.ItemEntity;
 import de.iske.kistogramm.model.TagEntity;
+import de.iske.kistogramm.repository.ItemRow;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
+import org.mapstruct.NullValueCheckStrategy;
 
 import java.util.List;
 import java.util.Set;
@@ -73,6 +75,13 @@ public interface ItemMapper {
     @Mapping(target = "receiptIds", source = "receipts", qualifiedByName = "mapReceiptsToIds")
     Item toDto(ItemEntity entity);
 
+    @Mapping(target = "tagIds", ignore = true)
+    @Mapping(target = "relatedItemIds", ignore = true)
+    @Mapping(target = "imageIds", ignore = true)
+    @Mapping(target = "receiptIds", ignore = true)
+    @Mapping(target = "customAttributes", ignore = true)
+    Item toDto(ItemRow row);
+
     @Mapping(target = "category", ignore = true)
     @Mapping(target = "storage", ignore = true)
     @Mapping(target = "tags", ignore = true)
@@ -80,6 +89,7 @@ public interface ItemMapper {
     @Mapping(target = "relatedItems", ignore = true)
     @Mapping(target = "images", ignore = true)
     @Mapping(target = "receipts", ignore = true)
+    @Mapping(target = "uuid", nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
     ItemEntity toEntity(Item dto);
 
     @Mapping(target = "category", source = "category.uuid")
@@ -88,5 +98,6 @@ public interface ItemMapper {
     @Mapping(target = "relatedItems", qualifiedByName = "mapRelatedEntitiesToUuids")
     @Mapping(target = "images", qualifiedByName = "mapImagesToUuids")
     @Mapping(target = "receipts", qualifiedByName = "mapReceiptsToUuids")
+    @Mapping(target = "versionHash", ignore = true)
     ExportItem toExportItem(ItemEntity entity);
 }
@@ -5,9 +5,11 @@ import de.iske.kistogramm.dto.export.ExportRoom;
 import de.iske.kistogramm.model.ImageEntity;
 import de.iske.kistogramm.model.RoomEntity;
 import de.iske.kistogramm.model.StorageEntity;
+import de.iske.kistogramm.repository.RoomRow;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
+import org.mapstruct.NullValueCheckStrategy;
 
 import java.util.List;
 import java.util.Set;
@@ -31,11 +33,15 @@ public interface RoomMapper {
     @Mapping(target = "imageId", source = "image", qualifiedByName = "mapImageToId")
     Room toDto(RoomEntity entity);
 
+    Room toDto(RoomRow row);
+
     @Mapping(target = "storages", ignore = true)
     @Mapping(target = "image", ignore = true)
+    @Mapping(target = "uuid", nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
     RoomEntity toEntity(Room dto);
 
     @Mapping(target = "image", source = "image.uuid")
     @Mapping(target = "storages", qualifiedByName = "mapStoragesToUuids")
+    @Mapping(target = "versionHash", ignore = true)
     ExportRoom toExportRoom(RoomEntity roomEntity);
 }
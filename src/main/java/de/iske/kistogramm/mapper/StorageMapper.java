@@ -6,9 +6,11 @@ import de.iske.kistogramm.model.ImageEntity;
 import de.iske.kistogramm.model.RoomEntity;
 import de.iske.kistogramm.model.StorageEntity;
 import de.iske.kistogramm.model.TagEntity;
+import de.iske.kistogramm.repository.StorageRow;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
+import org.mapstruct.NullValueCheckStrategy;
 
 import java.util.List;
 import java.util.Set;
@@ -53,6 +55,7 @@ public interface StorageMapper {
     @Mapping(target = "subStorages", ignore = true)
     @Mapping(target = "items", ignore = true)
     @Mapping(target = "images", ignore = true)
+    @Mapping(target = "uuid", nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
     StorageEntity toEntity(Storage dto);
 
     @Mapping(source = "room.id", target = "roomId")
@@ -61,9 +64,14 @@ public interface StorageMapper {
     @Mapping(target = "imageIds", source = "images", qualifiedByName = "mapImagesToIds")
     Storage toDto(StorageEntity entity);
 
+    @Mapping(target = "tagIds", ignore = true)
+    @Mapping(target = "imageIds", ignore = true)
+    Storage toDto(StorageRow row);
+
     @Mapping(target = "room", qualifiedByName = "mapRoomToUuid")
     @Mapping(target = "parentStorage", qualifiedByName = "mapParentStorageToUuid")
     @Mapping(target = "images", qualifiedByName = "mapImagesToUuids")
     @Mapping(target = "tags", qualifiedByName = "mapTagsToUuids")
+    @Mapping(target = "versionHash", ignore = true)
     ExportStorage toExportStorage(StorageEntity storageEntity);
 }
@@ -4,12 +4,16 @@ import de.iske.kistogramm.dto.Tag;
 import de.iske.kistogramm.dto.export.ExportTag;
 import de.iske.kistogramm.model.TagEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.NullValueCheckStrategy;
 
 @Mapper(componentModel = "spring")
 public interface TagMapper {
     Tag toDto(TagEntity entity);
 
+    @Mapping(target = "uuid", nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
     TagEntity toEntity(Tag dto);
 
+    @Mapping(target = "versionHash", ignore = true)
     ExportTag toExportTag(TagEntity tagEntity);
 }
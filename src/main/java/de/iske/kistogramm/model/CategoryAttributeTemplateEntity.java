@@ -1,14 +1,15 @@
 package de.iske.kistogramm.model;
 
 import com.google.common.base.MoreObjects;
+import de.iske.kistogramm.service.TombstoneListener;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
-import java.util.Objects;
 import java.util.UUID;
 
 @Entity
 @Table(name = "category_attribute_templates")
+@EntityListeners(TombstoneListener.class)
 public class CategoryAttributeTemplateEntity {
 
     @Id
@@ -16,7 +17,7 @@ public class CategoryAttributeTemplateEntity {
     private Integer id;
 
     @Column(name = "uuid", nullable = false, unique = true)
-    private UUID uuid;
+    private UUID uuid = UUID.randomUUID();
 
     @ManyToOne(optional = false)
     @JoinColumn(name = "category_id")
@@ -41,6 +42,9 @@ public class CategoryAttributeTemplateEntity {
     }
 
     public void setUuid(UUID uuid) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("uuid must not be null");
+        }
         this.uuid = uuid;
     }
 
@@ -80,19 +84,12 @@ public class CategoryAttributeTemplateEntity {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof CategoryAttributeTemplateEntity that)) return false;
-        return getUuid() != null && Objects.equals(getUuid(), that.getUuid());
+        return getUuid().equals(that.getUuid());
     }
 
     @Override
     public int hashCode() {
-        return 42;
-    }
-
-    @PrePersist
-    public void ensureUuid() {
-        if (uuid == null) {
-            uuid = UUID.randomUUID(); // Ensure UUID is generated before persisting
-        }
+        return getUuid().hashCode();
     }
 
     @Override
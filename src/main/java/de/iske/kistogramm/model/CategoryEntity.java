@@ -1,14 +1,15 @@
 package de.iske.kistogramm.model;
 
 import com.google.common.base.MoreObjects;
+import de.iske.kistogramm.service.TombstoneListener;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
-import java.util.Objects;
 import java.util.UUID;
 
 @Entity
 @Table(name = "categories")
+@EntityListeners(TombstoneListener.class)
 public class CategoryEntity {
 
     @Id
@@ -16,7 +17,7 @@ public class CategoryEntity {
     private Integer id;
 
     @Column(name = "uuid", nullable = false, unique = true)
-    private UUID uuid;
+    private UUID uuid = UUID.randomUUID();
 
     @Column(name = "name", nullable = false, unique = true)
     private String name;
@@ -39,6 +40,9 @@ public class CategoryEntity {
     }
 
     public void setUuid(UUID uuid) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("uuid must not be null");
+        }
         this.uuid = uuid;
     }
 
@@ -78,19 +82,12 @@ public class CategoryEntity {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof CategoryEntity that)) return false;
-        return getUuid() != null && Objects.equals(getUuid(), that.getUuid());
+        return getUuid().equals(that.getUuid());
     }
 
     @Override
     public int hashCode() {
-        return 42;
-    }
-
-    @PrePersist
-    public void ensureUuid() {
-        if (uuid == null) {
-            uuid = UUID.randomUUID(); // Ensure UUID is generated before persisting
-        }
+        return getUuid().hashCode();
     }
 
     @Override
@@ -1,46 +1,66 @@
 package de.iske.kistogramm.model;
 
+import de.iske.kistogramm.service.TombstoneListener;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
-import java.util.Objects;
 import java.util.UUID;
 
 @Entity
 @Table(name = "images")
+@EntityListeners(TombstoneListener.class)
 public class ImageEntity {
 
+    public enum Status {
+        /** Original bytes are stored; the compressed version is still being produced. */
+        PROCESSING,
+        READY
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
     @Column(name = "uuid", nullable = false, unique = true)
-    private UUID uuid;
+    private UUID uuid = UUID.randomUUID();
 
     private String description;
 
     @Column(name = "type")
     private String type;
 
-    @Column(name = "data", nullable = false, columnDefinition = "BYTEA")
-    private byte[] data;
+    @Column(name = "blob_key", nullable = false)
+    private String blobKey;
+
+    @Column(name = "size")
+    private Long size;
+
+    @Column(name = "content_hash")
+    private String contentHash;
+
+    private Integer width;
+    private Integer height;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.READY;
 
     private LocalDateTime dateAdded;
     private LocalDateTime dateModified;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id")
     private ItemEntity item;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receipt_item_id")
     private ItemEntity receiptItem;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "storage_id")
     private StorageEntity storage;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "room_id")
     private RoomEntity room;
 
@@ -73,15 +93,58 @@ public class ImageEntity {
     }
 
     public void setUuid(UUID uuid) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("uuid must not be null");
+        }
         this.uuid = uuid;
     }
 
-    public byte[] getData() {
-        return data;
+    public String getBlobKey() {
+        return blobKey;
+    }
+
+    public void setBlobKey(String blobKey) {
+        this.blobKey = blobKey;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getContentHash() {
+        return contentHash;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
     }
 
     public LocalDateTime getDateAdded() {
@@ -136,19 +199,12 @@ public class ImageEntity {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof ImageEntity that)) return false;
-        return getUuid() != null && Objects.equals(getUuid(), that.getUuid());
+        return getUuid().equals(that.getUuid());
     }
 
     @Override
     public int hashCode() {
-        return 42;
-    }
-
-    @PrePersist
-    public void ensureUuid() {
-        if (uuid == null) {
-            uuid = UUID.randomUUID(); // Ensure UUID is generated before persisting
-        }
+        return getUuid().hashCode();
     }
 
     private String resolveOwner() {
@@ -173,7 +229,11 @@ public class ImageEntity {
                 .add("description", description)
                 .add("type", type)
                 .add("belongsTo", resolveOwner())
-                .add("data.length", data != null ? data.length : 0)
+                .add("blobKey", blobKey)
+                .add("size", size)
+                .add("width", width)
+                .add("height", height)
+                .add("status", status)
                 .add("dateAdded", dateAdded)
                 .add("dateModified", dateModified)
                 .toString();
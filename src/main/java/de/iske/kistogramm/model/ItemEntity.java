@@ -2,6 +2,9 @@ package de.iske.kistogramm.model;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.MoreObjects.ToStringHelper;
+import de.iske.kistogramm.service.ItemSearchListener;
+import de.iske.kistogramm.service.SuggestionListener;
+import de.iske.kistogramm.service.TombstoneListener;
 import jakarta.persistence.*;
 
 import java.time.LocalDate;
@@ -10,6 +13,7 @@ import java.util.*;
 
 @Entity
 @Table(name = "items")
+@EntityListeners({TombstoneListener.class, ItemSearchListener.class, SuggestionListener.class})
 public class ItemEntity {
 
     @Id
@@ -17,7 +21,7 @@ public class ItemEntity {
     private Integer id;
 
     @Column(name = "uuid", nullable = false, unique = true)
-    private UUID uuid;
+    private UUID uuid = UUID.randomUUID();
 
     private String name;
     private String description;
@@ -79,6 +83,9 @@ public class ItemEntity {
     }
 
     public void setUuid(UUID uuid) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("uuid must not be null");
+        }
         this.uuid = uuid;
     }
 
@@ -236,19 +243,14 @@ public class ItemEntity {
         if (!(obj instanceof ItemEntity that)) {
             return false;
         }
-        return getUuid() != null && Objects.equals(getUuid(), that.getUuid());
+        return getUuid().equals(that.getUuid());
     }
 
     @Override
     public int hashCode() {
-        return 42; // id is DB-generated
-    }
-
-    @PrePersist
-    public void ensureUuid() {
-        if (uuid == null) {
-            uuid = UUID.randomUUID(); // Ensure UUID is generated before persisting
-        }
+        // the uuid is assigned on construction, so the hash is the same before and after persist; rows loaded
+        // from the database replace it with theirs, which is never NULL (NOT NULL since V1)
+        return getUuid().hashCode();
     }
 
     // toString
@@ -1,16 +1,18 @@
 package de.iske.kistogramm.model;
 
 import com.google.common.base.MoreObjects;
+import de.iske.kistogramm.service.SuggestionListener;
+import de.iske.kistogramm.service.TombstoneListener;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
-import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
 @Entity
 @Table(name = "storages")
+@EntityListeners({TombstoneListener.class, SuggestionListener.class})
 public class StorageEntity {
 
     @Id
@@ -18,7 +20,7 @@ public class StorageEntity {
     private Integer id;
 
     @Column(name = "uuid", nullable = false, unique = true)
-    private UUID uuid;
+    private UUID uuid = UUID.randomUUID();
 
     private String name;
     private String description;
@@ -60,6 +62,9 @@ public class StorageEntity {
     }
 
     public void setUuid(UUID uuid) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("uuid must not be null");
+        }
         this.uuid = uuid;
     }
 
@@ -174,19 +179,12 @@ public class StorageEntity {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof StorageEntity that)) return false;
-        return getUuid() != null && Objects.equals(getUuid(), that.getUuid());
+        return getUuid().equals(that.getUuid());
     }
 
     @Override
     public int hashCode() {
-        return 42;
-    }
-
-    @PrePersist
-    public void ensureUuid() {
-        if (uuid == null) {
-            uuid = UUID.randomUUID(); // Ensure UUID is generated before persisting
-        }
+        return getUuid().hashCode();
     }
 
     @Override
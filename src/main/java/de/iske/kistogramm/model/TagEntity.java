@@ -1,14 +1,17 @@
 package de.iske.kistogramm.model;
 
 import com.google.common.base.MoreObjects;
+import de.iske.kistogramm.service.ItemSearchListener;
+import de.iske.kistogramm.service.SuggestionListener;
+import de.iske.kistogramm.service.TombstoneListener;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
-import java.util.Objects;
 import java.util.UUID;
 
 @Entity
 @Table(name = "tags")
+@EntityListeners({TombstoneListener.class, ItemSearchListener.class, SuggestionListener.class})
 public class TagEntity {
 
     @Id
@@ -16,7 +19,7 @@ public class TagEntity {
     private Integer id;
 
     @Column(name = "uuid", nullable = false, unique = true)
-    private UUID uuid;
+    private UUID uuid = UUID.randomUUID();
 
     private String name;
     private LocalDateTime dateAdded;
@@ -35,6 +38,9 @@ public class TagEntity {
     }
 
     public void setUuid(UUID uuid) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("uuid must not be null");
+        }
         this.uuid = uuid;
     }
 
@@ -66,19 +72,12 @@ public class TagEntity {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof TagEntity that)) return false;
-        return getUuid() != null && Objects.equals(getUuid(), that.getUuid());
+        return getUuid().equals(that.getUuid());
     }
 
     @Override
     public int hashCode() {
-        return 42;
-    }
-
-    @PrePersist
-    public void ensureUuid() {
-        if (uuid == null) {
-            uuid = UUID.randomUUID(); // Ensure UUID is generated before persisting
-        }
+        return getUuid().hashCode();
     }
 
     @Override
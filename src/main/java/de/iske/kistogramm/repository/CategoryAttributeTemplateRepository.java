@@ -1,9 +1,12 @@
 package de.iske.kistogramm.repository;
 
 import de.iske.kistogramm.model.CategoryAttributeTemplateEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,4 +18,11 @@ public interface CategoryAttributeTemplateRepository extends JpaRepository<Categ
     boolean existsByCategoryIdAndAttributeName(Integer categoryId, String attributeName);
 
     Optional<CategoryAttributeTemplateEntity> findByUuid(UUID uuid);
+
+    List<CategoryAttributeTemplateEntity> findAllByUuidIn(Collection<UUID> uuids);
+
+    List<CategoryAttributeTemplateEntity> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    List<CategoryAttributeTemplateEntity> findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime since, Integer id, Limit limit);
 }
@@ -1,9 +1,13 @@
 package de.iske.kistogramm.repository;
 
 import de.iske.kistogramm.model.CategoryEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,4 +18,13 @@ public interface CategoryRepository extends JpaRepository<CategoryEntity, Intege
 
     Optional<CategoryEntity> findByUuid(UUID uuid);
 
+    List<CategoryEntity> findAllByUuidIn(Collection<UUID> uuids);
+
+    List<CategoryEntity> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    List<CategoryEntity> findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime since, Integer id, Limit limit);
+
+    List<CategoryEntity> findAllByNameIn(Collection<String> names);
+
 }
@@ -0,0 +1,8 @@
+package de.iske.kistogramm.repository;
+
+/**
+ * Number of matching items per category, tag, storage or room, as counted by
+ * {@link ItemListingRepository#countFacet}.
+ */
+public record FacetRow(Integer id, String name, Long count) {
+}
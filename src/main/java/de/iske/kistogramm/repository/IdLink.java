@@ -0,0 +1,7 @@
+package de.iske.kistogramm.repository;
+
+/**
+ * One row of an association read as plain ids, e.g. item and tag of {@code item_tags}.
+ */
+public record IdLink(Integer ownerId, Integer targetId) {
+}
@@ -1,10 +1,18 @@
 package de.iske.kistogramm.repository;
 
+import de.iske.kistogramm.dto.ImageStorageStats;
 import de.iske.kistogramm.model.ImageEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
@@ -12,4 +20,61 @@ public interface ImageRepository extends JpaRepository<ImageEntity, Integer> {
 
     Optional<ImageEntity> findByUuid(UUID uuid);
 
+    List<ImageEntity> findAllByUuidIn(Collection<UUID> uuids);
+
+    List<ImageEntity> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    List<ImageEntity> findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime since, Integer id, Limit limit);
+
+    @Query("SELECT new de.iske.kistogramm.repository.IdLink(i.item.id, i.id) FROM ImageEntity i WHERE i.item.id IN :ids")
+    List<IdLink> findItemImageLinks(@Param("ids") Collection<Integer> itemIds);
+
+    @Query("SELECT new de.iske.kistogramm.repository.IdLink(i.receiptItem.id, i.id) FROM ImageEntity i WHERE i.receiptItem.id IN :ids")
+    List<IdLink> findReceiptLinks(@Param("ids") Collection<Integer> itemIds);
+
+    @Query("SELECT new de.iske.kistogramm.repository.IdLink(i.storage.id, i.id) FROM ImageEntity i WHERE i.storage.id IN :ids")
+    List<IdLink> findStorageImageLinks(@Param("ids") Collection<Integer> storageIds);
+
+    @Query("SELECT i.id FROM ImageEntity i WHERE i.status = :status")
+    List<Integer> findIdsByStatus(@Param("status") ImageEntity.Status status);
+
+    @Query("SELECT DISTINCT i.blobKey FROM ImageEntity i")
+    Set<String> findAllBlobKeys();
+
+    boolean existsByContentHash(String contentHash);
+
+    /**
+     * One image per distinct content (the oldest), i.e. the images whose bytes go into an export archive; the next
+     * page after the given id. Each row checks for an older image of its content through the content hash index,
+     * so a page costs the same however many pages came before.
+     */
+    @Query("SELECT i FROM ImageEntity i WHERE i.id > :after AND NOT EXISTS ("
+            + "SELECT j.id FROM ImageEntity j WHERE j.contentHash = i.contentHash AND j.id < i.id) ORDER BY i.id")
+    List<ImageEntity> findContentCarriers(@Param("after") Integer after, Limit limit);
+
+    /**
+     * Like {@link #findContentCarriers(Integer, Limit)}, among the images modified since the given time.
+     */
+    @Query("SELECT i FROM ImageEntity i WHERE i.dateModified >= :since AND i.id > :after AND NOT EXISTS ("
+            + "SELECT j.id FROM ImageEntity j WHERE j.contentHash = i.contentHash AND j.id < i.id"
+            + " AND j.dateModified >= :since) ORDER BY i.id")
+    List<ImageEntity> findContentCarriersModifiedSince(@Param("since") LocalDateTime since,
+                                                       @Param("after") Integer after, Limit limit);
+
+    Optional<ImageEntity> findFirstByContentHash(String contentHash);
+
+    /**
+     * Number of image rows and their total size, counting shared content once per row.
+     */
+    @Query("SELECT new de.iske.kistogramm.dto.ImageStorageStats(COUNT(i), COUNT(DISTINCT i.contentHash), COALESCE(SUM(i.size), 0L)) FROM ImageEntity i")
+    ImageStorageStats getLogicalStats();
+
+    /**
+     * Bytes actually held by the blob store, i.e. every distinct content counted once.
+     */
+    @Query(value = "SELECT CAST(COALESCE(SUM(s.size), 0) AS BIGINT) FROM (SELECT MAX(size) AS size FROM images GROUP BY content_hash) s",
+            nativeQuery = true)
+    long getStoredBytes();
+
 }
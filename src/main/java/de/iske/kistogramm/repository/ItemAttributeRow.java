@@ -0,0 +1,4 @@
+package de.iske.kistogramm.repository;
+
+public record ItemAttributeRow(Integer itemId, String key, String value) {
+}
@@ -0,0 +1,26 @@
+package de.iske.kistogramm.repository;
+
+import de.iske.kistogramm.model.ItemEntity;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ItemListingRepository {
+
+    /**
+     * The items matching the specification as plain rows, read in a single select without loading any entity.
+     *
+     * @param limit maximum number of rows, null for all
+     */
+    List<ItemRow> findRows(Specification<ItemEntity> spec, Sort sort, Integer limit);
+
+    /**
+     * Counts the items matching the specification per entity they reference, in one grouped select, most items
+     * first. Items without such a reference are not counted.
+     *
+     * @param path association to follow from the item, e.g. {@code "storage", "room"}; the target needs an
+     *             {@code id} and a {@code name}
+     */
+    List<FacetRow> countFacet(Specification<ItemEntity> spec, String... path);
+}
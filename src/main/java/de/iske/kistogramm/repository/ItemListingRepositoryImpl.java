@@ -0,0 +1,98 @@
+package de.iske.kistogramm.repository;
+
+import de.iske.kistogramm.model.CategoryEntity;
+import de.iske.kistogramm.model.ItemEntity;
+import de.iske.kistogramm.model.StorageEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ItemListingRepositoryImpl implements ItemListingRepository {
+
+    private final EntityManager entityManager;
+
+    ItemListingRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<ItemRow> findRows(Specification<ItemEntity> spec, Sort sort, Integer limit) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<ItemRow> query = cb.createQuery(ItemRow.class);
+        Root<ItemEntity> item = query.from(ItemEntity.class);
+        Join<ItemEntity, CategoryEntity> category = item.join("category", JoinType.LEFT);
+        Join<ItemEntity, StorageEntity> storage = item.join("storage", JoinType.LEFT);
+        query.select(cb.construct(ItemRow.class,
+                item.get("id"),
+                item.get("uuid"),
+                item.get("name"),
+                item.get("description"),
+                item.get("purchaseDate"),
+                item.get("purchasePrice"),
+                item.get("quantity"),
+                item.get("dateAdded"),
+                item.get("dateModified"),
+                category.get("id"),
+                storage.get("id")));
+        Predicate predicate = spec.toPredicate(item, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(toOrders(sort, item, cb));
+
+        TypedQuery<ItemRow> typed = entityManager.createQuery(query);
+        if (limit != null) {
+            typed.setMaxResults(limit);
+        }
+        return typed.getResultList();
+    }
+
+    @Override
+    public List<FacetRow> countFacet(Specification<ItemEntity> spec, String... path) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<FacetRow> query = cb.createQuery(FacetRow.class);
+        Root<ItemEntity> item = query.from(ItemEntity.class);
+        From<?, ?> target = item;
+        for (String association : path) {
+            target = target.join(association);
+        }
+        Expression<Long> count = cb.count(item);
+        query.select(cb.construct(FacetRow.class, target.get("id"), target.get("name"), count));
+        Predicate predicate = spec.toPredicate(item, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.groupBy(target.get("id"), target.get("name"));
+        query.orderBy(cb.desc(count), cb.asc(target.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // JPA criteria orders know no null precedence, the Hibernate builder does
+    private static List<Order> toOrders(Sort sort, Root<ItemEntity> item, HibernateCriteriaBuilder cb) {
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Expression<?> key = item.get(order.getProperty());
+            if (order.getNullHandling() == Sort.NullHandling.NATIVE) {
+                orders.add(order.isAscending() ? cb.asc(key) : cb.desc(key));
+            } else {
+                boolean nullsFirst = order.getNullHandling() == Sort.NullHandling.NULLS_FIRST;
+                orders.add(order.isAscending() ? cb.asc(key, nullsFirst) : cb.desc(key, nullsFirst));
+            }
+        }
+        return orders;
+    }
+}
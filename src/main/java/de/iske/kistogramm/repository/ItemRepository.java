@@ -1,19 +1,42 @@
 package de.iske.kistogramm.repository;
 
 import de.iske.kistogramm.model.ItemEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface ItemRepository extends JpaRepository<ItemEntity, Integer> {
+public interface ItemRepository extends JpaRepository<ItemEntity, Integer>, JpaSpecificationExecutor<ItemEntity>,
+        ItemListingRepository {
 
     List<ItemEntity> findByCategoryId(Integer categoryId);
 
     List<ItemEntity> findByTagsId(Integer tagId);
 
     Optional<ItemEntity> findByUuid(UUID uuid);
+
+    List<ItemEntity> findAllByUuidIn(Collection<UUID> uuids);
+
+    List<ItemEntity> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    List<ItemEntity> findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime since, Integer id, Limit limit);
+
+    @Query("SELECT new de.iske.kistogramm.repository.IdLink(i.id, t.id) FROM ItemEntity i JOIN i.tags t WHERE i.id IN :ids")
+    List<IdLink> findTagLinks(@Param("ids") Collection<Integer> itemIds);
+
+    @Query("SELECT new de.iske.kistogramm.repository.IdLink(i.id, r.id) FROM ItemEntity i JOIN i.relatedItems r WHERE i.id IN :ids")
+    List<IdLink> findRelatedLinks(@Param("ids") Collection<Integer> itemIds);
+
+    @Query("SELECT new de.iske.kistogramm.repository.ItemAttributeRow(i.id, KEY(a), VALUE(a)) FROM ItemEntity i JOIN i.customAttributes a WHERE i.id IN :ids")
+    List<ItemAttributeRow> findAttributes(@Param("ids") Collection<Integer> itemIds);
 }
@@ -0,0 +1,21 @@
+package de.iske.kistogramm.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The columns of an item without its associations; read by listings, which fetch the associated ids separately.
+ */
+public record ItemRow(Integer id,
+                      UUID uuid,
+                      String name,
+                      String description,
+                      LocalDate purchaseDate,
+                      Double purchasePrice,
+                      Integer quantity,
+                      LocalDateTime dateAdded,
+                      LocalDateTime dateModified,
+                      Integer categoryId,
+                      Integer storageId) {
+}
@@ -0,0 +1,99 @@
+package de.iske.kistogramm.repository;
+
+import de.iske.kistogramm.dto.ItemCursor;
+import de.iske.kistogramm.dto.ItemSort;
+import de.iske.kistogramm.model.ItemEntity;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaExpression;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Filters and keyset conditions for the item listing. Items are ordered by the sort key with nulls last and by id
+ * to break ties, see {@link #order(ItemSort, Sort.Direction)}; {@link #after} continues that order behind a given
+ * item, so every page is a range scan on the matching index instead of an ever-growing offset.
+ */
+public final class ItemSpecifications {
+
+    private ItemSpecifications() {
+    }
+
+    public static Specification<ItemEntity> withIds(Collection<Integer> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    public static Specification<ItemEntity> inCategory(Integer categoryId) {
+        return (root, query, cb) -> cb.equal(root.get("category").get("id"), categoryId);
+    }
+
+    public static Specification<ItemEntity> inStorage(Integer storageId) {
+        return (root, query, cb) -> cb.equal(root.get("storage").get("id"), storageId);
+    }
+
+    public static Specification<ItemEntity> inRoom(Integer roomId) {
+        return (root, query, cb) -> cb.equal(root.get("storage").get("room").get("id"), roomId);
+    }
+
+    public static Specification<ItemEntity> taggedWith(Integer tagId) {
+        return (root, query, cb) -> {
+            Subquery<Integer> tagged = query.subquery(Integer.class);
+            Root<ItemEntity> item = tagged.correlate(root);
+            tagged.select(cb.literal(1)).where(cb.equal(item.join("tags").get("id"), tagId));
+            return cb.exists(tagged);
+        };
+    }
+
+    public static Specification<ItemEntity> modifiedSince(LocalDateTime since) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dateModified"), since);
+    }
+
+    public static Specification<ItemEntity> modifiedBefore(LocalDateTime before) {
+        return (root, query, cb) -> cb.lessThan(root.get("dateModified"), before);
+    }
+
+    /**
+     * The items following {@code last} in the order of {@link #order(ItemSort, Sort.Direction)}: a row value
+     * comparison {@code (key, id) > (value, lastId)} that the database can answer with a single range scan on the
+     * {@code (key, id)} index, plus the items without a key, which come last in either direction.
+     */
+    public static Specification<ItemEntity> after(ItemCursor last, Sort.Direction direction) {
+        return (root, query, cb) -> {
+            JpaExpression<?> id = (JpaExpression<?>) root.<Integer>get("id");
+            if (last.sort() == ItemSort.ID) {
+                return beyond(cb, id, cb.literal(last.id()), direction);
+            }
+            JpaExpression<?> key = (JpaExpression<?>) root.get(last.sort().getProperty());
+            if (last.key() == null) {
+                return cb.and(cb.isNull(key), beyond(cb, id, cb.literal(last.id()), direction));
+            }
+            HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+            return cb.or(
+                    beyond(cb,
+                            hcb.tuple(Comparable.class, key, id),
+                            hcb.tuple(Comparable.class, hcb.literal(last.key()), hcb.literal(last.id())),
+                            direction),
+                    cb.isNull(key));
+        };
+    }
+
+    public static Sort order(ItemSort sort, Sort.Direction direction) {
+        Sort byId = Sort.by(direction, "id");
+        if (sort == ItemSort.ID) {
+            return byId;
+        }
+        return Sort.by(new Sort.Order(direction, sort.getProperty(), Sort.NullHandling.NULLS_LAST)).and(byId);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate beyond(CriteriaBuilder cb, Expression left, Expression right, Sort.Direction direction) {
+        return direction.isAscending() ? cb.greaterThan(left, right) : cb.lessThan(left, right);
+    }
+}
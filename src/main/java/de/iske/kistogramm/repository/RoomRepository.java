@@ -1,9 +1,14 @@
 package de.iske.kistogramm.repository;
 
 import de.iske.kistogramm.model.RoomEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,4 +17,14 @@ public interface RoomRepository extends JpaRepository<RoomEntity, Integer> {
 
     Optional<RoomEntity> findByUuid(UUID uuid);
 
+    List<RoomEntity> findAllByUuidIn(Collection<UUID> uuids);
+
+    List<RoomEntity> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    List<RoomEntity> findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime since, Integer id, Limit limit);
+
+    @Query("SELECT new de.iske.kistogramm.repository.RoomRow(r.id, r.uuid, r.name, r.description, i.id, r.dateAdded, r.dateModified) "
+            + "FROM RoomEntity r LEFT JOIN r.image i")
+    List<RoomRow> findAllRows();
 }
@@ -0,0 +1,13 @@
+package de.iske.kistogramm.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record RoomRow(Integer id,
+                      UUID uuid,
+                      String name,
+                      String description,
+                      Integer imageId,
+                      LocalDateTime dateAdded,
+                      LocalDateTime dateModified) {
+}
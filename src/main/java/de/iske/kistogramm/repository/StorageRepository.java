@@ -1,9 +1,14 @@
 package de.iske.kistogramm.repository;
 
 import de.iske.kistogramm.model.StorageEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,6 +18,23 @@ public interface StorageRepository extends JpaRepository<StorageEntity, Integer>
 
     Optional<StorageEntity> findByUuid(UUID uuid);
 
+    List<StorageEntity> findAllByUuidIn(Collection<UUID> uuids);
+
+    List<StorageEntity> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    List<StorageEntity> findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime since, Integer id, Limit limit);
+
     List<StorageEntity> findByTagsId(Integer tagId);
 
+    @Query("SELECT new de.iske.kistogramm.repository.StorageRow(s.id, s.uuid, s.name, s.description, r.id, p.id, s.dateAdded, s.dateModified) "
+            + "FROM StorageEntity s LEFT JOIN s.room r LEFT JOIN s.parentStorage p")
+    List<StorageRow> findAllRows();
+
+    @Query("SELECT new de.iske.kistogramm.repository.StorageRow(s.id, s.uuid, s.name, s.description, r.id, p.id, s.dateAdded, s.dateModified) "
+            + "FROM StorageEntity s JOIN s.room r LEFT JOIN s.parentStorage p WHERE r.id = :roomId")
+    List<StorageRow> findRowsByRoomId(@Param("roomId") Integer roomId);
+
+    @Query("SELECT new de.iske.kistogramm.repository.IdLink(s.id, t.id) FROM StorageEntity s JOIN s.tags t WHERE s.id IN :ids")
+    List<IdLink> findTagLinks(@Param("ids") Collection<Integer> storageIds);
 }
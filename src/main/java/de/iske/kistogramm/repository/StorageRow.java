@@ -0,0 +1,14 @@
+package de.iske.kistogramm.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record StorageRow(Integer id,
+                         UUID uuid,
+                         String name,
+                         String description,
+                         Integer roomId,
+                         Integer parentStorageId,
+                         LocalDateTime dateAdded,
+                         LocalDateTime dateModified) {
+}
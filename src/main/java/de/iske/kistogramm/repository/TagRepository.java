@@ -1,9 +1,13 @@
 package de.iske.kistogramm.repository;
 
 import de.iske.kistogramm.model.TagEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,5 +16,12 @@ public interface TagRepository extends JpaRepository<TagEntity, Integer> {
 
     Optional<TagEntity> findByUuid(UUID uuid);
 
+    List<TagEntity> findAllByUuidIn(Collection<UUID> uuids);
+
+    List<TagEntity> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    List<TagEntity> findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            LocalDateTime since, Integer id, Limit limit);
+
     Optional<TagEntity> findByName(String name);
 }
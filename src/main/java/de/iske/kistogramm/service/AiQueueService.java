@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
@@ -32,6 +33,7 @@ public class AiQueueService {
     private final ItemRepository itemRepository;
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final BlobStore blobStore;
 
     @Value("${ai.upload-dir}")
     private String uploadDir;
@@ -39,11 +41,13 @@ public class AiQueueService {
     public AiQueueService(AiJobRepository aiJobRepository,
                           ItemRepository itemRepository,
                           StringRedisTemplate redisTemplate,
-                          ObjectMapper objectMapper) {
+                          ObjectMapper objectMapper,
+                          BlobStore blobStore) {
         this.aiJobRepository = aiJobRepository;
         this.itemRepository = itemRepository;
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        this.blobStore = blobStore;
     }
 
     public AiJobEntity submitJob(MultipartFile imageFile,
@@ -111,7 +115,9 @@ public class AiQueueService {
             else if (firstImage.getType().contains("webp")) ext = "webp";
         }
         Path imagePath = jobDir.resolve("image." + ext);
-        Files.write(imagePath, firstImage.getData());
+        try (InputStream in = blobStore.open(firstImage.getBlobKey())) {
+            Files.copy(in, imagePath);
+        }
 
         AiJobEntity job = new AiJobEntity();
         job.setId(jobId);
@@ -0,0 +1,20 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.AppSettingsDto;
+
+/**
+ * Published by {@link AppSettingsService} after the settings were updated, so dependent components can
+ * reconfigure themselves.
+ */
+public class AppSettingsChangedEvent {
+
+    private final AppSettingsDto settings;
+
+    public AppSettingsChangedEvent(AppSettingsDto settings) {
+        this.settings = settings;
+    }
+
+    public AppSettingsDto getSettings() {
+        return settings;
+    }
+}
@@ -3,23 +3,44 @@ package de.iske.kistogramm.service;
 import de.iske.kistogramm.dto.AppSettingsDto;
 import de.iske.kistogramm.model.AppSettingsEntity;
 import de.iske.kistogramm.repository.AppSettingsRepository;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Application settings. They are read on almost every hot path (image compression, AI webhooks) but change only
+ * rarely, so reads are served from an in-memory snapshot. The snapshot is never handed out or modified; it is
+ * dropped on every update and reloaded on the next read.
+ */
 @Service
 public class AppSettingsService {
 
     private static final int SETTINGS_ID = 1;
 
     private final AppSettingsRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicReference<AppSettingsDto> snapshot = new AtomicReference<>();
 
-    public AppSettingsService(AppSettingsRepository repository) {
+    public AppSettingsService(AppSettingsRepository repository, ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.eventPublisher = eventPublisher;
     }
 
+    /**
+     * Returns a copy of the current settings; callers may modify it freely.
+     */
     public AppSettingsDto getSettings() {
-        AppSettingsEntity entity = repository.findById(SETTINGS_ID)
-                .orElseGet(() -> repository.save(new AppSettingsEntity()));
-        return toDto(entity);
+        AppSettingsDto current = snapshot.get();
+        if (current == null) {
+            AppSettingsEntity entity = repository.findById(SETTINGS_ID)
+                    .orElseGet(() -> repository.save(new AppSettingsEntity()));
+            current = toDto(entity);
+            snapshot.compareAndSet(null, current);
+        }
+        return copy(current);
     }
 
     public AppSettingsDto updateSettings(AppSettingsDto dto) {
@@ -46,12 +67,25 @@ public class AppSettingsService {
         entity.setAiRetryDelaySeconds(dto.getAiRetryDelaySeconds());
         entity.setLogLevel(dto.getLogLevel() != null ? dto.getLogLevel() : "INFO");
         entity.setVlmFallbackToOllamaEnabled(dto.isVlmFallbackToOllamaEnabled());
-        return toDto(repository.save(entity));
+        AppSettingsDto saved = toDto(repository.save(entity));
+        snapshot.set(null);
+        eventPublisher.publishEvent(new AppSettingsChangedEvent(copy(saved)));
+        return saved;
+    }
+
+    /**
+     * Drops the snapshot again once the update is committed, in case a concurrent read reloaded the old values
+     * before the commit.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSettingsChanged(AppSettingsChangedEvent event) {
+        snapshot.set(null);
     }
 
-    public AppSettingsEntity getSettingsEntity() {
-        return repository.findById(SETTINGS_ID)
-                .orElseGet(() -> repository.save(new AppSettingsEntity()));
+    private static AppSettingsDto copy(AppSettingsDto source) {
+        AppSettingsDto target = new AppSettingsDto();
+        BeanUtils.copyProperties(source, target);
+        return target;
     }
 
     private AppSettingsDto toDto(AppSettingsEntity entity) {
@@ -0,0 +1,48 @@
+package de.iske.kistogramm.service;
+
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed storage for binary image data.
+ * <p>
+ * Keys are the lowercase hex SHA-256 of the stored bytes, so storing the same content twice yields the same key
+ * and only one copy. Implementations wrap I/O failures in {@link java.io.UncheckedIOException}.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the given bytes and returns their key. Storing content that already exists is a no-op.
+     */
+    String put(byte[] data);
+
+    InputStream open(String key);
+
+    byte[] read(String key);
+
+    /**
+     * Returns the blob as a {@link Resource} so it can be streamed (including byte ranges) without loading it.
+     */
+    Resource getResource(String key);
+
+    boolean exists(String key);
+
+    void delete(String key);
+
+    /**
+     * Deletes the blob only if it was last written before the given instant, i.e. has not been stored again since
+     * it was listed by {@link #listKeys(Instant)}.
+     *
+     * @return whether the blob was deleted
+     */
+    boolean deleteIfModifiedBefore(String key, Instant modifiedBefore);
+
+    /**
+     * Lists the keys of all blobs last written before the given instant.
+     * The returned stream must be closed by the caller.
+     */
+    Stream<String> listKeys(Instant modifiedBefore);
+}
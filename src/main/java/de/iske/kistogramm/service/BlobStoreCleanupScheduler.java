@@ -0,0 +1,62 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.repository.ImageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Removes blobs that are no longer referenced by any image. Blobs are shared by content, so they are never
+ * deleted together with an image row; instead this sweep runs periodically. A grace period protects blobs
+ * written by uploads whose transaction has not committed yet. Cached renditions of removed blobs go with them.
+ */
+@Component
+public class BlobStoreCleanupScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStoreCleanupScheduler.class);
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    private final BlobStore blobStore;
+    private final ImageRepository imageRepository;
+    private final ImageRenditionService renditionService;
+
+    public BlobStoreCleanupScheduler(BlobStore blobStore, ImageRepository imageRepository,
+                                     ImageRenditionService renditionService) {
+        this.blobStore = blobStore;
+        this.imageRepository = imageRepository;
+        this.renditionService = renditionService;
+    }
+
+    @Scheduled(cron = "${images.blob-cleanup-cron:0 30 3 * * *}")
+    @Transactional(readOnly = true)
+    public void deleteUnreferencedBlobs() {
+        Instant cutoff = Instant.now().minus(GRACE_PERIOD);
+        // References first: a blob stored again for a new reference is touched before that reference commits, so
+        // once the query has run it is either in the result or too new to be listed below
+        Set<String> referenced = imageRepository.findAllBlobKeys();
+        List<String> candidates;
+        try (Stream<String> keys = blobStore.listKeys(cutoff)) {
+            candidates = keys.toList();
+        }
+
+        int deleted = 0;
+        for (String key : candidates) {
+            // stored again since it was listed: it may be referenced by a transaction that is still open
+            if (!referenced.contains(key) && blobStore.deleteIfModifiedBefore(key, cutoff)) {
+                deleted++;
+            }
+        }
+        int deletedRenditions = renditionService.deleteUnreferenced(referenced, cutoff);
+        if (deleted > 0 || deletedRenditions > 0) {
+            log.info("Blob cleanup: deleted {} unreferenced blob(s) and {} rendition(s)", deleted, deletedRenditions);
+        }
+    }
+}
@@ -1,21 +1,49 @@
 package de.iske.kistogramm.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.iske.kistogramm.dto.export.*;
 import de.iske.kistogramm.mapper.*;
-import de.iske.kistogramm.model.ImageEntity;
+import de.iske.kistogramm.model.*;
 import de.iske.kistogramm.repository.*;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 @Service
 public class ExportService {
 
+    /**
+     * Name of the manifest entry that marks a sharded archive.
+     */
+    public static final String MANIFEST = "manifest.json";
+
+    private static final int PAGE_SIZE = 500;
+    private static final Set<String> UNCOMPRESSIBLE_TYPES = Set.of(
+            "image/jpeg", "image/jpg", "image/png", "image/webp", "image/gif");
+
     private final CategoryRepository categoryRepository;
     private final CategoryAttributeTemplateRepository categoryAttributeTemplateRepository;
     private final ImageRepository imageRepository;
@@ -33,6 +61,13 @@ public class ExportService {
     private final CategoryAttributeTemplateMapper categoryAttributeTemplateMapper;
 
     private final ObjectMapper objectMapper;
+    private final BlobStore blobStore;
+    private final TombstoneService tombstoneService;
+    private final VersionHasher versionHasher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int shardSize;
+    private final Duration deltaOverlap;
 
     public ExportService(
             CategoryRepository categoryRepository,
@@ -51,7 +86,14 @@ public class ExportService {
             ImageMapper imageMapper,
             CategoryAttributeTemplateMapper categoryAttributeTemplateMapper,
 
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            BlobStore blobStore,
+            TombstoneService tombstoneService,
+            VersionHasher versionHasher,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${export.shard-size:10000}") int shardSize,
+            @Value("${export.delta-overlap:PT10M}") Duration deltaOverlap) {
         this.categoryRepository = categoryRepository;
         this.categoryAttributeTemplateRepository = categoryAttributeTemplateRepository;
         this.imageRepository = imageRepository;
@@ -69,113 +111,398 @@ public class ExportService {
         this.categoryAttributeTemplateMapper = categoryAttributeTemplateMapper;
 
         this.objectMapper = objectMapper;
+        this.blobStore = blobStore;
+        this.tombstoneService = tombstoneService;
+        this.versionHasher = versionHasher;
+        this.entityManager = entityManager;
+        // the archive is written after the controller returned, outside of any request transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardSize = shardSize;
+        this.deltaOverlap = deltaOverlap;
     }
 
-    public ByteArrayOutputStream exportToArchive() throws IOException {
-        // Build the export result
-        ExportResult exportResult = buildExportResult(List.of(ExportScope.ALL));
-        // get all images
-        List<ImageEntity> images = imageRepository.findAll().stream()
-                .toList();
+    /**
+     * Writes the complete inventory as a ZIP archive to the given stream: {@code data.json} first, then one
+     * {@code images/<uuid>} entry per distinct image content.
+     * <p>
+     * Entities are read page by page and the persistence context is cleared after each page, and image bytes are
+     * copied straight from the blob store, so memory use does not grow with the size of the inventory.
+     */
+    public void writeArchive(OutputStream out) throws IOException {
+        writeArchive(out, null, List.of(ExportScope.ALL), ExportFormat.JSON);
+    }
 
-        var data = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(exportResult);
+    /**
+     * Writes the given entity types as a ZIP archive, see {@link #writeArchive(OutputStream)}.
+     * <p>
+     * With {@code since} set this is a delta export: only entities modified at or after that time are written,
+     * image bytes only for those images, and {@code data.json} additionally lists the entities deleted since then.
+     * The {@code watermark} of one archive is the {@code since} of the next delta. It lies {@code export.delta-overlap}
+     * before {@code exportedAt}, which is taken before the first query: a transaction that stamped its rows before the
+     * export but committed after it read them still falls into the next delta. Rows inside the overlap are exported
+     * twice, which is harmless because the import matches them by UUID.
+     * <p>
+     * {@link ExportFormat#NDJSON} replaces {@code data.json} by one NDJSON file per entity type, split into shards of
+     * {@code export.shard-size} records, and a {@code manifest.json} listing them (see {@link ExportManifest}).
+     */
+    public void writeArchive(OutputStream out, LocalDateTime since, Collection<ExportScope> scopes,
+                             ExportFormat format) throws IOException {
+        requireArchiveFormat(format);
+        Set<ExportScope> types = resolveScopes(scopes);
+        LocalDateTime exportedAt = LocalDateTime.now();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    // data.json and anything not in UNCOMPRESSIBLE_TYPES use the default DEFLATE
+                    ZipOutputStream zipOut = new ZipOutputStream(out);
+                    if (format == ExportFormat.NDJSON) {
+                        writeShards(zipOut, exportedAt, since, types);
+                    } else {
+                        zipOut.putNextEntry(new ZipEntry("data.json"));
+                        writeDataJson(zipOut, exportedAt, since, types);
+                        zipOut.closeEntry();
+                    }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ZipOutputStream zipOut = new ZipOutputStream(baos)) {
-            ZipEntry jsonEntry = new ZipEntry("data.json");
-            zipOut.putNextEntry(jsonEntry);
-            zipOut.write(data.getBytes());
-            zipOut.closeEntry();
+                    if (!types.contains(ExportScope.IMAGES)) {
+                        zipOut.finish();
+                        return;
+                    }
+                    forEachPage(changedSince(since, imageRepository::findContentCarriers,
+                            imageRepository::findContentCarriersModifiedSince), ImageEntity::getId, image -> {
+                        ZipEntry entry = new ZipEntry("images/" + image.getUuid());
+                        if (isAlreadyCompressed(image.getType())) {
+                            storeUncompressed(entry, image.getBlobKey());
+                        }
+                        zipOut.putNextEntry(entry);
+                        try (InputStream in = blobStore.open(image.getBlobKey())) {
+                            in.transferTo(zipOut);
+                        }
+                        zipOut.closeEntry();
+                    });
+                    zipOut.finish();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-            for (var image : images) {
-                String imagePath = "images/" + image.getUuid();
-                ZipEntry imgEntry = new ZipEntry(imagePath);
-                zipOut.putNextEntry(imgEntry);
-                zipOut.write(image.getData());
-                zipOut.closeEntry();
+    /**
+     * Archives come as {@code data.json} ({@link ExportFormat#JSON}, the default) or sharded
+     * ({@link ExportFormat#NDJSON}); the other formats have no archive layout.
+     */
+    public static void requireArchiveFormat(ExportFormat format) {
+        if (format != ExportFormat.JSON && format != ExportFormat.NDJSON) {
+            throw new IllegalArgumentException("Unsupported archive format: " + format);
+        }
+    }
+
+    /**
+     * Writes the complete inventory in the archive layout into a directory: {@code data.json} plus one
+     * {@code images/<uuid>} file per distinct image content. The image files are created by the given writer, so
+     * callers can link content they already hold instead of copying it. Zipping the directory yields an archive
+     * the import accepts.
+     */
+    public void writeDirectory(Path directory, ImageFileWriter imageWriter) throws IOException {
+        Path images = Files.createDirectories(directory.resolve("images"));
+        LocalDateTime exportedAt = LocalDateTime.now();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    try (OutputStream out = Files.newOutputStream(directory.resolve("data.json"))) {
+                        writeDataJson(out, exportedAt, null, resolveScopes(null));
+                    }
+                    forEachPage(imageRepository::findContentCarriers, ImageEntity::getId, image ->
+                            imageWriter.write(images.resolve(image.getUuid().toString()), image.getBlobKey()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ImageFileWriter {
+        void write(Path target, String blobKey) throws IOException;
+    }
+
+    /**
+     * JPEG, PNG, WebP and GIF are compressed already; deflating them again costs CPU and saves almost nothing.
+     */
+    private static boolean isAlreadyCompressed(String contentType) {
+        return contentType != null && UNCOMPRESSIBLE_TYPES.contains(contentType);
+    }
+
+    /**
+     * Switches the entry to STORED. Unlike DEFLATE this needs size and CRC up front, so the blob is read once
+     * to compute them; it is a sequential read from the page cache, far cheaper than deflating it.
+     */
+    private void storeUncompressed(ZipEntry entry, String blobKey) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = blobStore.open(blobKey)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                size += read;
             }
         }
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+    }
+
+    private void writeDataJson(OutputStream out, LocalDateTime exportedAt, LocalDateTime since,
+                               Set<ExportScope> types) throws IOException {
+        ExportResult header = new ExportResult();
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(out);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gen.useDefaultPrettyPrinter();
+
+        gen.writeStartObject();
+        gen.writeStringField("version", header.getVersion());
+        gen.writeFieldName("exportedAt");
+        gen.writeObject(exportedAt);
+        gen.writeFieldName("watermark");
+        gen.writeObject(watermark(exportedAt));
+        if (since != null) {
+            gen.writeFieldName("since");
+            gen.writeObject(since);
+        }
+        // types outside the scope are left out entirely, which the import treats as "nothing to import"
+        for (EntityType<?> type : entityTypes(since, types)) {
+            writeArray(gen, type);
+        }
+        if (since != null) {
+            gen.writeFieldName("deleted");
+            gen.writeObject(tombstoneService.findSince(since, types));
+        }
+        gen.writeEndObject();
+        gen.close();
+    }
 
-        return baos;
+    private LocalDateTime watermark(LocalDateTime exportedAt) {
+        return exportedAt.minus(deltaOverlap);
     }
 
-    public ExportResult buildExportResult(List<ExportScope> exportScopes) {
-        if (exportScopes == null || exportScopes.isEmpty() || exportScopes.contains(ExportScope.ALL)) {
-            // Replace ALL with all available scopes
-            exportScopes = List.of(
-                    ExportScope.ITEMS,
-                    ExportScope.CATEGORIES,
-                    ExportScope.TAGS,
-                    ExportScope.IMAGES,
-                    ExportScope.STORAGES,
-                    ExportScope.ROOMS,
-                    ExportScope.CATEGORY_ATTRIBUTE_TEMPLATES
-            );
+    /**
+     * Writes every entity type as {@code <type>/00000.ndjson}, {@code <type>/00001.ndjson}, ... with at most
+     * {@code shardSize} records each, then {@code manifest.json}. Each record is one line, so a reader can parse a
+     * shard record by record instead of as one document.
+     */
+    private void writeShards(ZipOutputStream zipOut, LocalDateTime exportedAt, LocalDateTime since,
+                             Set<ExportScope> types) throws IOException {
+        ExportManifest manifest = new ExportManifest();
+        manifest.setExportedAt(exportedAt);
+        manifest.setWatermark(watermark(exportedAt));
+        manifest.setSince(since);
+        manifest.setShardSize(shardSize);
+        for (EntityType<?> type : entityTypes(since, types)) {
+            try (ShardWriter shards = new ShardWriter(zipOut, type.name(), manifest)) {
+                writeRecords(shards, type);
+            }
         }
-        ExportResult exportResult = new ExportResult();
-        if (exportScopes.contains(ExportScope.ITEMS)) {
-            exportResult.setItems(getExportItems());
+        if (since != null) {
+            try (ShardWriter shards = new ShardWriter(zipOut, "deleted", manifest)) {
+                for (ExportTombstone tombstone : tombstoneService.findSince(since, types)) {
+                    shards.write(tombstone);
+                }
+            }
         }
-        if (exportScopes.contains(ExportScope.CATEGORIES)) {
-            exportResult.setCategories(getExportCategories());
+        zipOut.putNextEntry(new ZipEntry(MANIFEST));
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(zipOut);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gen.useDefaultPrettyPrinter();
+        gen.writeObject(manifest);
+        gen.close();
+        zipOut.closeEntry();
+    }
+
+    private <E> void writeRecords(ShardWriter shards, EntityType<E> type) throws IOException {
+        forEachPage(type.finder(), type.id(), entity -> shards.write(type.mapper().apply(entity)));
+    }
+
+    /**
+     * Splits the records of one entity type into ZIP entries of at most {@code shardSize} lines and records the
+     * entries in the manifest. A type without records gets no shard at all.
+     */
+    private class ShardWriter implements AutoCloseable {
+
+        private final ZipOutputStream zipOut;
+        private final String name;
+        private final ExportManifest.Shards shards = new ExportManifest.Shards();
+        private JsonGenerator gen;
+        private int inShard;
+
+        ShardWriter(ZipOutputStream zipOut, String name, ExportManifest manifest) {
+            this.zipOut = zipOut;
+            this.name = name;
+            manifest.getEntities().put(name, shards);
+        }
+
+        void write(Object record) throws IOException {
+            if (gen == null || inShard == shardSize) {
+                closeShard();
+                String file = "%s/%05d.ndjson".formatted(name, shards.getFiles().size());
+                zipOut.putNextEntry(new ZipEntry(file));
+                shards.getFiles().add(file);
+                gen = objectMapper.getFactory().createGenerator(zipOut);
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // no whitespace between records, the newline is written explicitly
+                gen.setPrettyPrinter(new MinimalPrettyPrinter(""));
+                inShard = 0;
+            }
+            gen.writeObject(record);
+            gen.writeRaw('\n');
+            inShard++;
+            shards.setCount(shards.getCount() + 1);
+        }
+
+        private void closeShard() throws IOException {
+            if (gen != null) {
+                gen.close();
+                zipOut.closeEntry();
+                gen = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeShard();
+        }
+    }
+
+    /**
+     * One entity type of the archive: its name in {@code data.json} and the manifest, its rows and its export DTO.
+     * Every DTO carries its version hash, so an import can tell unchanged rows apart without comparing fields.
+     */
+    private record EntityType<E>(String name, PageFinder<E> finder, Function<E, Integer> id, Function<E, ?> mapper) {
+    }
+
+    private List<EntityType<?>> entityTypes(LocalDateTime since, Set<ExportScope> types) {
+        List<EntityType<?>> entityTypes = new ArrayList<>();
+        if (types.contains(ExportScope.ITEMS)) {
+            entityTypes.add(new EntityType<ItemEntity>("items",
+                    changedSince(since, itemRepository::findByIdGreaterThanOrderByIdAsc,
+                            itemRepository::findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc),
+                    ItemEntity::getId,
+                    item -> versionHasher.stamp(itemMapper.toExportItem(item))));
+        }
+        if (types.contains(ExportScope.CATEGORIES)) {
+            entityTypes.add(new EntityType<CategoryEntity>("categories",
+                    changedSince(since, categoryRepository::findByIdGreaterThanOrderByIdAsc,
+                            categoryRepository::findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc),
+                    CategoryEntity::getId,
+                    category -> versionHasher.stamp(categoryMapper.toExportCategory(category))));
         }
-        if (exportScopes.contains(ExportScope.TAGS)) {
-            exportResult.setTags(getExportTags());
+        if (types.contains(ExportScope.TAGS)) {
+            entityTypes.add(new EntityType<TagEntity>("tags",
+                    changedSince(since, tagRepository::findByIdGreaterThanOrderByIdAsc,
+                            tagRepository::findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc),
+                    TagEntity::getId,
+                    tag -> versionHasher.stamp(tagMapper.toExportTag(tag))));
         }
-        if (exportScopes.contains(ExportScope.IMAGES)) {
-            exportResult.setImages(getExportImages());
+        if (types.contains(ExportScope.IMAGES)) {
+            entityTypes.add(new EntityType<ImageEntity>("images",
+                    changedSince(since, imageRepository::findByIdGreaterThanOrderByIdAsc,
+                            imageRepository::findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc),
+                    ImageEntity::getId,
+                    image -> versionHasher.stamp(imageMapper.toExportImage(image))));
         }
-        if (exportScopes.contains(ExportScope.STORAGES)) {
-            exportResult.setStorages(getExportStorages());
+        if (types.contains(ExportScope.STORAGES)) {
+            entityTypes.add(new EntityType<StorageEntity>("storages",
+                    changedSince(since, storageRepository::findByIdGreaterThanOrderByIdAsc,
+                            storageRepository::findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc),
+                    StorageEntity::getId,
+                    storage -> versionHasher.stamp(storageMapper.toExportStorage(storage))));
         }
-        if (exportScopes.contains(ExportScope.ROOMS)) {
-            exportResult.setRooms(getExportRooms());
+        if (types.contains(ExportScope.ROOMS)) {
+            entityTypes.add(new EntityType<RoomEntity>("rooms",
+                    changedSince(since, roomRepository::findByIdGreaterThanOrderByIdAsc,
+                            roomRepository::findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc),
+                    RoomEntity::getId,
+                    room -> versionHasher.stamp(roomMapper.toExportRoom(room))));
         }
-        if (exportScopes.contains(ExportScope.CATEGORY_ATTRIBUTE_TEMPLATES)) {
-            exportResult.setCategoryAttributeTemplates(getCategoryAttributeTemplates());
+        if (types.contains(ExportScope.CATEGORY_ATTRIBUTE_TEMPLATES)) {
+            entityTypes.add(new EntityType<CategoryAttributeTemplateEntity>("categoryAttributeTemplates",
+                    changedSince(since, categoryAttributeTemplateRepository::findByIdGreaterThanOrderByIdAsc,
+                            categoryAttributeTemplateRepository::findByDateModifiedGreaterThanEqualAndIdGreaterThanOrderByIdAsc),
+                    CategoryAttributeTemplateEntity::getId,
+                    template -> versionHasher.stamp(categoryAttributeTemplateMapper.toExportCategoryAttributeTemplate(template))));
         }
-        return exportResult;
+        return entityTypes;
     }
 
-    private List<ExportItem> getExportItems() {
-        return itemRepository.findAll().stream()
-                .map(itemMapper::toExportItem)
-                .toList();
+    /**
+     * All rows for a full export, the rows modified since the watermark for a delta export.
+     */
+    private static <E> PageFinder<E> changedSince(LocalDateTime since, PageFinder<E> all,
+                                                  ModifiedSinceFinder<E> modifiedSince) {
+        return since == null ? all : (after, limit) -> modifiedSince.find(since, after, limit);
     }
 
-    private List<ExportCategory> getExportCategories() {
-        return categoryRepository.findAll().stream()
-                .map(categoryMapper::toExportCategory)
-                .toList();
+    /**
+     * The concrete entity types for the requested scopes; none or {@link ExportScope#ALL} means all of them.
+     */
+    static Set<ExportScope> resolveScopes(Collection<ExportScope> scopes) {
+        if (scopes == null || scopes.isEmpty() || scopes.contains(ExportScope.ALL)) {
+            Set<ExportScope> all = EnumSet.allOf(ExportScope.class);
+            all.remove(ExportScope.ALL);
+            return all;
+        }
+        return EnumSet.copyOf(scopes);
     }
 
-    private List<ExportTag> getExportTags() {
-        return tagRepository.findAll().stream()
-                .map(tagMapper::toExportTag)
-                .toList();
+    private <E> void writeArray(JsonGenerator gen, EntityType<E> type) throws IOException {
+        gen.writeArrayFieldStart(type.name());
+        forEachPage(type.finder(), type.id(), entity -> gen.writeObject(type.mapper().apply(entity)));
+        gen.writeEndArray();
     }
 
-    private List<ExportImage> getExportImages() {
-        return imageRepository.findAll().stream()
-                .map(imageMapper::toExportImage)
-                .toList();
+    /**
+     * Reads the rows in id order, each page starting after the last id of the previous one. Unlike OFFSET paging
+     * every page costs the same, and rows deleted during the export cannot shift later rows onto an offset that was
+     * already read.
+     */
+    private <E> void forEachPage(PageFinder<E> finder, Function<E, Integer> id, PageConsumer<E> consumer)
+            throws IOException {
+        int after = 0;
+        List<E> page;
+        do {
+            page = finder.find(after, Limit.of(PAGE_SIZE));
+            for (E entity : page) {
+                consumer.accept(entity);
+            }
+            if (!page.isEmpty()) {
+                after = id.apply(page.getLast());
+            }
+            // detach the page so the persistence context does not grow with the export
+            entityManager.clear();
+        } while (page.size() == PAGE_SIZE);
     }
 
-    private List<ExportStorage> getExportStorages() {
-        return storageRepository.findAll().stream()
-                .map(storageMapper::toExportStorage)
-                .toList();
+    /**
+     * The next {@code limit} rows with an id greater than {@code after}, in id order.
+     */
+    @FunctionalInterface
+    private interface PageFinder<E> {
+        List<E> find(int after, Limit limit);
     }
 
-    private List<ExportRoom> getExportRooms() {
-        return roomRepository.findAll().stream()
-                .map(roomMapper::toExportRoom)
-                .toList();
+    @FunctionalInterface
+    private interface ModifiedSinceFinder<E> {
+        List<E> find(LocalDateTime since, int after, Limit limit);
     }
 
-    private List<ExportCategoryAttributeTemplate> getCategoryAttributeTemplates() {
-        return categoryAttributeTemplateRepository.findAll().stream()
-                .map(categoryAttributeTemplateMapper::toExportCategoryAttributeTemplate)
-                .toList();
+    @FunctionalInterface
+    private interface PageConsumer<E> {
+        void accept(E entity) throws IOException;
     }
 }
@@ -0,0 +1,164 @@
+package de.iske.kistogramm.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * {@link BlobStore} on the local filesystem. Blobs are sharded by the first two byte pairs of their hash,
+ * e.g. {@code ab/cd/abcd…}, to keep directories small.
+ */
+@Service
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemBlobStore.class);
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public FileSystemBlobStore(@Value("${images.blob-dir}") String blobDir) {
+        this.root = Path.of(blobDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String put(byte[] data) {
+        String key = sha256Hex(data);
+        Path target = resolve(key);
+        if (Files.exists(target) && touch(target)) {
+            return key;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), key, ".tmp");
+            try {
+                Files.write(tmp, data);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            log.debug("Blob stored: key={} size={}B", key, data.length);
+            return key;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write blob " + key, e);
+        }
+    }
+
+    /**
+     * Refreshes the modification time of an existing blob. It may have been unreferenced so far, and the cleanup
+     * sweep must not take it for old while the new reference is being committed.
+     *
+     * @return false if the blob has been deleted in the meantime
+     */
+    private static boolean touch(Path blob) {
+        try {
+            Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to touch blob " + blob.getFileName(), e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) {
+        try {
+            return Files.newInputStream(resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open blob " + key, e);
+        }
+    }
+
+    @Override
+    public byte[] read(String key) {
+        try {
+            return Files.readAllBytes(resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read blob " + key, e);
+        }
+    }
+
+    @Override
+    public Resource getResource(String key) {
+        return new FileSystemResource(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete blob " + key, e);
+        }
+    }
+
+    @Override
+    public boolean deleteIfModifiedBefore(String key, Instant modifiedBefore) {
+        Path blob = resolve(key);
+        try {
+            if (!Files.getLastModifiedTime(blob).toInstant().isBefore(modifiedBefore)) {
+                return false;
+            }
+            return Files.deleteIfExists(blob);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete blob " + key, e);
+        }
+    }
+
+    @Override
+    public Stream<String> listKeys(Instant modifiedBefore) {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        try {
+            return Files.find(root, 3, (path, attrs) -> isBlobOlderThan(path, attrs, modifiedBefore))
+                    .map(path -> path.getFileName().toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list blobs in " + root, e);
+        }
+    }
+
+    private boolean isBlobOlderThan(Path path, BasicFileAttributes attrs, Instant modifiedBefore) {
+        return attrs.isRegularFile()
+                && KEY_PATTERN.matcher(path.getFileName().toString()).matches()
+                && attrs.lastModifiedTime().toInstant().isBefore(modifiedBefore);
+    }
+
+    private Path resolve(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
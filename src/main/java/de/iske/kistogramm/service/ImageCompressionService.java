@@ -1,30 +1,59 @@
 package de.iske.kistogramm.service;
 
-import de.iske.kistogramm.model.AppSettingsEntity;
+import de.iske.kistogramm.dto.AppSettingsDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import net.coobird.thumbnailator.Thumbnails;
+import net.coobird.thumbnailator.filters.ImageFilter;
+import net.coobird.thumbnailator.util.exif.ExifFilterUtils;
+import net.coobird.thumbnailator.util.exif.ExifUtils;
+import net.coobird.thumbnailator.util.exif.Orientation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class ImageCompressionService {
 
     private final AppSettingsService settingsService;
-
-    public ImageCompressionService(AppSettingsService settingsService) {
+    private final Timer compressionTimer;
+    private final int pixelBudget;
+    // one permit per decoded pixel, shared by all threads
+    private final Semaphore decodePermits;
+
+    public ImageCompressionService(AppSettingsService settingsService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${images.decode-pixel-budget:50000000}") int pixelBudget) {
         this.settingsService = settingsService;
+        this.compressionTimer = Timer.builder("images.compression.time")
+                .description("Time spent compressing a single image")
+                .register(meterRegistry);
+        this.pixelBudget = pixelBudget;
+        this.decodePermits = new Semaphore(pixelBudget, true);
     }
 
     public byte[] compress(byte[] imageData, String contentType) {
+        return compressionTimer.record(() -> doCompress(imageData, contentType));
+    }
+
+    private byte[] doCompress(byte[] imageData, String contentType) {
         if (imageData == null || imageData.length == 0) {
             return imageData;
         }
 
-        AppSettingsEntity settings = settingsService.getSettingsEntity();
+        AppSettingsDto settings = settingsService.getSettings();
 
         if (!settings.isImageCompressionEnabled()) {
             return imageData;
@@ -39,42 +68,67 @@ public class ImageCompressionService {
             return imageData;
         }
 
-        try {
-            BufferedImage original = ImageIO.read(new ByteArrayInputStream(imageData));
-            if (original == null) {
-                return imageData;
-            }
+        // Abmessungen nur aus dem Header lesen, noch nichts dekodieren
+        ImageDimensions dimensions = ImageDimensions.read(imageData).orElse(null);
+        if (dimensions == null) {
+            return imageData;
+        }
+
+        int maxWidth = settings.getImageMaxWidth();
+        int maxHeight = settings.getImageMaxHeight();
+        double quality = settings.getImageQuality() / 100.0;
+
+        boolean needsResize = dimensions.getWidth() > maxWidth || dimensions.getHeight() > maxHeight;
+        boolean isJpeg = "image/jpeg".equals(contentType) || "image/jpg".equals(contentType);
+
+        // PNG ohne Resize-Bedarf überspringen — PNG-Komprimierung ist verlustfrei
+        // und wird von thumbnailator nicht durch quality gesteuert
+        if (!needsResize && !isJpeg) {
+            return imageData;
+        }
 
-            int maxWidth = settings.getImageMaxWidth();
-            int maxHeight = settings.getImageMaxHeight();
-            double quality = settings.getImageQuality() / 100.0;
+        String formatName = isJpeg ? "jpg" : formatFromContentType(contentType);
 
-            boolean needsResize = original.getWidth() > maxWidth || original.getHeight() > maxHeight;
-            boolean isJpeg = "image/jpeg".equals(contentType) || "image/jpg".equals(contentType);
+        // Jede n-te Zeile/Spalte lesen, sodass das Bild noch mindestens so groß wie das Ziel bleibt;
+        // die eigentliche Verkleinerung macht danach thumbnailator in voller Qualität
+        int subsampling = needsResize ? subsamplingFor(dimensions, maxWidth, maxHeight) : 1;
+        int permits = decodedPixels(dimensions, subsampling);
 
-            // PNG ohne Resize-Bedarf überspringen — PNG-Komprimierung ist verlustfrei
-            // und wird von thumbnailator nicht durch quality gesteuert
-            if (!needsResize && !isJpeg) {
+        try {
+            decodePermits.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return imageData;
+        }
+        try {
+            DecodedImage decoded = decode(new ByteArrayInputStream(imageData), subsampling);
+            if (decoded == null) {
                 return imageData;
             }
 
-            String formatName = isJpeg ? "jpg" : formatFromContentType(contentType);
+            int boxWidth = maxWidth;
+            int boxHeight = maxHeight;
+            if (isRotatedByQuarterTurn(decoded.orientation)) {
+                // um 90° gedreht gespeichert: Begrenzung vor der Drehung vertauschen
+                boxWidth = maxHeight;
+                boxHeight = maxWidth;
+            }
 
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Thumbnails.Builder<BufferedImage> builder = Thumbnails.of(decoded.image);
             if (needsResize) {
-                Thumbnails.of(new ByteArrayInputStream(imageData))
-                        .size(maxWidth, maxHeight)
-                        .keepAspectRatio(true)
-                        .outputFormat(formatName)
-                        .outputQuality(quality)
-                        .toOutputStream(out);
+                builder.size(boxWidth, boxHeight).keepAspectRatio(true);
             } else {
-                Thumbnails.of(new ByteArrayInputStream(imageData))
-                        .scale(1.0)
-                        .outputFormat(formatName)
-                        .outputQuality(quality)
-                        .toOutputStream(out);
+                builder.scale(1.0);
             }
+            if (decoded.orientation != null && decoded.orientation != Orientation.TOP_LEFT) {
+                ImageFilter filter = ExifFilterUtils.getFilterForOrientation(decoded.orientation);
+                builder.addFilter(filter);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            builder.outputFormat(formatName)
+                    .outputQuality(quality)
+                    .toOutputStream(out);
 
             byte[] compressed = out.toByteArray();
             // Nur verwenden wenn kleiner als Original
@@ -82,7 +136,107 @@ public class ImageCompressionService {
 
         } catch (IOException e) {
             return imageData;
+        } finally {
+            decodePermits.release(permits);
+        }
+    }
+
+    /**
+     * Decodes an image to be scaled down into the given box, e.g. for a rendition, and hands it to the writer as a
+     * Thumbnailator builder that is already sized to the box and turned upright per EXIF orientation. Like
+     * {@link #compress(byte[], String)} it reads only every n-th row and column and counts the decoded pixels
+     * against the shared budget, so a burst of large images waits instead of exhausting the heap.
+     *
+     * @param dimensions the image's dimensions, used to choose the subsampling and the pixels to reserve
+     * @return false if the data is not a decodable image
+     * @throws InterruptedIOException if interrupted while waiting for the budget
+     */
+    public boolean writeScaled(InputStream imageData, ImageDimensions dimensions, int maxWidth, int maxHeight,
+                               ScaledImageWriter writer) throws IOException {
+        int subsampling = subsamplingFor(dimensions, maxWidth, maxHeight);
+        int permits = decodedPixels(dimensions, subsampling);
+        try {
+            decodePermits.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to decode image");
         }
+        try {
+            DecodedImage decoded = decode(imageData, subsampling);
+            if (decoded == null) {
+                return false;
+            }
+            boolean rotated = isRotatedByQuarterTurn(decoded.orientation);
+            Thumbnails.Builder<BufferedImage> builder = Thumbnails.of(decoded.image)
+                    .size(rotated ? maxHeight : maxWidth, rotated ? maxWidth : maxHeight)
+                    .keepAspectRatio(true);
+            if (decoded.orientation != null && decoded.orientation != Orientation.TOP_LEFT) {
+                builder.addFilter(ExifFilterUtils.getFilterForOrientation(decoded.orientation));
+            }
+            writer.write(builder);
+            return true;
+        } finally {
+            decodePermits.release(permits);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ScaledImageWriter {
+        void write(Thumbnails.Builder<BufferedImage> builder) throws IOException;
+    }
+
+    /**
+     * Largest integer step that keeps the subsampled image at least as large as the target box.
+     */
+    static int subsamplingFor(ImageDimensions dimensions, int maxWidth, int maxHeight) {
+        // Seitenverhältnis bleibt erhalten, also bestimmt die stärker begrenzte Seite das Ziel
+        double scale = Math.min((double) maxWidth / dimensions.getWidth(), (double) maxHeight / dimensions.getHeight());
+        return Math.max(1, (int) Math.floor(1.0 / scale));
+    }
+
+    private int decodedPixels(ImageDimensions dimensions, int subsampling) {
+        long width = (dimensions.getWidth() + subsampling - 1) / subsampling;
+        long height = (dimensions.getHeight() + subsampling - 1) / subsampling;
+        // Bilder über dem Budget laufen allein, statt ewig zu warten
+        return (int) Math.min(width * height, pixelBudget);
+    }
+
+    private DecodedImage decode(InputStream imageData, int subsampling) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(imageData)) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, false);
+                Orientation orientation = readOrientation(reader);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return new DecodedImage(reader.read(0, param), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static boolean isRotatedByQuarterTurn(Orientation orientation) {
+        return orientation == Orientation.LEFT_TOP || orientation == Orientation.RIGHT_TOP
+                || orientation == Orientation.RIGHT_BOTTOM || orientation == Orientation.LEFT_BOTTOM;
+    }
+
+    private static Orientation readOrientation(ImageReader reader) {
+        try {
+            return ExifUtils.getExifOrientation(reader, 0);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private record DecodedImage(BufferedImage image, Orientation orientation) {
     }
 
     private String formatFromContentType(String contentType) {
@@ -0,0 +1,67 @@
+package de.iske.kistogramm.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Width and height of an encoded image, read from the image header without decoding any pixels.
+ */
+public final class ImageDimensions {
+
+    private final int width;
+    private final int height;
+
+    public ImageDimensions(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public static Optional<ImageDimensions> read(byte[] data) {
+        if (data == null || data.length == 0) {
+            return Optional.empty();
+        }
+        return read(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Like {@link #read(byte[])}, reading only as much of the stream as the header takes.
+     */
+    public static Optional<ImageDimensions> read(InputStream data) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(data)) {
+            if (in == null) {
+                return Optional.empty();
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return Optional.of(new ImageDimensions(reader.getWidth(0), reader.getHeight(0)));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getPixels() {
+        return (long) width * height;
+    }
+}
@@ -0,0 +1,244 @@
+package de.iske.kistogramm.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Downscaled renditions of stored images, e.g. thumbnails for list and grid views.
+ * <p>
+ * Renditions are rendered lazily on first request and cached on disk as {@code <dir>/<px>/<contentHash>.<ext>}.
+ * They are derived purely from the content hash and the target size, so the cache never has to be invalidated;
+ * changing a configured size simply uses a new directory. Images that already fit, or cannot be decoded, have no
+ * rendition and are served in their original size; a {@code <contentHash>.original} marker remembers that.
+ * <p>
+ * Decoding goes through {@link ImageCompressionService#writeScaled}, so renditions share the subsampling and the
+ * decode pixel budget of upload compression.
+ */
+@Service
+public class ImageRenditionService {
+
+    public static final String ORIGINAL = "original";
+    /**
+     * Size of the {@code thumbnailUrl} of every image, so it has to be among the configured sizes.
+     */
+    public static final String THUMBNAIL = "thumb";
+
+    private static final Logger log = LoggerFactory.getLogger(ImageRenditionService.class);
+
+    private final BlobStore blobStore;
+    private final ImageCompressionService compressionService;
+    private final Path root;
+    private final Map<String, Integer> sizes;
+
+    public ImageRenditionService(BlobStore blobStore,
+                                 ImageCompressionService compressionService,
+                                 @Value("${images.rendition-dir}") String renditionDir,
+                                 @Value("${images.rendition-sizes:thumb:128,small:384,medium:1024}") String renditionSizes) {
+        this.blobStore = blobStore;
+        this.compressionService = compressionService;
+        this.root = Path.of(renditionDir).toAbsolutePath().normalize();
+        this.sizes = parseSizes(renditionSizes);
+        if (!sizes.containsKey(THUMBNAIL)) {
+            throw new IllegalArgumentException("images.rendition-sizes has to define the size '" + THUMBNAIL + "'");
+        }
+    }
+
+    /**
+     * Configured rendition names mapped to the maximum edge length in pixels.
+     */
+    public Map<String, Integer> getSizes() {
+        return sizes;
+    }
+
+    /**
+     * Returns the cached rendition of the given blob, rendering it first if necessary. Empty means the original
+     * should be served.
+     * <p>
+     * Images known to fit from their stored {@code width} and {@code height} are answered without any I/O. Otherwise
+     * the outcome is cached on disk either way: as the rendition, or as an empty {@code <contentHash>.original}
+     * marker for images that fit or cannot be rendered, so they are not read and decoded again on every request.
+     *
+     * @param width  stored width of the image, null if unknown
+     * @param height stored height of the image, null if unknown
+     * @throws IllegalArgumentException if the size name is not configured
+     */
+    public Optional<Resource> getRendition(String blobKey, String contentType, Integer width, Integer height,
+                                           String size) {
+        if (size == null || ORIGINAL.equals(size)) {
+            return Optional.empty();
+        }
+        Integer px = sizes.get(size);
+        if (px == null) {
+            throw new IllegalArgumentException("Unknown image size: " + size + " (allowed: " + sizes.keySet() + ", " + ORIGINAL + ")");
+        }
+        if (!isScalable(contentType) || fits(width, height, px)) {
+            return Optional.empty();
+        }
+
+        Path dir = root.resolve(String.valueOf(px));
+        Path target = dir.resolve(blobKey + "." + formatFor(contentType));
+        if (Files.exists(target)) {
+            return Optional.of(new FileSystemResource(target));
+        }
+        Path marker = dir.resolve(blobKey + "." + ORIGINAL);
+        if (Files.exists(marker)) {
+            return Optional.empty();
+        }
+
+        ImageDimensions dimensions;
+        if (width != null && height != null) {
+            dimensions = new ImageDimensions(width, height);
+        } else {
+            try (InputStream in = blobStore.open(blobKey)) {
+                dimensions = ImageDimensions.read(in).orElse(null);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read blob " + blobKey, e);
+            }
+            if (dimensions == null || fits(dimensions.getWidth(), dimensions.getHeight(), px)) {
+                markOriginal(marker);
+                return Optional.empty();
+            }
+        }
+        try {
+            if (!render(blobKey, contentType, dimensions, px, target)) {
+                markOriginal(marker);
+                return Optional.empty();
+            }
+            return Optional.of(new FileSystemResource(target));
+        } catch (InterruptedIOException e) {
+            // not the image's fault, so no marker; the next request tries again
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("Could not render {}px rendition of blob {}: {}", px, blobKey, e.getMessage());
+            markOriginal(marker);
+            return Optional.empty();
+        }
+    }
+
+    private static boolean fits(Integer width, Integer height, int px) {
+        return width != null && height != null && width <= px && height <= px;
+    }
+
+    private static void markOriginal(Path marker) {
+        try {
+            Files.createDirectories(marker.getParent());
+            Files.write(marker, new byte[0]);
+        } catch (IOException e) {
+            // only a cache; the next request decides again
+            log.debug("Could not write rendition marker {}: {}", marker, e.getMessage());
+        }
+    }
+
+    /**
+     * Content type of a rendition rendered from an image of the given type.
+     */
+    public String renditionType(String contentType) {
+        return "png".equals(formatFor(contentType)) ? "image/png" : "image/jpeg";
+    }
+
+    /**
+     * Deletes cached renditions whose source blob is no longer referenced. Only files written before the given
+     * instant are considered.
+     *
+     * @return the number of deleted renditions
+     */
+    public int deleteUnreferenced(Set<String> referencedKeys, Instant modifiedBefore) {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        int deleted = 0;
+        try (Stream<Path> files = Files.find(root, 2, (path, attrs) -> attrs.isRegularFile()
+                && attrs.lastModifiedTime().toInstant().isBefore(modifiedBefore))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                String key = dot > 0 ? name.substring(0, dot) : name;
+                if (!referencedKeys.contains(key)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clean up renditions in " + root, e);
+        }
+        return deleted;
+    }
+
+    /**
+     * @return false if the blob could not be decoded
+     */
+    private boolean render(String blobKey, String contentType, ImageDimensions dimensions, int px, Path target)
+            throws IOException {
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            boolean rendered;
+            try (InputStream in = blobStore.open(blobKey); OutputStream out = Files.newOutputStream(tmp)) {
+                rendered = compressionService.writeScaled(in, dimensions, px, px, builder -> builder
+                        .outputFormat(formatFor(contentType))
+                        .outputQuality(0.8)
+                        .toOutputStream(out));
+            }
+            if (!rendered) {
+                return false;
+            }
+            // concurrent first requests may render the same file; the last move wins with identical content
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        log.debug("Rendition rendered: {}", target);
+        return true;
+    }
+
+    private static boolean isScalable(String contentType) {
+        // GIF-Animationen nicht anfassen
+        return contentType != null && contentType.startsWith("image/") && !"image/gif".equals(contentType);
+    }
+
+    private static String formatFor(String contentType) {
+        // keep transparency for PNG and WebP sources, everything else becomes JPEG
+        return "image/png".equals(contentType) || "image/webp".equals(contentType) ? "png" : "jpg";
+    }
+
+    static Map<String, Integer> parseSizes(String value) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Invalid rendition size '" + trimmed + "', expected name:pixels");
+            }
+            String name = trimmed.substring(0, colon).trim();
+            int px = Integer.parseInt(trimmed.substring(colon + 1).trim());
+            if (px <= 0 || ORIGINAL.equals(name)) {
+                throw new IllegalArgumentException("Invalid rendition size '" + trimmed + "'");
+            }
+            result.put(name, px);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -1,24 +1,62 @@
 package de.iske.kistogramm.service;
 
 import de.iske.kistogramm.dto.Image;
+import de.iske.kistogramm.dto.ImageContent;
+import de.iske.kistogramm.dto.ImageStorageStats;
 import de.iske.kistogramm.mapper.ImageMapper;
 import de.iske.kistogramm.model.ImageEntity;
 import de.iske.kistogramm.repository.ImageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Service
 public class ImageService {
 
+    private static final Logger log = LoggerFactory.getLogger(ImageService.class);
+
     private final ImageRepository imageRepository;
     private final ImageMapper imageMapper;
+    private final BlobStore blobStore;
+    private final ImageRenditionService renditionService;
+    private final ImageCompressionService imageCompressionService;
+    private final TaskExecutor compressionExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean asyncCompression;
 
-    public ImageService(ImageRepository imageRepository, ImageMapper imageMapper) {
+    public ImageService(ImageRepository imageRepository,
+                        ImageMapper imageMapper,
+                        BlobStore blobStore,
+                        ImageRenditionService renditionService,
+                        ImageCompressionService imageCompressionService,
+                        @Qualifier("imageCompressionExecutor") TaskExecutor compressionExecutor,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${images.async-compression:false}") boolean asyncCompression) {
         this.imageRepository = imageRepository;
         this.imageMapper = imageMapper;
+        this.blobStore = blobStore;
+        this.renditionService = renditionService;
+        this.imageCompressionService = imageCompressionService;
+        this.compressionExecutor = compressionExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.asyncCompression = asyncCompression;
     }
 
     public List<Image> getAllImages() {
@@ -34,6 +72,7 @@ public class ImageService {
 
     public Image createImage(Image image) {
         ImageEntity entity = imageMapper.toEntity(image);
+        storeData(entity, image.getData() != null ? image.getData() : new byte[0]);
         entity.setDateAdded(LocalDateTime.now());
         entity.setDateModified(LocalDateTime.now());
         return imageMapper.toDto(imageRepository.save(entity));
@@ -45,6 +84,203 @@ public class ImageService {
 
     public Optional<byte[]> getImageData(Integer id) {
         return imageRepository.findById(id)
-                .map(ImageEntity::getData);
+                .map(ImageEntity::getBlobKey)
+                .map(blobStore::read);
+    }
+
+    /**
+     * Returns the image bytes in the requested rendition size, or the original if {@code size} is null,
+     * {@code original}, or the image is already smaller than the rendition.
+     *
+     * @throws IllegalArgumentException if the size name is not configured
+     */
+    public Optional<ImageContent> getImageContent(Integer id, String size) {
+        return imageRepository.findById(id)
+                .map(entity -> renditionService.getRendition(entity.getBlobKey(), entity.getType(),
+                                entity.getWidth(), entity.getHeight(), size)
+                        .map(rendition -> new ImageContent(
+                                rendition,
+                                renditionService.renditionType(entity.getType()),
+                                entity.getContentHash() + "-" + size,
+                                entity.getStatus() == ImageEntity.Status.PROCESSING))
+                        .orElseGet(() -> new ImageContent(
+                                blobStore.getResource(entity.getBlobKey()),
+                                entity.getType(),
+                                entity.getContentHash(),
+                                entity.getStatus() == ImageEntity.Status.PROCESSING)));
+    }
+
+    /**
+     * Compresses and stores uploaded files as new images. {@code owner} attaches each image to its item, storage
+     * or room before it is saved.
+     * <p>
+     * Files are compressed in parallel on the compression executor. With {@code images.async-compression} the
+     * originals are stored right away with status {@link ImageEntity.Status#PROCESSING} and replaced by the
+     * compressed bytes in the background once the surrounding transaction has committed.
+     */
+    public List<ImageEntity> createFromUploads(List<MultipartFile> files, Consumer<ImageEntity> owner) {
+        List<byte[]> originals = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            try {
+                originals.add(file.getBytes());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read uploaded file", e);
+            }
+        }
+
+        List<CompletableFuture<byte[]>> compressed = new ArrayList<>(files.size());
+        if (!asyncCompression) {
+            for (int i = 0; i < files.size(); i++) {
+                byte[] original = originals.get(i);
+                String type = files.get(i).getContentType();
+                compressed.add(CompletableFuture.supplyAsync(
+                        () -> imageCompressionService.compress(original, type), compressionExecutor));
+            }
+        }
+
+        List<ImageEntity> images = new ArrayList<>(files.size());
+        int duplicates = 0;
+        for (int i = 0; i < files.size(); i++) {
+            ImageEntity image = new ImageEntity();
+            boolean duplicate;
+            if (asyncCompression) {
+                duplicate = storeData(image, originals.get(i));
+                image.setStatus(ImageEntity.Status.PROCESSING);
+            } else {
+                duplicate = storeData(image, compressed.get(i).join());
+            }
+            if (duplicate) {
+                duplicates++;
+            }
+            image.setType(files.get(i).getContentType());
+            image.setDateAdded(LocalDateTime.now());
+            image.setDateModified(LocalDateTime.now());
+            owner.accept(image);
+            images.add(imageRepository.save(image));
+        }
+        if (duplicates > 0) {
+            log.info("Upload: {} of {} image(s) already stored, content shared", duplicates, files.size());
+        }
+
+        if (asyncCompression) {
+            List<Integer> ids = images.stream().map(ImageEntity::getId).toList();
+            afterCommit(() -> ids.forEach(id -> compressionExecutor.execute(() -> compressInBackground(id))));
+        }
+        return images;
+    }
+
+    /**
+     * Images still in {@link ImageEntity.Status#PROCESSING} were uploaded before the last shutdown and their background
+     * compression never ran; they are queued again once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeCompression() {
+        List<Integer> ids = imageRepository.findIdsByStatus(ImageEntity.Status.PROCESSING);
+        if (!ids.isEmpty()) {
+            log.info("Resuming background compression of {} image(s)", ids.size());
+            ids.forEach(id -> compressionExecutor.execute(() -> compressInBackground(id)));
+        }
+    }
+
+    private void compressInBackground(Integer imageId) {
+        try {
+            ImageEntity image = imageRepository.findById(imageId).orElse(null);
+            if (image == null || image.getStatus() != ImageEntity.Status.PROCESSING) {
+                return; // deleted or compressed meanwhile
+            }
+            byte[] original = blobStore.read(image.getBlobKey());
+            byte[] compressed = imageCompressionService.compress(original, image.getType());
+            transactionTemplate.executeWithoutResult(tx -> imageRepository.findById(imageId).ifPresent(current -> {
+                if (compressed != original) {
+                    storeData(current, compressed);
+                }
+                current.setStatus(ImageEntity.Status.READY);
+                current.setDateModified(LocalDateTime.now());
+            }));
+        } catch (RuntimeException e) {
+            // keep the original bytes rather than leaving the image in PROCESSING forever
+            log.error("Background compression failed for imageId={}: {}", imageId, e.getMessage());
+            transactionTemplate.executeWithoutResult(tx -> imageRepository.findById(imageId)
+                    .ifPresent(current -> current.setStatus(ImageEntity.Status.READY)));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Writes the bytes to the blob store, points the (not yet saved) entity at the stored blob and records
+     * its size and dimensions. Identical content is stored only once and shared by all images referencing it.
+     *
+     * @return whether the content was already referenced by another image, i.e. nothing new was stored
+     */
+    public boolean storeData(ImageEntity entity, byte[] data) {
+        return storeData(entity, storeBlob(data));
+    }
+
+    /**
+     * The part of {@link #storeData(ImageEntity, byte[])} that needs neither the entity nor the database: hashing,
+     * writing the blob and reading the dimensions. Safe to call from any thread.
+     */
+    public StoredBlob storeBlob(byte[] data) {
+        String key = blobStore.put(data);
+        return new StoredBlob(key, data.length, ImageDimensions.read(data).orElse(null));
+    }
+
+    /**
+     * Points the entity at a blob written by {@link #storeBlob(byte[])}.
+     *
+     * @return whether the content was already referenced by another image
+     */
+    public boolean storeData(ImageEntity entity, StoredBlob blob) {
+        boolean duplicate = !blob.key().equals(entity.getContentHash()) && imageRepository.existsByContentHash(blob.key());
+        entity.setBlobKey(blob.key());
+        entity.setContentHash(blob.key());
+        entity.setSize(blob.size());
+        if (blob.dimensions() != null) {
+            entity.setWidth(blob.dimensions().getWidth());
+            entity.setHeight(blob.dimensions().getHeight());
+        }
+        return duplicate;
+    }
+
+    /**
+     * Points the entity at content that is already stored for another image, without touching the bytes.
+     *
+     * @return false if no image with this content hash exists
+     */
+    public boolean storeExisting(ImageEntity entity, String contentHash) {
+        return imageRepository.findFirstByContentHash(contentHash)
+                .map(existing -> {
+                    entity.setBlobKey(existing.getBlobKey());
+                    entity.setContentHash(existing.getContentHash());
+                    entity.setSize(existing.getSize());
+                    entity.setWidth(existing.getWidth());
+                    entity.setHeight(existing.getHeight());
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    public ImageStorageStats getStorageStats() {
+        ImageStorageStats stats = imageRepository.getLogicalStats();
+        stats.setStoredBytes(imageRepository.getStoredBytes());
+        return stats;
+    }
+
+    /**
+     * Key, size and dimensions of content that has been written to the blob store.
+     */
+    public record StoredBlob(String key, long size, ImageDimensions dimensions) {
     }
 }
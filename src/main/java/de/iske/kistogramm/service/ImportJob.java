@@ -0,0 +1,89 @@
+package de.iske.kistogramm.service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An import running (or waiting to run) in the background. Jobs live in memory only; the spooled archive does not
+ * survive a restart either.
+ */
+public class ImportJob {
+
+  public enum Status {
+    QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+    public boolean isFinished() {
+      return this != QUEUED && this != RUNNING;
+    }
+  }
+
+  private final UUID id = UUID.randomUUID();
+  private final Path archive;
+  private final boolean overwrite;
+  private final boolean failOnError;
+  private final ImportProgress progress = new ImportProgress();
+  private final LocalDateTime dateCreated = LocalDateTime.now();
+
+  private volatile Status status = Status.QUEUED;
+  private volatile String errorMessage;
+  private volatile LocalDateTime dateStarted;
+  private volatile LocalDateTime dateFinished;
+
+  ImportJob(Path archive, boolean overwrite, boolean failOnError) {
+    this.archive = archive;
+    this.overwrite = overwrite;
+    this.failOnError = failOnError;
+  }
+
+  void started() {
+    this.dateStarted = LocalDateTime.now();
+    this.status = Status.RUNNING;
+  }
+
+  void finished(Status status, String errorMessage) {
+    this.errorMessage = errorMessage;
+    this.dateFinished = LocalDateTime.now();
+    this.status = status;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+  Path getArchive() {
+    return archive;
+  }
+
+  public boolean isOverwrite() {
+    return overwrite;
+  }
+
+  public boolean isFailOnError() {
+    return failOnError;
+  }
+
+  public ImportProgress getProgress() {
+    return progress;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  public LocalDateTime getDateCreated() {
+    return dateCreated;
+  }
+
+  public LocalDateTime getDateStarted() {
+    return dateStarted;
+  }
+
+  public LocalDateTime getDateFinished() {
+    return dateFinished;
+  }
+}
@@ -0,0 +1,190 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.ImportJobStatus;
+import de.iske.kistogramm.dto.ImportResult;
+import de.iske.kistogramm.exception.ImportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Runs imports in the background. The upload is spooled to a temporary file within the request (or arrives there
+ * chunk by chunk through {@link ImportUploadService}), everything else happens on the import executor while clients
+ * poll the job status.
+ */
+@Service
+public class ImportJobService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ImportJobService.class);
+
+  private final ImportService importService;
+  private final TaskExecutor importExecutor;
+  private final Duration retention;
+  private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+
+  public ImportJobService(ImportService importService,
+                          @Qualifier("importExecutor") TaskExecutor importExecutor,
+                          @Value("${import.job-retention:PT24H}") Duration retention) {
+    this.importService = importService;
+    this.importExecutor = importExecutor;
+    this.retention = retention;
+  }
+
+  public ImportJobStatus submit(MultipartFile file, boolean overwrite, boolean failOnError) throws IOException {
+    Path spooled = Files.createTempFile("kistogramm-import-", ".zip");
+    try {
+      file.transferTo(spooled);
+      return submit(spooled, overwrite, failOnError);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(spooled);
+      throw e;
+    }
+  }
+
+  /**
+   * Queues the import of an archive already on disk. Once queued, the job owns the file and deletes it when done;
+   * if the file is no ZIP archive or the queue is full, the file stays with the caller.
+   *
+   * @throws IllegalArgumentException if the file is no ZIP archive
+   */
+  public ImportJobStatus submit(Path archive, boolean overwrite, boolean failOnError) throws IOException {
+    requireZip(archive);
+    removeExpiredJobs();
+    long size = Files.size(archive);
+    ImportJob job = new ImportJob(archive, overwrite, failOnError);
+    jobs.put(job.getId(), job);
+    try {
+      importExecutor.execute(() -> run(job));
+    } catch (TaskRejectedException e) {
+      jobs.remove(job.getId());
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many imports waiting, try again later");
+    }
+    LOG.info("Import job {} queued ({} bytes)", job.getId(), size);
+    return toStatus(job);
+  }
+
+  public ImportJobStatus getJob(UUID jobId) {
+    return toStatus(findJob(jobId));
+  }
+
+  /**
+   * Requests cancellation. A queued job never starts, a running one stops before its next batch; batches committed
+   * until then are kept. Finished jobs are left as they are.
+   */
+  public ImportJobStatus cancel(UUID jobId) {
+    ImportJob job = findJob(jobId);
+    if (!job.getStatus().isFinished()) {
+      job.getProgress().cancel();
+      LOG.info("Cancellation of import job {} requested", jobId);
+    }
+    return toStatus(job);
+  }
+
+  private void run(ImportJob job) {
+    ImportJob.Status status;
+    String error = null;
+    try {
+      if (job.getProgress().isCancelled()) {
+        status = ImportJob.Status.CANCELLED;
+      } else {
+        job.started();
+        ImportResult result = importService.importArchive(
+                job.getArchive(), job.isOverwrite(), job.isFailOnError(), job.getProgress());
+        status = statusOf(job, result);
+      }
+    } catch (ImportException e) {
+      status = statusOf(job, e.getImportResult());
+    } catch (Exception e) {
+      LOG.error("Import job {} failed", job.getId(), e);
+      status = ImportJob.Status.FAILED;
+      error = e.getMessage();
+    }
+    // before the job reports itself finished, so a finished job never leaves its archive behind
+    try {
+      Files.deleteIfExists(job.getArchive());
+    } catch (IOException e) {
+      LOG.warn("Could not delete spooled archive {}: {}", job.getArchive(), e.getMessage());
+    }
+    job.finished(status, error);
+    LOG.info("Import job {} finished: {}", job.getId(), job.getStatus());
+  }
+
+  private ImportJob.Status statusOf(ImportJob job, ImportResult result) {
+    if (job.getProgress().isCancelled()) {
+      return ImportJob.Status.CANCELLED;
+    }
+    return result.isSuccess() ? ImportJob.Status.COMPLETED : ImportJob.Status.FAILED;
+  }
+
+  /**
+   * Opening the archive reads no more than its central directory, so a file that is no ZIP archive at all is
+   * rejected with the request instead of failing later as a job.
+   */
+  private static void requireZip(Path archive) throws IOException {
+    try (ZipFile ignored = new ZipFile(archive.toFile())) {
+      // the central directory could be read, the entries are checked by the import
+    } catch (ZipException e) {
+      throw new IllegalArgumentException("Invalid ZIP archive: " + e.getMessage());
+    }
+  }
+
+  private ImportJob findJob(UUID jobId) {
+    ImportJob job = jobs.get(jobId);
+    if (job == null) {
+      throw new NoSuchElementException("Import job not found: " + jobId);
+    }
+    return job;
+  }
+
+  private void removeExpiredJobs() {
+    LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+    jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getDateFinished().isBefore(cutoff));
+  }
+
+  private ImportJobStatus toStatus(ImportJob job) {
+    ImportProgress progress = job.getProgress();
+    ImportJobStatus status = new ImportJobStatus();
+    status.setJobId(job.getId());
+    status.setStatus(job.getStatus().name());
+    status.setRunningPhases(progress.getRunningPhases());
+    status.setTotal(progress.getTotals());
+    status.setProcessed(progress.getProcessed());
+    status.setTotalCount(progress.getTotalCount());
+    status.setProcessedCount(progress.getProcessedCount());
+    status.setResult(progress.getResult());
+    status.setErrorMessage(job.getErrorMessage());
+    status.setDateCreated(job.getDateCreated());
+    status.setDateStarted(job.getDateStarted());
+    status.setDateFinished(job.getDateFinished());
+
+    if (job.getDateStarted() != null) {
+      LocalDateTime end = job.getDateFinished() != null ? job.getDateFinished() : LocalDateTime.now();
+      double seconds = Duration.between(job.getDateStarted(), end).toMillis() / 1000.0;
+      if (seconds > 0 && status.getProcessedCount() > 0) {
+        status.setRowsPerSecond(status.getProcessedCount() / seconds);
+        long remaining = status.getTotalCount() - status.getProcessedCount();
+        status.setEtaSeconds(job.getStatus().isFinished() ? 0L : Math.round(remaining / status.getRowsPerSecond()));
+      }
+    }
+    return status;
+  }
+}
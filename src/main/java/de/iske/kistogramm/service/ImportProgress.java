@@ -0,0 +1,111 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.ImportResult;
+import de.iske.kistogramm.exception.ImportException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live progress of an import. Written by the importing thread and read by status requests, so every field is safe
+ * to read concurrently; the counters of {@link #getResult()} may lag behind by a few rows.
+ */
+public class ImportProgress {
+
+  private volatile ImportResult result;
+  private volatile Map<String, Integer> totals = Map.of();
+  private final Map<String, AtomicInteger> processed = new ConcurrentHashMap<>();
+  private final Set<String> runningPhases = ConcurrentHashMap.newKeySet();
+  private volatile boolean cancelled;
+  private final AtomicBoolean cancellationReported = new AtomicBoolean();
+  // set when one phase failed, so phases running in parallel stop as well
+  private volatile boolean aborted;
+
+  void start(ImportResult result) {
+    this.result = result;
+  }
+
+  /**
+   * Number of rows per phase, in the order the phases run.
+   */
+  void plan(Map<String, Integer> totals) {
+    this.totals = Collections.unmodifiableMap(new LinkedHashMap<>(totals));
+  }
+
+  void beginPhase(String phase) {
+    runningPhases.add(phase);
+  }
+
+  void endPhase(String phase) {
+    runningPhases.remove(phase);
+  }
+
+  void advance(String phase, int rows) {
+    processed.computeIfAbsent(phase, p -> new AtomicInteger()).addAndGet(rows);
+  }
+
+  /**
+   * Asks the import to stop; it does so before its next batch.
+   */
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  void abort() {
+    this.aborted = true;
+  }
+
+  void checkCancelled() throws ImportException {
+    if (cancelled) {
+      if (cancellationReported.compareAndSet(false, true)) {
+        result.getErrors().add("Import cancelled");
+      }
+      throw new ImportException(result);
+    }
+    if (aborted) {
+      throw new ImportException(result);
+    }
+  }
+
+  public ImportResult getResult() {
+    return result;
+  }
+
+  /**
+   * Phases currently running, in plan order; independent phases run at the same time.
+   */
+  public List<String> getRunningPhases() {
+    return totals.keySet().stream().filter(runningPhases::contains).toList();
+  }
+
+  public Map<String, Integer> getTotals() {
+    return totals;
+  }
+
+  public Map<String, Integer> getProcessed() {
+    Map<String, Integer> snapshot = new LinkedHashMap<>();
+    for (String phase : totals.keySet()) {
+      AtomicInteger rows = processed.get(phase);
+      snapshot.put(phase, rows != null ? rows.get() : 0);
+    }
+    return snapshot;
+  }
+
+  public long getTotalCount() {
+    return totals.values().stream().mapToLong(Integer::longValue).sum();
+  }
+
+  public long getProcessedCount() {
+    return processed.values().stream().mapToLong(AtomicInteger::get).sum();
+  }
+}
@@ -0,0 +1,155 @@
+package de.iske.kistogramm.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import de.iske.kistogramm.dto.export.ExportManifest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The rows of one entity type in an import archive. Rows of a legacy {@code data.json} are held in memory; rows of a
+ * sharded archive are parsed from their NDJSON shards again on every iteration, one record at a time, so only the
+ * current batch is ever held in memory.
+ */
+interface ImportRows<T> extends Iterable<T> {
+
+  /**
+   * Number of rows, known up front from the list or the manifest.
+   */
+  int size();
+
+  default Stream<T> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /**
+   * Consecutive batches of at most {@code batchSize} rows; a batch is read only when it is requested.
+   */
+  default Iterable<List<T>> batches(int batchSize) {
+    return () -> new Iterator<>() {
+      private final Iterator<T> rows = iterator();
+
+      @Override
+      public boolean hasNext() {
+        return rows.hasNext();
+      }
+
+      @Override
+      public List<T> next() {
+        if (!rows.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        List<T> batch = new ArrayList<>();
+        while (rows.hasNext() && batch.size() < batchSize) {
+          batch.add(rows.next());
+        }
+        return batch;
+      }
+    };
+  }
+
+  /**
+   * Rows parsed from {@code data.json}; {@code null} means the type is not part of the archive.
+   */
+  static <T> ImportRows<T> of(List<T> rows) {
+    List<T> list = rows != null ? rows : List.of();
+    return new ImportRows<T>() {
+      @Override
+      public int size() {
+        return list.size();
+      }
+
+      @Override
+      public Iterator<T> iterator() {
+        return list.iterator();
+      }
+    };
+  }
+
+  /**
+   * Rows stored in the given shards of the archive; {@code null} means the type is not part of the archive.
+   */
+  static <T> ImportRows<T> ofShards(ZipFile archive, ExportManifest.Shards shards, ObjectReader reader) {
+    if (shards == null) {
+      return of(null);
+    }
+    List<String> files = List.copyOf(shards.getFiles());
+    int count = shards.getCount();
+    return new ImportRows<T>() {
+      @Override
+      public int size() {
+        return count;
+      }
+
+      @Override
+      public Iterator<T> iterator() {
+        return new ShardIterator<>(archive, files.iterator(), reader);
+      }
+    };
+  }
+
+  /**
+   * Reads the shards one after another, closing each one as soon as it is exhausted.
+   */
+  final class ShardIterator<T> implements Iterator<T> {
+
+    private final ZipFile archive;
+    private final Iterator<String> files;
+    private final ObjectReader reader;
+    private MappingIterator<T> current;
+
+    ShardIterator(ZipFile archive, Iterator<String> files, ObjectReader reader) {
+      this.archive = archive;
+      this.files = files;
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        while (current == null || !current.hasNextValue()) {
+          if (current != null) {
+            current.close();
+            current = null;
+          }
+          if (!files.hasNext()) {
+            return false;
+          }
+          current = open(files.next());
+        }
+        return true;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      try {
+        return current.nextValue();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private MappingIterator<T> open(String file) throws IOException {
+      ZipEntry entry = archive.getEntry(file);
+      if (entry == null) {
+        throw new IllegalStateException("Shard missing in archive: " + file);
+      }
+      return reader.readValues(archive.getInputStream(entry));
+    }
+  }
+}
@@ -4,19 +4,40 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import de.iske.kistogramm.dto.ImportResult;
 import de.iske.kistogramm.dto.export.*;
 import de.iske.kistogramm.exception.ImportException;
+import de.iske.kistogramm.mapper.*;
 import de.iske.kistogramm.model.*;
 import de.iske.kistogramm.repository.*;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
 @Service
 public class ImportService {
@@ -29,10 +50,52 @@ public class ImportService {
   private final StorageRepository storageRepository;
   private final TagRepository tagRepository;
 
+  // map stored rows to their export form, so they can be compared with the archive by version hash
+  private final CategoryMapper categoryMapper;
+  private final CategoryAttributeTemplateMapper categoryAttributeTemplateMapper;
+  private final ImageMapper imageMapper;
+  private final ItemMapper itemMapper;
+  private final RoomMapper roomMapper;
+  private final StorageMapper storageMapper;
+  private final TagMapper tagMapper;
+  private final VersionHasher versionHasher;
+
   private final ObjectMapper objectMapper;
+  private final ImageService imageService;
+  private final ItemSearchListener itemSearchListener;
+  private final EntityManager entityManager;
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final PlatformTransactionManager transactionManager;
+  private final TransactionTemplate transactionTemplate;
+  // runs independent import phases side by side
+  private final TaskExecutor phaseExecutor;
+  // hashes and writes image blobs of a batch in parallel
+  private final TaskExecutor imageExecutor;
+  // rows per lookup query and per flush, aligned with the JDBC batch size
+  private final int batchSize;
 
   private static final Logger LOG = LoggerFactory.getLogger(ImportService.class);
 
+  // import phases, in the order they run
+  static final String IMAGES = "images";
+  static final String ROOMS = "rooms";
+  static final String STORAGES = "storages";
+  static final String CATEGORIES = "categories";
+  static final String TAGS = "tags";
+  static final String TEMPLATES = "categoryAttributeTemplates";
+  static final String ITEMS = "items";
+  static final String DELETED = "deleted";
+
+  // tombstones of dependent rows go first; cascades may already have removed some of the later ones
+  private static final List<ExportScope> DELETION_ORDER = List.of(
+          ExportScope.ITEMS,
+          ExportScope.CATEGORY_ATTRIBUTE_TEMPLATES,
+          ExportScope.STORAGES,
+          ExportScope.ROOMS,
+          ExportScope.CATEGORIES,
+          ExportScope.TAGS,
+          ExportScope.IMAGES);
+
   public ImportService(
           CategoryRepository categoryRepository,
           CategoryAttributeTemplateRepository categoryAttributeTemplateRepository,
@@ -41,7 +104,23 @@ public class ImportService {
           RoomRepository roomRepository,
           StorageRepository storageRepository,
           TagRepository tagRepository,
-          ObjectMapper objectMapper) {
+          CategoryMapper categoryMapper,
+          CategoryAttributeTemplateMapper categoryAttributeTemplateMapper,
+          ImageMapper imageMapper,
+          ItemMapper itemMapper,
+          RoomMapper roomMapper,
+          StorageMapper storageMapper,
+          TagMapper tagMapper,
+          VersionHasher versionHasher,
+          ObjectMapper objectMapper,
+          ImageService imageService,
+          ItemSearchListener itemSearchListener,
+          EntityManager entityManager,
+          NamedParameterJdbcTemplate jdbcTemplate,
+          PlatformTransactionManager transactionManager,
+          @Qualifier("importPhaseExecutor") TaskExecutor phaseExecutor,
+          @Qualifier("imageCompressionExecutor") TaskExecutor imageExecutor,
+          @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int batchSize) {
     this.categoryRepository = categoryRepository;
     this.categoryAttributeTemplateRepository = categoryAttributeTemplateRepository;
     this.imageRepository = imageRepository;
@@ -49,36 +128,155 @@ public class ImportService {
     this.roomRepository = roomRepository;
     this.storageRepository = storageRepository;
     this.tagRepository = tagRepository;
+    this.categoryMapper = categoryMapper;
+    this.categoryAttributeTemplateMapper = categoryAttributeTemplateMapper;
+    this.imageMapper = imageMapper;
+    this.itemMapper = itemMapper;
+    this.roomMapper = roomMapper;
+    this.storageMapper = storageMapper;
+    this.tagMapper = tagMapper;
+    this.versionHasher = versionHasher;
     this.objectMapper = objectMapper;
+    this.imageService = imageService;
+    this.itemSearchListener = itemSearchListener;
+    this.entityManager = entityManager;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionManager = transactionManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.phaseExecutor = phaseExecutor;
+    this.imageExecutor = imageExecutor;
+    this.batchSize = batchSize;
   }
 
+  /**
+   * Imports a ZIP archive created by the export. The upload is spooled to a temporary file first, see
+   * {@link #importArchive(Path, boolean, boolean, ImportProgress)}.
+   */
   public ImportResult importArchive(MultipartFile file, boolean overwrite, boolean failOnError) throws IOException {
+    Path spooled = Files.createTempFile("kistogramm-import-", ".zip");
+    try {
+      file.transferTo(spooled);
+      return importArchive(spooled, overwrite, failOnError, new ImportProgress());
+    } finally {
+      Files.deleteIfExists(spooled);
+    }
+  }
+
+  /**
+   * Imports a ZIP archive created by the export. The archive is opened as {@link ZipFile}, so {@code data.json} is
+   * located through the central directory and image entries are read one at a time while their
+   * {@link ImageEntity} is persisted; the archive never has to fit into memory.
+   * <p>
+   * Sharded archives ({@code manifest.json} plus NDJSON shards, see {@link ExportManifest}) are not parsed up front:
+   * every phase reads its shards record by record as it goes, so memory use stays bounded by the batch size instead
+   * of growing with the archive. Legacy archives with a single {@code data.json} are read as before.
+   * <p>
+   * Rows are processed in batches: existing entities of a batch are looked up with one {@code uuid IN (...)} query,
+   * the batch is flushed and the persistence context cleared afterwards. Only ids are kept across batches, and
+   * references between entities (image owners, parent storages, tags, related items) are written with batched
+   * JDBC statements once both sides exist.
+   * <p>
+   * Each batch runs in a transaction of its own unless the caller already has one, so a long import does not hold
+   * a single huge transaction. A failed or cancelled import therefore keeps the batches committed so far; running
+   * it again completes it, since rows are matched by UUID.
+   * <p>
+   * With overwrite on, rows whose version hash equals that of the stored row are not written at all, and images
+   * whose content hash is unchanged keep their stored bytes; re-importing the same data is then mostly reads.
+   * <p>
+   * Without a caller transaction, phases that do not depend on each other run in parallel, each on its own thread,
+   * transactions and connection: images, categories and tags first, then rooms and templates, then storages,
+   * items and finally the related items.
+   */
+  public ImportResult importArchive(Path archive, boolean overwrite, boolean failOnError, ImportProgress progress)
+          throws IOException {
+    try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+      return importArchive(zipFile, overwrite, failOnError, progress);
+    } catch (ZipException e) {
+      var importResult = new ImportResult();
+      importResult.setOverwriteMode(overwrite);
+      importResult.setErrors(new ArrayList<>(List.of("Invalid ZIP archive: " + e.getMessage())));
+      importResult.setWarnings(new ArrayList<>());
+      throw new ImportException(importResult);
+    }
+  }
+
+  private ImportResult importArchive(ZipFile archive, boolean overwrite, boolean failOnError, ImportProgress progress)
+          throws IOException {
     var importResult = new ImportResult();
 
     importResult.setOverwriteMode(overwrite);
     importResult.setSuccess(false);
-    importResult.setErrors(new ArrayList<>());
-    importResult.setWarnings(new ArrayList<>());
+    // status requests read the lists while the import is still adding to them
+    importResult.setErrors(new CopyOnWriteArrayList<>());
+    importResult.setWarnings(new CopyOnWriteArrayList<>());
+    progress.start(importResult);
 
-    var files = extractFiles(file);
-    var dataToImport = parseDataJson(files.get("data.json"), importResult);
+    var dataToImport = readArchive(archive, importResult);
+    if (dataToImport.since() != null) {
+      // a delta only carries rows changed on the exporting side, so they replace the local ones
+      importResult.setOverwriteMode(true);
+    }
+    Map<String, Integer> totals = new LinkedHashMap<>();
+    totals.put(IMAGES, dataToImport.images().size());
+    totals.put(ROOMS, dataToImport.rooms().size());
+    totals.put(STORAGES, dataToImport.storages().size());
+    totals.put(CATEGORIES, dataToImport.categories().size());
+    totals.put(TAGS, dataToImport.tags().size());
+    totals.put(TEMPLATES, dataToImport.templates().size());
+    totals.put(ITEMS, dataToImport.items().size());
+    totals.put(DELETED, dataToImport.deleted().size());
+    progress.plan(totals);
 
     try {
+      // Phases only wait for the phases whose ids they reference. Inside a caller's transaction everything has to
+      // stay on this thread, so the phases then simply run one after another in the order below.
+      Executor executor = TransactionSynchronizationManager.isActualTransactionActive() ? Runnable::run : phaseExecutor;
 
-      checkForExistingCategoryNames(
-              dataToImport.getCategories(),
-              dataToImport.getItems(),
-              dataToImport.getCategoryAttributeTemplates(),
-              importResult);
-
-      var images = importImages(dataToImport.getImages(), files, failOnError, importResult);
-      var rooms = importRooms(dataToImport.getRooms(), images, failOnError, importResult);
-      var storages = importStorages(dataToImport.getStorages(), rooms, images, failOnError, importResult);
-      var categories = importCategories(dataToImport.getCategories(), failOnError, importResult);
-      var tags = importTags(dataToImport.getTags(), failOnError, importResult);
-      importCategoryAttributeTemplates(dataToImport.getCategoryAttributeTemplates(), categories, failOnError, importResult);
-      var items = importItems(dataToImport.getItems(), categories, storages, tags, images, failOnError, importResult);
-      linkRelatedItems(dataToImport.getItems(), items);
+      var images = phase(executor, progress, () ->
+              importImages(dataToImport.images(), archive, failOnError, importResult, progress));
+      var categories = phase(executor, progress, () ->
+              importCategories(dataToImport.categories(), failOnError, importResult, progress));
+      var tags = phase(executor, progress, () ->
+              importTags(dataToImport.tags(), failOnError, importResult, progress));
+      var rooms = phase(executor, progress, () ->
+              importRooms(dataToImport.rooms(),
+                      withStoredImages(images.join(), dataToImport.rooms().stream().map(ExportRoom::getImage)),
+                      failOnError, importResult, progress), images);
+      var templates = phase(executor, progress, () -> {
+        importCategoryAttributeTemplates(dataToImport.templates(),
+                withStoredCategories(categories.join(), dataToImport.templates().stream()
+                        .map(ExportCategoryAttributeTemplate::getCategory)),
+                failOnError, importResult, progress);
+        return null;
+      }, categories);
+      var storages = phase(executor, progress, () ->
+              importStorages(dataToImport.storages(),
+                      withStoredRooms(rooms.join(), dataToImport.storages().stream().map(ExportStorage::getRoom)),
+                      withStoredImages(images.join(), dataToImport.storages().stream()
+                              .flatMap(storage -> streamOf(storage.getImages()))),
+                      withStoredTags(tags.join(), dataToImport.storages().stream()
+                              .flatMap(storage -> streamOf(storage.getTags()))),
+                      failOnError, importResult, progress), rooms, tags);
+      // filled by the items phase, read by the related items phase once it has completed
+      Set<UUID> unchangedItems = new HashSet<>();
+      var items = phase(executor, progress, () -> {
+        ImportRows<ExportItem> itemRows = dataToImport.items();
+        return importItems(itemRows,
+                withStoredCategories(categories.join(), itemRows.stream().map(ExportItem::getCategory)),
+                withStoredStorages(storages.join(), itemRows.stream().map(ExportItem::getStorage)),
+                withStoredTags(tags.join(), itemRows.stream().flatMap(item -> streamOf(item.getTags()))),
+                withStoredImages(images.join(), itemRows.stream()
+                        .flatMap(item -> Stream.concat(streamOf(item.getImages()), streamOf(item.getReceipts())))),
+                unchangedItems, failOnError, importResult, progress);
+      }, categories, tags, storages);
+      var relatedItems = phase(executor, progress, () -> {
+        linkRelatedItems(dataToImport.items(), withStoredItems(items.join(),
+                dataToImport.items().stream().flatMap(item -> streamOf(item.getRelatedItems()))), unchangedItems);
+        return null;
+      }, items);
+
+      awaitPhases(images, categories, tags, rooms, templates, storages, items, relatedItems);
+      applyTombstones(dataToImport.deleted(), failOnError, importResult, progress);
     } catch (ImportException ignore) {
       if (failOnError) {
         importResult.setSuccess(false);
@@ -91,502 +289,1013 @@ public class ImportService {
   }
 
   /**
-   * Checks if categories already exist with their names in the database.
-   * If overwrite mode is enabled, it will update existing categories and also replace the existing UUID.
-   * if not in overwrite mode the existing uuid remains and the reference in the import data is replaced with the existing uuid.
-   *
-   * @param categories
-   * @param importResult
+   * The rows of an archive, parsed up front from a legacy {@code data.json} or streamed from the shards listed in
+   * {@code manifest.json}.
    */
-  private void checkForExistingCategoryNames(List<ExportCategory> categories,
-                                             List<ExportItem> items,
-                                             List<ExportCategoryAttributeTemplate> templates,
-                                             ImportResult importResult) {
-    // get names of categories that should be imported
-    for (var catToImport : categories) {
-      var existingCat = categoryRepository.findByName(catToImport.getName());
-      // if they both have the same uuid, we can skip this check
-      if (existingCat.isPresent() && existingCat.get().getUuid().equals(catToImport.getUuid())) {
-        continue;
-      }
-      if (existingCat.isPresent() && !importResult.isOverwriteMode()) {
-        // Replace the uuid in the import data with the existing category uuid
-        LOG.warn("Category with name '{}' already exists with UUID '{}', replacing in import data with existing UUID",
-                catToImport.getName(), existingCat.get().getUuid());
-        items.forEach(item -> {
-          if (item.getCategory() != null && item.getCategory().equals(catToImport.getUuid())) {
-            item.setCategory(existingCat.get().getUuid());
-          }
-        });
-        templates.forEach(template -> {
-          if (template.getCategory().equals(catToImport.getUuid())) {
-            template.setCategory(existingCat.get().getUuid());
-          }
-        });
-      }
-    }
+  private record ArchiveContent(LocalDateTime since,
+                                ImportRows<ExportImage> images,
+                                ImportRows<ExportRoom> rooms,
+                                ImportRows<ExportStorage> storages,
+                                ImportRows<ExportCategory> categories,
+                                ImportRows<ExportTag> tags,
+                                ImportRows<ExportCategoryAttributeTemplate> templates,
+                                ImportRows<ExportItem> items,
+                                ImportRows<ExportTombstone> deleted) {
   }
 
-  private Map<String, byte[]> extractFiles(MultipartFile file) throws IOException {
-    Map<String, byte[]> files = new HashMap<>();
-    try (ZipInputStream zis = new ZipInputStream(file.getInputStream())) {
-      ZipEntry entry;
-      while ((entry = zis.getNextEntry()) != null) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        zis.transferTo(baos);
-        files.put(entry.getName(), baos.toByteArray());
+  private ArchiveContent readArchive(ZipFile archive, ImportResult importResult) throws IOException {
+    ZipEntry manifestEntry = archive.getEntry(ExportService.MANIFEST);
+    if (manifestEntry == null) {
+      ExportResult data = parseDataJson(archive, importResult);
+      return new ArchiveContent(data.getSince(),
+              ImportRows.of(data.getImages()),
+              ImportRows.of(data.getRooms()),
+              ImportRows.of(data.getStorages()),
+              ImportRows.of(data.getCategories()),
+              ImportRows.of(data.getTags()),
+              ImportRows.of(data.getCategoryAttributeTemplates()),
+              ImportRows.of(data.getItems()),
+              ImportRows.of(data.getDeleted()));
+    }
+    ExportManifest manifest;
+    try (InputStream in = archive.getInputStream(manifestEntry)) {
+      manifest = objectMapper.readValue(in, ExportManifest.class);
+    }
+    if (manifest.getFormat() != ExportFormat.NDJSON) {
+      importResult.getErrors().add("Unsupported archive format: " + manifest.getFormat());
+      throw new ImportException(importResult);
+    }
+    // fail before importing anything rather than in the middle of a phase
+    for (var shards : manifest.getEntities().values()) {
+      for (String file : shards.getFiles()) {
+        if (archive.getEntry(file) == null) {
+          importResult.getErrors().add("Shard missing in archive: " + file);
+          throw new ImportException(importResult);
+        }
       }
     }
-    return files;
+    return new ArchiveContent(manifest.getSince(),
+            shards(archive, manifest, IMAGES, ExportImage.class),
+            shards(archive, manifest, ROOMS, ExportRoom.class),
+            shards(archive, manifest, STORAGES, ExportStorage.class),
+            shards(archive, manifest, CATEGORIES, ExportCategory.class),
+            shards(archive, manifest, TAGS, ExportTag.class),
+            shards(archive, manifest, TEMPLATES, ExportCategoryAttributeTemplate.class),
+            shards(archive, manifest, ITEMS, ExportItem.class),
+            shards(archive, manifest, DELETED, ExportTombstone.class));
+  }
+
+  private <T> ImportRows<T> shards(ZipFile archive, ExportManifest manifest, String name, Class<T> type) {
+    return ImportRows.ofShards(archive, manifest.getEntities().get(name), objectMapper.readerFor(type));
   }
 
-  private ExportResult parseDataJson(byte[] jsonBytes, ImportResult importResult) throws IOException {
-    if (jsonBytes == null) {
+  private ExportResult parseDataJson(ZipFile archive, ImportResult importResult) throws IOException {
+    ZipEntry dataJson = archive.getEntry("data.json");
+    if (dataJson == null) {
       importResult.getErrors().add("data.json missing in archive");
       throw new ImportException(importResult);
     }
-    return objectMapper.readValue(jsonBytes, ExportResult.class);
+    try (InputStream in = archive.getInputStream(dataJson)) {
+      return objectMapper.readValue(in, ExportResult.class);
+    }
   }
 
-  private Map<UUID, ImageEntity> importImages(List<ExportImage> imagesToImport,
-                                              Map<String, byte[]> files,
-                                              boolean failOnError,
-                                              ImportResult result) throws ImportException {
-    Map<UUID, ImageEntity> map = new HashMap<>();
-    if (imagesToImport == null) {
-      return map;
+  private byte[] readEntry(ZipFile archive, String name) throws IOException {
+    ZipEntry entry = archive.getEntry(name);
+    if (entry == null) {
+      return null;
     }
-    for (var imageToImport : imagesToImport) {
-      try {
-        Optional<ImageEntity> existing = imageRepository.findByUuid(imageToImport.getUuid());
-        ImageEntity entity;
-        if (existing.isPresent()) {
-          if (!result.isOverwriteMode()) {
-            result.setSkippedTotalCount(result.getSkippedTotalCount() + 1);
-            map.put(imageToImport.getUuid(), existing.get());
-            continue;
-          }
-          entity = existing.get();
-          result.setUpdatedTotalCount(result.getUpdatedTotalCount() + 1);
-        } else {
-          entity = new ImageEntity();
-          result.setImportedImageCount(result.getImportedImageCount() + 1);
-          result.setImportedTotalCount(result.getImportedTotalCount() + 1);
+    try (InputStream in = archive.getInputStream(entry)) {
+      return in.readAllBytes();
+    }
+  }
+
+  private Map<UUID, Integer> importImages(ImportRows<ExportImage> imagesToImport,
+                                          ZipFile archive,
+                                          boolean failOnError,
+                                          ImportResult result,
+                                          ImportProgress progress) throws ImportException {
+    Map<UUID, Integer> map = new HashMap<>();
+    // archives contain shared content only once, under the first image that uses it; images are exported in id
+    // order, so that image always comes in the same or an earlier batch than the others
+    Map<String, String> entryByContentHash = new HashMap<>();
+    inBatches(imagesToImport, IMAGES, ExportImage::getUuid, failOnError, result, progress, (batch, batchResult) -> {
+      Map<UUID, Integer> ids = new HashMap<>();
+      for (var imageToImport : batch) {
+        String name = "images/" + imageToImport.getUuid();
+        if (imageToImport.getContentHash() != null && archive.getEntry(name) != null) {
+          entryByContentHash.putIfAbsent(imageToImport.getContentHash(), name);
+        }
+      }
+      Map<UUID, ImageEntity> existingImages = byUuid(
+              imageRepository.findAllByUuidIn(keysOf(batch, ExportImage::getUuid)), ImageEntity::getUuid);
+      Set<UUID> unchanged = new HashSet<>();
+      // reading, hashing and storing the blobs is the expensive part, so it runs in parallel for the whole batch
+      Map<UUID, CompletableFuture<ImageService.StoredBlob>> blobs = new HashMap<>();
+      for (var imageToImport : batch) {
+        ImageEntity existing = existingImages.get(imageToImport.getUuid());
+        if (existing != null && batchResult.isOverwriteMode()
+                && isUnchanged(imageToImport, imageMapper.toExportImage(existing))) {
+          unchanged.add(imageToImport.getUuid());
         }
-        entity.setUuid(imageToImport.getUuid());
-        entity.setDescription(imageToImport.getDescription());
-        entity.setType(imageToImport.getType());
-        entity.setDateAdded(imageToImport.getDateAdded() != null ? imageToImport.getDateAdded() : LocalDateTime.now());
-        entity.setDateModified(imageToImport.getDateModified() != null ? imageToImport.getDateModified() : LocalDateTime.now());
-        byte[] data = files.get("images/" + imageToImport.getUuid());
-        entity.setData(data != null ? data : new byte[0]);
-        map.put(imageToImport.getUuid(), imageRepository.save(entity));
-      } catch (Exception e) {
-        result.getErrors().add("Failed to import image " + imageToImport.getUuid() + ": " + e.getMessage());
-        result.setFailedTotalCount(result.getFailedTotalCount() + 1);
-        if (failOnError) {
-          throw new ImportException(result);
+        if (existing != null && (!batchResult.isOverwriteMode() || hasSameContent(existing, imageToImport))) {
+          continue;
         }
+        blobs.put(imageToImport.getUuid(), CompletableFuture.supplyAsync(() -> {
+          try {
+            byte[] data = readEntry(archive, "images/" + imageToImport.getUuid());
+            if (data == null && entryByContentHash.containsKey(imageToImport.getContentHash())) {
+              data = readEntry(archive, entryByContentHash.get(imageToImport.getContentHash()));
+            }
+            return data != null ? imageService.storeBlob(data) : null;
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }, imageExecutor));
       }
-    }
+      for (var imageToImport : batch) {
+        try {
+          ImageEntity entity = existingImages.get(imageToImport.getUuid());
+          if (entity != null) {
+            if (!batchResult.isOverwriteMode()) {
+              batchResult.incrementSkippedTotalCount();
+              ids.put(imageToImport.getUuid(), entity.getId());
+              continue;
+            }
+            if (unchanged.contains(imageToImport.getUuid())) {
+              batchResult.incrementUnchangedTotalCount();
+              ids.put(imageToImport.getUuid(), entity.getId());
+              continue;
+            }
+            batchResult.incrementUpdatedTotalCount();
+          } else {
+            entity = new ImageEntity();
+            batchResult.setImportedImageCount(batchResult.getImportedImageCount() + 1);
+            batchResult.incrementImportedTotalCount();
+          }
+          entity.setUuid(imageToImport.getUuid());
+          entity.setDescription(imageToImport.getDescription());
+          entity.setType(imageToImport.getType());
+          entity.setDateAdded(imageToImport.getDateAdded() != null ? imageToImport.getDateAdded() : LocalDateTime.now());
+          entity.setDateModified(imageToImport.getDateModified() != null ? imageToImport.getDateModified() : LocalDateTime.now());
+          ImageService.StoredBlob blob = awaitBlob(blobs.get(imageToImport.getUuid()));
+          boolean duplicate;
+          if (hasSameContent(entity, imageToImport)) {
+            // only the metadata changed, the stored bytes stay as they are
+            batchResult.setUnchangedImageDataCount(batchResult.getUnchangedImageDataCount() + 1);
+            duplicate = false;
+          } else if (blob != null) {
+            duplicate = imageService.storeData(entity, blob);
+          } else if (imageToImport.getContentHash() != null
+                  && imageService.storeExisting(entity, imageToImport.getContentHash())) {
+            duplicate = true;
+          } else {
+            duplicate = imageService.storeData(entity, new byte[0]);
+          }
+          if (duplicate) {
+            batchResult.setDeduplicatedImageCount(batchResult.getDeduplicatedImageCount() + 1);
+            batchResult.setDeduplicatedBytes(batchResult.getDeduplicatedBytes() + (entity.getSize() != null ? entity.getSize() : 0));
+          }
+          ids.put(imageToImport.getUuid(), imageRepository.save(entity).getId());
+        } catch (Exception e) {
+          batchResult.getErrors().add("Failed to import image " + imageToImport.getUuid() + ": " + e.getMessage());
+          batchResult.incrementFailedTotalCount();
+          if (failOnError) {
+            throw new ImportException(batchResult);
+          }
+        }
+      }
+      return () -> map.putAll(ids);
+    });
     return map;
   }
 
-  private Map<UUID, RoomEntity> importRooms(List<ExportRoom> roomsToImport,
-                                            Map<UUID, ImageEntity> images,
-                                            boolean failOnError,
-                                            ImportResult result) throws ImportException {
-    Map<UUID, RoomEntity> map = new HashMap<>();
-    if (roomsToImport == null) {
-      return map;
-    }
-    for (var roomToImport : roomsToImport) {
-      try {
-        Optional<RoomEntity> existing = roomRepository.findByUuid(roomToImport.getUuid());
-        RoomEntity entity;
-        if (existing.isPresent()) {
-          if (!result.isOverwriteMode()) {
-            result.setSkippedTotalCount(result.getSkippedTotalCount() + 1);
-            map.put(roomToImport.getUuid(), existing.get());
-            continue;
+  private Map<UUID, Integer> importRooms(ImportRows<ExportRoom> roomsToImport,
+                                         Map<UUID, Integer> images,
+                                         boolean failOnError,
+                                         ImportResult result,
+                                         ImportProgress progress) throws ImportException {
+    Map<UUID, Integer> map = new HashMap<>();
+    List<Object[]> imageOwners = new ArrayList<>();
+    inBatches(roomsToImport, ROOMS, ExportRoom::getUuid, failOnError, result, progress, (batch, batchResult) -> {
+      Map<UUID, Integer> ids = new HashMap<>();
+      List<Object[]> owners = new ArrayList<>();
+      Map<UUID, RoomEntity> existingRooms = byUuid(
+              roomRepository.findAllByUuidIn(keysOf(batch, ExportRoom::getUuid)), RoomEntity::getUuid);
+      for (var roomToImport : batch) {
+        try {
+          RoomEntity entity = existingRooms.get(roomToImport.getUuid());
+          if (entity != null) {
+            if (!batchResult.isOverwriteMode()) {
+              batchResult.incrementSkippedTotalCount();
+              ids.put(roomToImport.getUuid(), entity.getId());
+              continue;
+            }
+            if (isUnchanged(roomToImport, roomMapper.toExportRoom(entity))) {
+              batchResult.incrementUnchangedTotalCount();
+              ids.put(roomToImport.getUuid(), entity.getId());
+              continue;
+            }
+            batchResult.setUpdatedRoomCount(batchResult.getUpdatedRoomCount() + 1);
+            batchResult.incrementUpdatedTotalCount();
+          } else {
+            entity = new RoomEntity();
+            batchResult.setImportedRoomCount(batchResult.getImportedRoomCount() + 1);
+            batchResult.incrementImportedTotalCount();
           }
-          entity = existing.get();
-          result.setUpdatedRoomCount(result.getUpdatedRoomCount() + 1);
-          result.setUpdatedTotalCount(result.getUpdatedTotalCount() + 1);
-        } else {
-          entity = new RoomEntity();
-          result.setImportedRoomCount(result.getImportedRoomCount() + 1);
-          result.setImportedTotalCount(result.getImportedTotalCount() + 1);
-        }
-        entity.setUuid(roomToImport.getUuid());
-        entity.setName(roomToImport.getName());
-        entity.setDescription(roomToImport.getDescription());
-        entity.setDateAdded(roomToImport.getDateAdded() != null ? roomToImport.getDateAdded() : LocalDateTime.now());
-        entity.setDateModified(roomToImport.getDateModified() != null ? roomToImport.getDateModified() : LocalDateTime.now());
-        if (roomToImport.getImage() != null) {
-          ImageEntity img = images.get(roomToImport.getImage());
-          if (img != null) {
-            entity.setImage(img);
-            img.setRoom(entity);
+          entity.setUuid(roomToImport.getUuid());
+          entity.setName(roomToImport.getName());
+          entity.setDescription(roomToImport.getDescription());
+          entity.setDateAdded(roomToImport.getDateAdded() != null ? roomToImport.getDateAdded() : LocalDateTime.now());
+          entity.setDateModified(roomToImport.getDateModified() != null ? roomToImport.getDateModified() : LocalDateTime.now());
+          Integer imageId = roomToImport.getImage() != null ? images.get(roomToImport.getImage()) : null;
+          if (imageId != null) {
+            entity.setImage(entityManager.getReference(ImageEntity.class, imageId));
+          }
+          Integer id = roomRepository.save(entity).getId();
+          ids.put(roomToImport.getUuid(), id);
+          if (imageId != null) {
+            owners.add(new Object[]{id, imageId});
+          }
+        } catch (Exception e) {
+          batchResult.getErrors().add("Failed to import room " + roomToImport.getUuid() + ": " + e.getMessage());
+          batchResult.incrementFailedTotalCount();
+          if (failOnError) {
+            throw new ImportException(batchResult);
           }
-        }
-        map.put(roomToImport.getUuid(), roomRepository.save(entity));
-      } catch (Exception e) {
-        result.getErrors().add("Failed to import room " + roomToImport.getUuid() + ": " + e.getMessage());
-        result.setFailedTotalCount(result.getFailedTotalCount() + 1);
-        if (failOnError) {
-          throw new ImportException(result);
         }
       }
-    }
+      return () -> {
+        map.putAll(ids);
+        imageOwners.addAll(owners);
+      };
+    });
+    batchUpdate("UPDATE images SET room_id = ? WHERE id = ?", imageOwners);
     return map;
   }
 
-  private Map<UUID, StorageEntity> importStorages(List<ExportStorage> storagesToImport,
-                                                  Map<UUID, RoomEntity> rooms,
-                                                  Map<UUID, ImageEntity> images,
-                                                  boolean failOnError,
-                                                  ImportResult result) throws ImportException {
-    Map<UUID, StorageEntity> map = new HashMap<>();
-    Map<StorageEntity, UUID> pendingParents = new HashMap<>();
-    if (storagesToImport == null) {
-      return map;
-    }
-    for (var storageToImport : storagesToImport) {
-      try {
-        Optional<StorageEntity> existing = storageRepository.findByUuid(storageToImport.getUuid());
-        StorageEntity entity;
-        if (existing.isPresent()) {
-          if (!result.isOverwriteMode()) {
-            result.setSkippedTotalCount(result.getSkippedTotalCount() + 1);
-            map.put(storageToImport.getUuid(), existing.get());
-            continue;
+  private Map<UUID, Integer> importStorages(ImportRows<ExportStorage> storagesToImport,
+                                            Map<UUID, Integer> rooms,
+                                            Map<UUID, Integer> images,
+                                            Map<UUID, Integer> tags,
+                                            boolean failOnError,
+                                            ImportResult result,
+                                            ImportProgress progress) throws ImportException {
+    Map<UUID, Integer> map = new HashMap<>();
+    Map<UUID, UUID> pendingParents = new LinkedHashMap<>();
+    List<Object[]> imageOwners = new ArrayList<>();
+    List<Integer> retaggedStorages = new ArrayList<>();
+    List<Object[]> storageTags = new ArrayList<>();
+    inBatches(storagesToImport, STORAGES, ExportStorage::getUuid, failOnError, result, progress, (batch, batchResult) -> {
+      Map<UUID, Integer> ids = new HashMap<>();
+      Map<UUID, UUID> batchParents = new LinkedHashMap<>();
+      List<Object[]> owners = new ArrayList<>();
+      List<Integer> retagged = new ArrayList<>();
+      List<Object[]> links = new ArrayList<>();
+      Map<UUID, StorageEntity> existingStorages = byUuid(
+              storageRepository.findAllByUuidIn(keysOf(batch, ExportStorage::getUuid)), StorageEntity::getUuid);
+      for (var storageToImport : batch) {
+        try {
+          StorageEntity entity = existingStorages.get(storageToImport.getUuid());
+          boolean isNew = entity == null;
+          if (!isNew) {
+            if (!batchResult.isOverwriteMode()) {
+              batchResult.incrementSkippedTotalCount();
+              ids.put(storageToImport.getUuid(), entity.getId());
+              continue;
+            }
+            if (isUnchanged(storageToImport, storageMapper.toExportStorage(entity))) {
+              batchResult.incrementUnchangedTotalCount();
+              ids.put(storageToImport.getUuid(), entity.getId());
+              continue;
+            }
+            batchResult.setUpdatedStorageCount(batchResult.getUpdatedStorageCount() + 1);
+            batchResult.incrementUpdatedTotalCount();
+          } else {
+            entity = new StorageEntity();
+            batchResult.setImportedStorageCount(batchResult.getImportedStorageCount() + 1);
+            batchResult.incrementImportedTotalCount();
           }
-          entity = existing.get();
-          result.setUpdatedStorageCount(result.getUpdatedStorageCount() + 1);
-          result.setUpdatedTotalCount(result.getUpdatedTotalCount() + 1);
-        } else {
-          entity = new StorageEntity();
-          result.setImportedStorageCount(result.getImportedStorageCount() + 1);
-          result.setImportedTotalCount(result.getImportedTotalCount() + 1);
-        }
 
-        entity.setUuid(storageToImport.getUuid());
-        entity.setName(storageToImport.getName());
-        entity.setDescription(storageToImport.getDescription());
-        entity.setDateAdded(storageToImport.getDateAdded() != null ? storageToImport.getDateAdded() : LocalDateTime.now());
-        entity.setDateModified(storageToImport.getDateModified() != null ? storageToImport.getDateModified() : LocalDateTime.now());
-        if (storageToImport.getRoom() != null) {
-          entity.setRoom(rooms.get(storageToImport.getRoom()));
-        }
-        if (storageToImport.getParentStorage() != null) {
-          pendingParents.put(entity, storageToImport.getParentStorage());
-        }
-        StorageEntity saved = storageRepository.save(entity);
-        map.put(storageToImport.getUuid(), saved);
-        if (storageToImport.getImages() != null) {
-          for (UUID imgUuid : storageToImport.getImages()) {
-            ImageEntity img = images.get(imgUuid);
-            if (img != null) {
-              img.setStorage(saved);
-              imageRepository.save(img);
+          entity.setUuid(storageToImport.getUuid());
+          entity.setName(storageToImport.getName());
+          entity.setDescription(storageToImport.getDescription());
+          entity.setDateAdded(storageToImport.getDateAdded() != null ? storageToImport.getDateAdded() : LocalDateTime.now());
+          entity.setDateModified(storageToImport.getDateModified() != null ? storageToImport.getDateModified() : LocalDateTime.now());
+          if (storageToImport.getRoom() != null) {
+            Integer roomId = rooms.get(storageToImport.getRoom());
+            entity.setRoom(roomId != null ? entityManager.getReference(RoomEntity.class, roomId) : null);
+          }
+          if (storageToImport.getParentStorage() != null) {
+            batchParents.put(storageToImport.getUuid(), storageToImport.getParentStorage());
+          }
+          Integer id = storageRepository.save(entity).getId();
+          ids.put(storageToImport.getUuid(), id);
+          if (storageToImport.getTags() != null) {
+            if (!isNew) {
+              retagged.add(id);
             }
+            storageToImport.getTags().stream()
+                    .map(tags::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .forEach(tagId -> links.add(new Object[]{id, tagId}));
+          }
+          if (storageToImport.getImages() != null) {
+            for (UUID imgUuid : storageToImport.getImages()) {
+              Integer imageId = images.get(imgUuid);
+              if (imageId != null) {
+                owners.add(new Object[]{id, imageId});
+              }
+            }
+          }
+        } catch (Exception e) {
+          batchResult.getErrors().add("Failed to import storage " + storageToImport.getUuid());
+          batchResult.incrementFailedTotalCount();
+          if (failOnError) {
+            throw new ImportException(batchResult);
           }
-        }
-      } catch (Exception e) {
-        result.getErrors().add("Failed to import storage " + storageToImport.getUuid());
-        result.setFailedTotalCount(result.getFailedTotalCount() + 1);
-        if (failOnError) {
-          throw new ImportException(result);
         }
       }
+      return () -> {
+        map.putAll(ids);
+        pendingParents.putAll(batchParents);
+        imageOwners.addAll(owners);
+        retaggedStorages.addAll(retagged);
+        storageTags.addAll(links);
+      };
+    });
+    batchUpdate("UPDATE images SET storage_id = ? WHERE id = ?", imageOwners);
+    deleteWhereIdIn("DELETE FROM storage_tags WHERE storage_id IN (:ids)", retaggedStorages);
+    batchUpdate("INSERT INTO storage_tags (storage_id, tag_id) VALUES (?, ?)", storageTags);
+
+    // resolve parent references after all storages are saved; parents outside the archive are looked up in one go
+    Map<UUID, Integer> parents = new HashMap<>(map);
+    List<UUID> unknownParents = pendingParents.values().stream()
+            .filter(uuid -> !parents.containsKey(uuid))
+            .distinct()
+            .toList();
+    for (var batch : batches(unknownParents)) {
+      storageRepository.findAllByUuidIn(batch).forEach(parent -> parents.put(parent.getUuid(), parent.getId()));
     }
-    // resolve parent references after all storages are saved
-    for (Map.Entry<StorageEntity, UUID> entry : pendingParents.entrySet()) {
-      StorageEntity child = entry.getKey();
-      UUID parentUuid = entry.getValue();
-      StorageEntity parent = map.get(parentUuid);
-      if (parent == null) {
-        parent = storageRepository.findByUuid(parentUuid).orElse(null);
+    List<Object[]> parentLinks = new ArrayList<>();
+    for (Map.Entry<UUID, UUID> entry : pendingParents.entrySet()) {
+      Integer childId = map.get(entry.getKey());
+      Integer parentId = parents.get(entry.getValue());
+      if (childId == null) {
+        continue;
       }
-      if (parent != null) {
-        child.setParentStorage(parent);
-        storageRepository.save(child);
+      if (parentId != null) {
+        parentLinks.add(new Object[]{parentId, childId});
       } else {
-        result.getWarnings().add("Parent storage " + parentUuid + " for storage " + child.getUuid() + " not found");
+        result.getWarnings().add("Parent storage " + entry.getValue() + " for storage " + entry.getKey() + " not found");
       }
     }
+    batchUpdate("UPDATE storages SET parent_storage_id = ? WHERE id = ?", parentLinks);
     return map;
   }
 
-  private Map<UUID, CategoryEntity> importCategories(List<ExportCategory> categoriesToImport,
-                                                     boolean failOnError,
-                                                     ImportResult result) throws ImportException {
-    Map<UUID, CategoryEntity> importedCategories = new HashMap<>();
-    if (categoriesToImport == null) {
-      return importedCategories; // return empty map if no categories to import
-    }
-    for (var categoryToImport : categoriesToImport) {
-      try {
-        CategoryEntity entity;
-        // Check if category already exists by UUID
-        Optional<CategoryEntity> existing = categoryRepository.findByUuid(categoryToImport.getUuid());
-        // if existing and overwrite mode, we will update it
-        if (existing.isPresent() // category with UUID exists
-                && (!existing.get().getName().equals(categoryToImport.getName()) // name has changed OR
-                || !Optional.ofNullable(existing.get().getDescription()).orElse("")
-                .equals(categoryToImport.getDescription())) // description has changed
-                && result.isOverwriteMode()) { // and we are in overwrite mode
-          LOG.info("Updating name and description for existing category with UUID '{}': {} -> {}",
-                  categoryToImport.getUuid(),
-                  existing.get().getName(),
-                  categoryToImport.getName());
-          entity = existing.get();
-          // Update the name if it has changed
-          entity.setName(categoryToImport.getName());
-          entity.setDescription(categoryToImport.getDescription());
-
-          importedCategories.put(categoryToImport.getUuid(), categoryRepository.save(entity));
+  private Map<UUID, Integer> importCategories(ImportRows<ExportCategory> categoriesToImport,
+                                              boolean failOnError,
+                                              ImportResult result,
+                                              ImportProgress progress) throws ImportException {
+    Map<UUID, Integer> importedCategories = new HashMap<>();
+    inBatches(categoriesToImport, CATEGORIES, ExportCategory::getUuid, failOnError, result, progress, (batch, batchResult) -> {
+      Map<UUID, Integer> ids = new HashMap<>();
+      Map<UUID, CategoryEntity> existingByUuid = byUuid(
+              categoryRepository.findAllByUuidIn(keysOf(batch, ExportCategory::getUuid)), CategoryEntity::getUuid);
+      Map<String, CategoryEntity> existingByName = new HashMap<>();
+      categoryRepository.findAllByNameIn(keysOf(batch, ExportCategory::getName))
+              .forEach(existing -> existingByName.put(existing.getName(), existing));
+      for (var categoryToImport : batch) {
+        try {
+          CategoryEntity entity;
+          // Check if category already exists by UUID
+          CategoryEntity existing = existingByUuid.get(categoryToImport.getUuid());
+          if (existing != null && batchResult.isOverwriteMode()
+                  && isUnchanged(categoryToImport, categoryMapper.toExportCategory(existing))) {
+            batchResult.incrementUnchangedTotalCount();
+            ids.put(categoryToImport.getUuid(), existing.getId());
+            continue;
+          }
+          // if existing and overwrite mode, we will update it
+          if (existing != null // category with UUID exists
+                  && (!existing.getName().equals(categoryToImport.getName()) // name has changed OR
+                  || !Optional.ofNullable(existing.getDescription()).orElse("")
+                  .equals(categoryToImport.getDescription())) // description has changed
+                  && batchResult.isOverwriteMode()) { // and we are in overwrite mode
+            LOG.info("Updating name and description for existing category with UUID '{}': {} -> {}",
+                    categoryToImport.getUuid(),
+                    existing.getName(),
+                    categoryToImport.getName());
+            entity = existing;
+            // Update the name if it has changed
+            entity.setName(categoryToImport.getName());
+            entity.setDescription(categoryToImport.getDescription());
 
-          result.setUpdatedCategoryCount(result.getUpdatedCategoryCount() + 1);
-          result.setUpdatedTotalCount(result.getUpdatedTotalCount() + 1);
-          continue;
-        }
+            ids.put(categoryToImport.getUuid(), categoryRepository.save(entity).getId());
 
-        // Check if category already exists by name
-        existing = categoryRepository.findByName(categoryToImport.getName());
-        if (existing.isPresent()) { // category with name exists
-          LOG.warn("Category with name '{}' already exists with UUID '{}', but trying to import with UUID '{}'",
-                  categoryToImport.getName(),
-                  existing.get().getUuid(),
-                  categoryToImport.getUuid());
-          if (result.isOverwriteMode()) {
-            // Update the existing category with the new UUID and other details
-            LOG.info("Overwriting existing category ({})", existing.get().getUuid());
-            entity = existing.get();
-            entity.setUuid(categoryToImport.getUuid());
-            entity.setDescription(categoryToImport.getDescription());
-            importedCategories.put(categoryToImport.getUuid(), categoryRepository.save(entity));
-            result.setUpdatedCategoryCount(result.getUpdatedCategoryCount() + 1);
-            continue;
-          } else {
-            // If not in overwrite mode, skip this category
-            // The items has been updated to reference the existing category UUID before
-            result.setSkippedTotalCount(result.getSkippedTotalCount() + 1);
-            importedCategories.put(existing.get().getUuid(), existing.get());
+            batchResult.setUpdatedCategoryCount(batchResult.getUpdatedCategoryCount() + 1);
+            batchResult.incrementUpdatedTotalCount();
             continue;
           }
-        }
 
-        // If not found, create a new category
-        entity = new CategoryEntity();
-
-        entity.setUuid(categoryToImport.getUuid());
-        entity.setDescription(categoryToImport.getDescription());
-        entity.setName(categoryToImport.getName());
-        entity.setDateAdded(categoryToImport.getDateAdded() != null ? categoryToImport.getDateAdded() : LocalDateTime.now());
-        entity.setDateModified(categoryToImport.getDateModified() != null ? categoryToImport.getDateModified() : LocalDateTime.now());
-        importedCategories.put(categoryToImport.getUuid(), categoryRepository.save(entity));
-
-        result.setImportedCategoryCount(result.getImportedCategoryCount() + 1);
-        result.setImportedTotalCount(result.getImportedTotalCount() + 1);
-
-        importedCategories.put(categoryToImport.getUuid(), categoryRepository.save(entity));
-      } catch (Exception e) {
-        result.getErrors().add("Failed to import category " + categoryToImport.getUuid() + ": " + e.getMessage());
-        result.setFailedTotalCount(result.getFailedTotalCount() + 1);
-        if (failOnError) {
-          throw new ImportException(result);
+          // Check if category already exists by name
+          existing = existingByName.get(categoryToImport.getName());
+          if (existing != null) { // category with name exists
+            LOG.warn("Category with name '{}' already exists with UUID '{}', but trying to import with UUID '{}'",
+                    categoryToImport.getName(),
+                    existing.getUuid(),
+                    categoryToImport.getUuid());
+            if (batchResult.isOverwriteMode()) {
+              // Update the existing category with the new UUID and other details
+              LOG.info("Overwriting existing category ({})", existing.getUuid());
+              entity = existing;
+              entity.setUuid(categoryToImport.getUuid());
+              entity.setDescription(categoryToImport.getDescription());
+              ids.put(categoryToImport.getUuid(), categoryRepository.save(entity).getId());
+              batchResult.setUpdatedCategoryCount(batchResult.getUpdatedCategoryCount() + 1);
+              continue;
+            } else {
+              // If not in overwrite mode, skip this category
+              // and let items and templates referencing the imported UUID use the existing category instead
+              batchResult.incrementSkippedTotalCount();
+              ids.put(existing.getUuid(), existing.getId());
+              ids.put(categoryToImport.getUuid(), existing.getId());
+              continue;
+            }
+          }
+
+          // If not found, create a new category
+          entity = new CategoryEntity();
+
+          entity.setUuid(categoryToImport.getUuid());
+          entity.setDescription(categoryToImport.getDescription());
+          entity.setName(categoryToImport.getName());
+          entity.setDateAdded(categoryToImport.getDateAdded() != null ? categoryToImport.getDateAdded() : LocalDateTime.now());
+          entity.setDateModified(categoryToImport.getDateModified() != null ? categoryToImport.getDateModified() : LocalDateTime.now());
+          ids.put(categoryToImport.getUuid(), categoryRepository.save(entity).getId());
+
+          batchResult.setImportedCategoryCount(batchResult.getImportedCategoryCount() + 1);
+          batchResult.incrementImportedTotalCount();
+        } catch (Exception e) {
+          batchResult.getErrors().add("Failed to import category " + categoryToImport.getUuid() + ": " + e.getMessage());
+          batchResult.incrementFailedTotalCount();
+          if (failOnError) {
+            throw new ImportException(batchResult);
+          }
         }
       }
-    }
+      return () -> importedCategories.putAll(ids);
+    });
     return importedCategories;
   }
 
-  private Map<UUID, TagEntity> importTags(List<ExportTag> tagsToImport,
-                                          boolean failOnError,
-                                          ImportResult result) throws ImportException {
-    Map<UUID, TagEntity> map = new HashMap<>();
-    if (tagsToImport == null) {
-      return map;
-    }
-    for (var tagToImport : tagsToImport) {
-      try {
-        Optional<TagEntity> existing = tagRepository.findByUuid(tagToImport.getUuid());
-        TagEntity entity;
-        if (existing.isPresent()) {
-          if (!result.isOverwriteMode()) {
-            result.setSkippedTotalCount(result.getSkippedTotalCount() + 1);
-            map.put(tagToImport.getUuid(), existing.get());
-            continue;
+  private Map<UUID, Integer> importTags(ImportRows<ExportTag> tagsToImport,
+                                        boolean failOnError,
+                                        ImportResult result,
+                                        ImportProgress progress) throws ImportException {
+    Map<UUID, Integer> map = new HashMap<>();
+    inBatches(tagsToImport, TAGS, ExportTag::getUuid, failOnError, result, progress, (batch, batchResult) -> {
+      Map<UUID, Integer> ids = new HashMap<>();
+      Map<UUID, TagEntity> existingTags = byUuid(
+              tagRepository.findAllByUuidIn(keysOf(batch, ExportTag::getUuid)), TagEntity::getUuid);
+      for (var tagToImport : batch) {
+        try {
+          TagEntity entity = existingTags.get(tagToImport.getUuid());
+          if (entity != null) {
+            if (!batchResult.isOverwriteMode()) {
+              batchResult.incrementSkippedTotalCount();
+              ids.put(tagToImport.getUuid(), entity.getId());
+              continue;
+            }
+            if (isUnchanged(tagToImport, tagMapper.toExportTag(entity))) {
+              batchResult.incrementUnchangedTotalCount();
+              ids.put(tagToImport.getUuid(), entity.getId());
+              continue;
+            }
+            batchResult.setUpdatedTagCount(batchResult.getUpdatedTagCount() + 1);
+            batchResult.incrementUpdatedTotalCount();
+          } else {
+            entity = new TagEntity();
+            batchResult.setImportedTagCount(batchResult.getImportedTagCount() + 1);
+            batchResult.incrementImportedTotalCount();
           }
-          entity = existing.get();
-          result.setUpdatedTagCount(result.getUpdatedTagCount() + 1);
-          result.setUpdatedTotalCount(result.getUpdatedTotalCount() + 1);
-        } else {
-          entity = new TagEntity();
-          result.setImportedTagCount(result.getImportedTagCount() + 1);
-          result.setImportedTotalCount(result.getImportedTotalCount() + 1);
-        }
 
-        entity.setUuid(tagToImport.getUuid());
-        entity.setName(tagToImport.getName());
-        entity.setDateAdded(tagToImport.getDateAdded() != null ? tagToImport.getDateAdded() : LocalDateTime.now());
-        entity.setDateModified(tagToImport.getDateModified() != null ? tagToImport.getDateModified() : LocalDateTime.now());
-        map.put(tagToImport.getUuid(), tagRepository.save(entity));
-      } catch (Exception e) {
-        result.getErrors().add("Failed to import tag " + tagToImport.getUuid() + ": " + e.getMessage());
-        result.setFailedTotalCount(result.getFailedTotalCount() + 1);
-        if (failOnError) {
-          throw new ImportException(result);
+          entity.setUuid(tagToImport.getUuid());
+          entity.setName(tagToImport.getName());
+          entity.setDateAdded(tagToImport.getDateAdded() != null ? tagToImport.getDateAdded() : LocalDateTime.now());
+          entity.setDateModified(tagToImport.getDateModified() != null ? tagToImport.getDateModified() : LocalDateTime.now());
+          ids.put(tagToImport.getUuid(), tagRepository.save(entity).getId());
+        } catch (Exception e) {
+          batchResult.getErrors().add("Failed to import tag " + tagToImport.getUuid() + ": " + e.getMessage());
+          batchResult.incrementFailedTotalCount();
+          if (failOnError) {
+            throw new ImportException(batchResult);
+          }
         }
       }
-    }
+      return () -> map.putAll(ids);
+    });
     return map;
   }
 
-  private void importCategoryAttributeTemplates(List<ExportCategoryAttributeTemplate> templatesToImport,
-                                                Map<UUID, CategoryEntity> categories,
+  private void importCategoryAttributeTemplates(ImportRows<ExportCategoryAttributeTemplate> templatesToImport,
+                                                Map<UUID, Integer> categories,
                                                 boolean failOnError,
-                                                ImportResult result) throws ImportException {
-    if (templatesToImport == null) {
-      return;
-    }
-    for (var templateToImport : templatesToImport) {
-      CategoryEntity cat = categories.get(templateToImport.getCategory());
-      if (cat == null) {
-        result.getWarnings().add("Category for template " + templateToImport.getUuid() + " not found");
-        continue;
-      }
-      try {
-        Optional<CategoryAttributeTemplateEntity> existing = categoryAttributeTemplateRepository.findByUuid(templateToImport.getUuid());
-        CategoryAttributeTemplateEntity entity;
-        if (existing.isPresent()) {
-          if (!result.isOverwriteMode()) {
-            result.setSkippedTotalCount(result.getSkippedTotalCount() + 1);
-            continue;
-          }
-          entity = existing.get();
-          result.setUpdatedCategoryAttributeTemplateCount(result.getUpdatedCategoryAttributeTemplateCount() + 1);
-          result.setUpdatedTotalCount(result.getUpdatedTotalCount() + 1);
-        } else {
-          entity = new CategoryAttributeTemplateEntity();
-          result.setImportedCategoryAttributeTemplateCount(result.getImportedCategoryAttributeTemplateCount() + 1);
-          result.setImportedTotalCount(result.getImportedTotalCount() + 1);
+                                                ImportResult result,
+                                                ImportProgress progress) throws ImportException {
+    inBatches(templatesToImport, TEMPLATES, ExportCategoryAttributeTemplate::getUuid, failOnError, result, progress,
+            (batch, batchResult) -> {
+      Map<UUID, CategoryAttributeTemplateEntity> existingTemplates = byUuid(
+              categoryAttributeTemplateRepository.findAllByUuidIn(keysOf(batch, ExportCategoryAttributeTemplate::getUuid)),
+              CategoryAttributeTemplateEntity::getUuid);
+      for (var templateToImport : batch) {
+        Integer categoryId = categories.get(templateToImport.getCategory());
+        if (categoryId == null) {
+          batchResult.getWarnings().add("Category for template " + templateToImport.getUuid() + " not found");
+          continue;
         }
-        entity.setUuid(templateToImport.getUuid());
-        entity.setCategory(cat);
-        entity.setAttributeName(templateToImport.getAttributeName());
-        entity.setDateAdded(templateToImport.getDateAdded() != null ? templateToImport.getDateAdded() : LocalDateTime.now());
-        entity.setDateModified(templateToImport.getDateModified() != null ? templateToImport.getDateModified() : LocalDateTime.now());
-        categoryAttributeTemplateRepository.save(entity);
-      } catch (Exception e) {
-        result.getErrors().add("Failed to import category attribute template " + templateToImport.getUuid() + ": " + e.getMessage());
-        result.setFailedTotalCount(result.getFailedTotalCount() + 1);
-        if (failOnError) {
-          throw new ImportException(result);
+        try {
+          CategoryAttributeTemplateEntity entity = existingTemplates.get(templateToImport.getUuid());
+          if (entity != null) {
+            if (!batchResult.isOverwriteMode()) {
+              batchResult.incrementSkippedTotalCount();
+              continue;
+            }
+            if (isUnchanged(templateToImport, categoryAttributeTemplateMapper.toExportCategoryAttributeTemplate(entity))) {
+              batchResult.incrementUnchangedTotalCount();
+              continue;
+            }
+            batchResult.setUpdatedCategoryAttributeTemplateCount(batchResult.getUpdatedCategoryAttributeTemplateCount() + 1);
+            batchResult.incrementUpdatedTotalCount();
+          } else {
+            entity = new CategoryAttributeTemplateEntity();
+            batchResult.setImportedCategoryAttributeTemplateCount(batchResult.getImportedCategoryAttributeTemplateCount() + 1);
+            batchResult.incrementImportedTotalCount();
+          }
+          entity.setUuid(templateToImport.getUuid());
+          entity.setCategory(entityManager.getReference(CategoryEntity.class, categoryId));
+          entity.setAttributeName(templateToImport.getAttributeName());
+          entity.setDateAdded(templateToImport.getDateAdded() != null ? templateToImport.getDateAdded() : LocalDateTime.now());
+          entity.setDateModified(templateToImport.getDateModified() != null ? templateToImport.getDateModified() : LocalDateTime.now());
+          categoryAttributeTemplateRepository.save(entity);
+        } catch (Exception e) {
+          batchResult.getErrors().add("Failed to import category attribute template " + templateToImport.getUuid() + ": " + e.getMessage());
+          batchResult.incrementFailedTotalCount();
+          if (failOnError) {
+            throw new ImportException(batchResult);
+          }
         }
       }
-    }
+      return () -> { };
+    });
   }
 
-  private Map<UUID, ItemEntity> importItems(List<ExportItem> itemsToImport,
-                                            Map<UUID, CategoryEntity> categories,
-                                            Map<UUID, StorageEntity> storages,
-                                            Map<UUID, TagEntity> tags,
-                                            Map<UUID, ImageEntity> images,
-                                            boolean failOnError,
-                                            ImportResult result) throws ImportException {
-    Map<UUID, ItemEntity> map = new HashMap<>();
-    if (itemsToImport == null) {
-      return map;
-    }
-    for (var itemToImport : itemsToImport) {
-      try {
-        Optional<ItemEntity> existing = itemRepository.findByUuid(itemToImport.getUuid());
-        ItemEntity entity;
-        if (existing.isPresent()) {
-          if (!result.isOverwriteMode()) {
-            result.setSkippedTotalCount(result.getSkippedTotalCount() + 1);
-            map.put(itemToImport.getUuid(), existing.get());
-            continue;
+  private Map<UUID, Integer> importItems(ImportRows<ExportItem> itemsToImport,
+                                         Map<UUID, Integer> categories,
+                                         Map<UUID, Integer> storages,
+                                         Map<UUID, Integer> tags,
+                                         Map<UUID, Integer> images,
+                                         Set<UUID> unchangedItems,
+                                         boolean failOnError,
+                                         ImportResult result,
+                                         ImportProgress progress) throws ImportException {
+    Map<UUID, Integer> map = new HashMap<>();
+    List<Object[]> imageOwners = new ArrayList<>();
+    List<Object[]> receiptOwners = new ArrayList<>();
+    List<Integer> retaggedItems = new ArrayList<>();
+    List<Object[]> itemTags = new ArrayList<>();
+    inBatches(itemsToImport, ITEMS, ExportItem::getUuid, failOnError, result, progress, (batch, batchResult) -> {
+      Map<UUID, Integer> ids = new HashMap<>();
+      Set<UUID> unchanged = new HashSet<>();
+      List<Object[]> owners = new ArrayList<>();
+      List<Object[]> receipts = new ArrayList<>();
+      List<Integer> retagged = new ArrayList<>();
+      List<Object[]> links = new ArrayList<>();
+      Map<UUID, ItemEntity> existingItems = byUuid(
+              itemRepository.findAllByUuidIn(keysOf(batch, ExportItem::getUuid)), ItemEntity::getUuid);
+      for (var itemToImport : batch) {
+        try {
+          ItemEntity entity = existingItems.get(itemToImport.getUuid());
+          boolean isNew = entity == null;
+          if (!isNew) {
+            if (!batchResult.isOverwriteMode()) {
+              batchResult.incrementSkippedTotalCount();
+              ids.put(itemToImport.getUuid(), entity.getId());
+              continue;
+            }
+            if (isUnchanged(itemToImport, itemMapper.toExportItem(entity))) {
+              batchResult.incrementUnchangedTotalCount();
+              ids.put(itemToImport.getUuid(), entity.getId());
+              unchanged.add(itemToImport.getUuid());
+              continue;
+            }
+            batchResult.setUpdatedItemCount(batchResult.getUpdatedItemCount() + 1);
+            batchResult.incrementUpdatedTotalCount();
+          } else {
+            entity = new ItemEntity();
+            batchResult.setImportedItemCount(batchResult.getImportedItemCount() + 1);
+            batchResult.incrementImportedTotalCount();
           }
-          entity = existing.get();
-          result.setUpdatedItemCount(result.getUpdatedItemCount() + 1);
-          result.setUpdatedTotalCount(result.getUpdatedTotalCount() + 1);
-        } else {
-          entity = new ItemEntity();
-          result.setImportedItemCount(result.getImportedItemCount() + 1);
-          result.setImportedTotalCount(result.getImportedTotalCount() + 1);
-        }
 
-        entity.setUuid(itemToImport.getUuid());
-        entity.setName(itemToImport.getName());
-        entity.setDescription(itemToImport.getDescription());
-        entity.setPurchaseDate(itemToImport.getPurchaseDate());
-        entity.setPurchasePrice(itemToImport.getPurchasePrice());
-        entity.setQuantity(itemToImport.getQuantity());
-        entity.setDateAdded(itemToImport.getDateAdded() != null ? itemToImport.getDateAdded() : LocalDateTime.now());
-        entity.setDateModified(itemToImport.getDateModified() != null ? itemToImport.getDateModified() : LocalDateTime.now());
-        if (itemToImport.getCategory() != null) {
-          entity.setCategory(categories.get(itemToImport.getCategory()));
-        }
-        if (itemToImport.getStorage() != null) {
-          entity.setStorage(storages.get(itemToImport.getStorage()));
-        }
-        if (itemToImport.getTags() != null) {
-          Set<TagEntity> tagSet = new HashSet<>();
-          for (UUID uuid : itemToImport.getTags()) {
-            TagEntity t = tags.get(uuid);
-            if (t != null) {
-              tagSet.add(t);
+          entity.setUuid(itemToImport.getUuid());
+          entity.setName(itemToImport.getName());
+          entity.setDescription(itemToImport.getDescription());
+          entity.setPurchaseDate(itemToImport.getPurchaseDate());
+          entity.setPurchasePrice(itemToImport.getPurchasePrice());
+          entity.setQuantity(itemToImport.getQuantity());
+          if (itemToImport.getCustomAttributes() != null) {
+            entity.setCustomAttributes(itemToImport.getCustomAttributes());
+          }
+          entity.setDateAdded(itemToImport.getDateAdded() != null ? itemToImport.getDateAdded() : LocalDateTime.now());
+          entity.setDateModified(itemToImport.getDateModified() != null ? itemToImport.getDateModified() : LocalDateTime.now());
+          if (itemToImport.getCategory() != null) {
+            Integer categoryId = categories.get(itemToImport.getCategory());
+            entity.setCategory(categoryId != null ? entityManager.getReference(CategoryEntity.class, categoryId) : null);
+          }
+          if (itemToImport.getStorage() != null) {
+            Integer storageId = storages.get(itemToImport.getStorage());
+            entity.setStorage(storageId != null ? entityManager.getReference(StorageEntity.class, storageId) : null);
+          }
+          Integer id = itemRepository.save(entity).getId();
+          ids.put(itemToImport.getUuid(), id);
+          if (itemToImport.getTags() != null) {
+            if (!isNew) {
+              retagged.add(id);
             }
+            itemToImport.getTags().stream()
+                    .map(tags::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .forEach(tagId -> links.add(new Object[]{id, tagId}));
           }
-          entity.setTags(tagSet);
-        }
-        ItemEntity saved = itemRepository.save(entity);
-        map.put(itemToImport.getUuid(), saved);
-        if (itemToImport.getImages() != null) {
-          for (UUID imgUuid : itemToImport.getImages()) {
-            ImageEntity img = images.get(imgUuid);
-            if (img != null) {
-              img.setItem(saved);
-              imageRepository.save(img);
+          if (itemToImport.getImages() != null) {
+            for (UUID imgUuid : itemToImport.getImages()) {
+              Integer imageId = images.get(imgUuid);
+              if (imageId != null) {
+                owners.add(new Object[]{id, imageId});
+              }
             }
           }
-        }
-      } catch (Exception e) {
-        result.getErrors().add("Failed to import item " + itemToImport.getUuid() + ": " + e.getMessage());
-        result.setFailedTotalCount(result.getFailedTotalCount() + 1);
-        if (failOnError) {
-          throw new ImportException(result);
+          if (itemToImport.getReceipts() != null) {
+            for (UUID imgUuid : itemToImport.getReceipts()) {
+              Integer imageId = images.get(imgUuid);
+              if (imageId != null) {
+                receipts.add(new Object[]{id, imageId});
+              }
+            }
+          }
+        } catch (Exception e) {
+          batchResult.getErrors().add("Failed to import item " + itemToImport.getUuid() + ": " + e.getMessage());
+          batchResult.incrementFailedTotalCount();
+          if (failOnError) {
+            throw new ImportException(batchResult);
+          }
         }
       }
-    }
+      return () -> {
+        map.putAll(ids);
+        unchangedItems.addAll(unchanged);
+        imageOwners.addAll(owners);
+        receiptOwners.addAll(receipts);
+        retaggedItems.addAll(retagged);
+        itemTags.addAll(links);
+      };
+    });
+    // tags of overwritten items are replaced, not merged
+    deleteWhereIdIn("DELETE FROM item_tags WHERE item_id IN (:ids)", retaggedItems);
+    batchUpdate("INSERT INTO item_tags (item_id, tag_id) VALUES (?, ?)", itemTags);
+    // the items were indexed when their batch committed, before their tags were written
+    Set<Integer> taggedItems = new HashSet<>(retaggedItems);
+    itemTags.forEach(link -> taggedItems.add((Integer) link[0]));
+    itemSearchListener.changed(taggedItems);
+    batchUpdate("UPDATE images SET item_id = ? WHERE id = ?", imageOwners);
+    batchUpdate("UPDATE images SET receipt_item_id = ? WHERE id = ?", receiptOwners);
     return map;
   }
 
-  private void linkRelatedItems(List<ExportItem> items, Map<UUID, ItemEntity> itemToUuid) {
-    if (items == null) {
-      return;
-    }
+  private void linkRelatedItems(ImportRows<ExportItem> items, Map<UUID, Integer> itemToUuid, Set<UUID> unchangedItems) {
+    List<Integer> relinkedItems = new ArrayList<>();
+    List<Object[]> relations = new ArrayList<>();
     for (ExportItem exp : items) {
-      if (exp.getRelatedItems() == null) {
+      // the version hash covers the relations, so those of unchanged items are in place already
+      if (exp.getRelatedItems() == null || unchangedItems.contains(exp.getUuid())) {
         continue;
       }
-      ItemEntity entity = itemToUuid.get(exp.getUuid());
-      if (entity == null) {
+      Integer id = itemToUuid.get(exp.getUuid());
+      if (id == null) {
         continue;
       }
-      Set<ItemEntity> related = new HashSet<>();
-      for (UUID uuid : exp.getRelatedItems()) {
-        ItemEntity rel = itemToUuid.get(uuid);
-        if (rel != null) {
-          related.add(rel);
+      relinkedItems.add(id);
+      exp.getRelatedItems().stream()
+              .map(itemToUuid::get)
+              .filter(Objects::nonNull)
+              .distinct()
+              .forEach(relatedId -> relations.add(new Object[]{id, relatedId}));
+    }
+    deleteWhereIdIn("DELETE FROM item_related WHERE item_id IN (:ids)", relinkedItems);
+    batchUpdate("INSERT INTO item_related (item_id, related_item_id) VALUES (?, ?)", relations);
+  }
+
+  /**
+   * Deletes the entities listed as deleted in a delta archive. Each deletion runs in a transaction of its own, so one
+   * that is blocked by remaining references does not undo the others.
+   */
+  private void applyTombstones(ImportRows<ExportTombstone> tombstones,
+                               boolean failOnError,
+                               ImportResult result,
+                               ImportProgress progress) throws ImportException {
+    if (tombstones.size() == 0) {
+      return;
+    }
+    progress.beginPhase(DELETED);
+    try {
+      for (ExportScope type : DELETION_ORDER) {
+        for (var tombstone : tombstones) {
+          if (tombstone.getType() != type) {
+            continue;
+          }
+          progress.checkCancelled();
+          try {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> deleteByUuid(type, tombstone.getUuid())))) {
+              result.incrementDeletedTotalCount();
+            }
+          } catch (RuntimeException e) {
+            result.getErrors().add("Failed to delete " + type + " " + tombstone.getUuid() + ": " + e.getMessage());
+            result.incrementFailedTotalCount();
+            if (failOnError) {
+              throw new ImportException(result);
+            }
+          }
+          progress.advance(DELETED, 1);
         }
       }
-      entity.setRelatedItems(related);
-      itemRepository.save(entity);
+    } finally {
+      progress.endPhase(DELETED);
+    }
+  }
+
+  /**
+   * @return whether the entity existed; tombstones of rows never imported here are simply ignored
+   */
+  private boolean deleteByUuid(ExportScope type, UUID uuid) {
+    Optional<?> entity = switch (type) {
+      case ITEMS -> itemRepository.findByUuid(uuid);
+      case CATEGORY_ATTRIBUTE_TEMPLATES -> categoryAttributeTemplateRepository.findByUuid(uuid);
+      case STORAGES -> storageRepository.findByUuid(uuid);
+      case ROOMS -> roomRepository.findByUuid(uuid);
+      case CATEGORIES -> categoryRepository.findByUuid(uuid);
+      case TAGS -> tagRepository.findByUuid(uuid);
+      case IMAGES -> imageRepository.findByUuid(uuid);
+      case ALL -> Optional.empty();
+    };
+    entity.ifPresent(entityManager::remove);
+    return entity.isPresent();
+  }
+
+  /**
+   * Whether the stored row equals the archive row. Archive rows carry their version hash; rows without one (older
+   * archives) are hashed here.
+   */
+  private boolean isUnchanged(VersionedExport imported, VersionedExport stored) {
+    String expected = imported.getVersionHash() != null ? imported.getVersionHash() : versionHasher.hash(imported);
+    return expected.equals(versionHasher.hash(stored));
+  }
+
+  private Map<UUID, Integer> withStoredImages(Map<UUID, Integer> imported, Stream<UUID> references) {
+    return withStored(imported, references, imageRepository::findAllByUuidIn, ImageEntity::getUuid, ImageEntity::getId);
+  }
+
+  private Map<UUID, Integer> withStoredRooms(Map<UUID, Integer> imported, Stream<UUID> references) {
+    return withStored(imported, references, roomRepository::findAllByUuidIn, RoomEntity::getUuid, RoomEntity::getId);
+  }
+
+  private Map<UUID, Integer> withStoredStorages(Map<UUID, Integer> imported, Stream<UUID> references) {
+    return withStored(imported, references, storageRepository::findAllByUuidIn, StorageEntity::getUuid, StorageEntity::getId);
+  }
+
+  private Map<UUID, Integer> withStoredCategories(Map<UUID, Integer> imported, Stream<UUID> references) {
+    return withStored(imported, references, categoryRepository::findAllByUuidIn, CategoryEntity::getUuid, CategoryEntity::getId);
+  }
+
+  private Map<UUID, Integer> withStoredTags(Map<UUID, Integer> imported, Stream<UUID> references) {
+    return withStored(imported, references, tagRepository::findAllByUuidIn, TagEntity::getUuid, TagEntity::getId);
+  }
+
+  private Map<UUID, Integer> withStoredItems(Map<UUID, Integer> imported, Stream<UUID> references) {
+    return withStored(imported, references, itemRepository::findAllByUuidIn, ItemEntity::getUuid, ItemEntity::getId);
+  }
+
+  /**
+   * Ids for the given references: those imported by an earlier phase, plus rows already stored for references
+   * outside the archive. A delta archive only carries changed rows, so most of its references are of that kind.
+   */
+  private <E> Map<UUID, Integer> withStored(Map<UUID, Integer> imported,
+                                            Stream<UUID> references,
+                                            Function<Collection<UUID>, List<E>> finder,
+                                            Function<E, UUID> uuidOf,
+                                            Function<E, Integer> idOf) {
+    List<UUID> missing = references
+            .filter(Objects::nonNull)
+            .filter(uuid -> !imported.containsKey(uuid))
+            .distinct()
+            .toList();
+    if (missing.isEmpty()) {
+      return imported;
     }
+    Map<UUID, Integer> ids = new HashMap<>(imported);
+    for (var batch : batches(missing)) {
+      finder.apply(batch).forEach(entity -> ids.put(uuidOf.apply(entity), idOf.apply(entity)));
+    }
+    return ids;
+  }
+
+  private static <T> Stream<T> streamOf(Collection<T> rows) {
+    return rows != null ? rows.stream() : Stream.empty();
+  }
+
+  private static boolean hasSameContent(ImageEntity stored, ExportImage imported) {
+    return stored.getContentHash() != null && stored.getContentHash().equals(imported.getContentHash());
+  }
+
+  private static ImageService.StoredBlob awaitBlob(CompletableFuture<ImageService.StoredBlob> blob) {
+    if (blob == null) {
+      // nothing was read, the stored content is kept
+      return null;
+    }
+    try {
+      return blob.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException cause) {
+        throw new IllegalStateException(cause.getCause().getMessage(), cause.getCause());
+      }
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Phase<T> {
+    T run() throws ImportException;
+  }
+
+  /**
+   * Runs the phase on the executor once all dependencies have completed. If any phase fails, the import is aborted:
+   * dependent phases never start and the others stop before their next batch.
+   */
+  private <T> CompletableFuture<T> phase(Executor executor,
+                                         ImportProgress progress,
+                                         Phase<T> phase,
+                                         CompletableFuture<?>... dependencies) {
+    return CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> {
+      try {
+        return phase.run();
+      } catch (ImportException e) {
+        progress.abort();
+        throw new CompletionException(e);
+      } catch (RuntimeException e) {
+        progress.abort();
+        throw e;
+      }
+    }, executor);
+  }
+
+  /**
+   * Waits for all phases and rethrows the first failure.
+   */
+  private void awaitPhases(CompletableFuture<?>... phases) throws ImportException {
+    try {
+      CompletableFuture.allOf(phases).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ImportException importException) {
+        throw importException;
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
+  @FunctionalInterface
+  private interface BatchWork<T> {
+    /**
+     * Writes the rows, counting into the given result of the batch, and returns what to collect from them once the
+     * batch has committed.
+     */
+    Runnable accept(List<T> batch, ImportResult batchResult) throws ImportException;
+  }
+
+  /**
+   * Runs the given work for consecutive batches of the rows, each batch in a transaction of its own (or as part of
+   * the caller's transaction). Cancellation is checked before every batch.
+   * <p>
+   * If writing a batch fails and {@code failOnError} is off, its rows are retried one at a time, each in a new
+   * transaction, so only the rows that fail again are lost. Inside a caller's transaction a failed batch cannot be
+   * undone on its own: the caller's transaction is marked rollback-only and the import stops.
+   */
+  private <T> void inBatches(ImportRows<T> rows,
+                             String phase,
+                             Function<T, UUID> uuid,
+                             boolean failOnError,
+                             ImportResult result,
+                             ImportProgress progress,
+                             BatchWork<T> work) throws ImportException {
+    progress.beginPhase(phase);
+    try {
+      for (var batch : rows.batches(batchSize)) {
+        progress.checkCancelled();
+        try {
+          runBatch(batch, result, work);
+        } catch (RuntimeException e) {
+          if (failOnError || TransactionSynchronizationManager.isActualTransactionActive()) {
+            result.getErrors().add("Failed to import " + phase + ": " + e.getMessage());
+            // every row of the batch was rolled back
+            batch.forEach(row -> result.incrementFailedTotalCount());
+            throw new ImportException(result);
+          }
+          LOG.warn("Batch of {} {} failed, importing its rows one at a time: {}", batch.size(), phase, e.getMessage());
+          for (T row : batch) {
+            try {
+              runBatch(List.of(row), result, work);
+            } catch (RuntimeException rowFailure) {
+              result.getErrors().add("Failed to import " + phase + " " + uuid.apply(row) + ": " + rowFailure.getMessage());
+              result.incrementFailedTotalCount();
+            }
+          }
+        }
+        progress.advance(phase, batch.size());
+      }
+    } finally {
+      progress.endPhase(phase);
+    }
+  }
+
+  /**
+   * Runs the work for one batch in a transaction. Its counts and collected ids take effect only once it has
+   * committed; a batch that fails is rolled back as a whole and only its errors are kept.
+   *
+   * @throws RuntimeException if writing the batch failed
+   */
+  private <T> void runBatch(List<T> batch, ImportResult result, BatchWork<T> work) throws ImportException {
+    ImportResult batchResult = new ImportResult();
+    batchResult.setOverwriteMode(result.isOverwriteMode());
+    batchResult.setErrors(new ArrayList<>());
+    batchResult.setWarnings(new ArrayList<>());
+    TransactionStatus transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+    Runnable collect;
+    try {
+      collect = work.accept(batch, batchResult);
+      // writes the pending inserts and updates and detaches the entities, so the persistence context does not grow
+      // with the size of the archive
+      entityManager.flush();
+      entityManager.clear();
+    } catch (ImportException e) {
+      transactionManager.rollback(transaction);
+      result.addErrors(batchResult);
+      throw e;
+    } catch (RuntimeException e) {
+      transactionManager.rollback(transaction);
+      throw e;
+    }
+    transactionManager.commit(transaction);
+    result.add(batchResult);
+    collect.run();
+  }
+
+  private void batchUpdate(String sql, List<Object[]> args) {
+    for (var batch : batches(args)) {
+      transactionTemplate.executeWithoutResult(status -> jdbcTemplate.getJdbcTemplate().batchUpdate(sql, batch));
+    }
+  }
+
+  private void deleteWhereIdIn(String sql, List<Integer> ids) {
+    for (var batch : batches(ids)) {
+      transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(sql, Map.of("ids", batch)));
+    }
+  }
+
+  private <T> List<List<T>> batches(List<T> rows) {
+    List<List<T>> result = new ArrayList<>();
+    for (int i = 0; i < rows.size(); i += batchSize) {
+      result.add(rows.subList(i, Math.min(i + batchSize, rows.size())));
+    }
+    return result;
+  }
+
+  private static <T, K> List<K> keysOf(List<T> rows, Function<T, K> key) {
+    return rows.stream().map(key).filter(Objects::nonNull).toList();
+  }
+
+  private static <E> Map<UUID, E> byUuid(List<E> entities, Function<E, UUID> uuid) {
+    Map<UUID, E> map = new HashMap<>();
+    for (E entity : entities) {
+      map.put(uuid.apply(entity), entity);
+    }
+    return map;
   }
 }
@@ -0,0 +1,75 @@
+package de.iske.kistogramm.service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An import archive being uploaded in chunks. Like {@link ImportJob} it lives in memory only; the chunks received so
+ * far are in a temporary file.
+ */
+class ImportUpload {
+
+  private final UUID id = UUID.randomUUID();
+  private final Path file;
+  // declared by the client, null if unknown
+  private final Long size;
+  private final LocalDateTime dateCreated = LocalDateTime.now();
+
+  // guarded by the upload's monitor
+  private long received;
+  private LocalDateTime dateUpdated = dateCreated;
+  private boolean closed;
+  // set while the file is written or read outside the monitor, so other requests and the expiry leave it alone
+  private boolean busy;
+
+  ImportUpload(Path file, Long size) {
+    this.file = file;
+    this.size = size;
+  }
+
+  UUID getId() {
+    return id;
+  }
+
+  Path getFile() {
+    return file;
+  }
+
+  Long getSize() {
+    return size;
+  }
+
+  LocalDateTime getDateCreated() {
+    return dateCreated;
+  }
+
+  synchronized long getReceived() {
+    return received;
+  }
+
+  synchronized LocalDateTime getDateUpdated() {
+    return dateUpdated;
+  }
+
+  synchronized void received(long bytes) {
+    this.received += bytes;
+    this.dateUpdated = LocalDateTime.now();
+  }
+
+  synchronized boolean isClosed() {
+    return closed;
+  }
+
+  synchronized void close() {
+    this.closed = true;
+  }
+
+  synchronized boolean isBusy() {
+    return busy;
+  }
+
+  synchronized void setBusy(boolean busy) {
+    this.busy = busy;
+  }
+}
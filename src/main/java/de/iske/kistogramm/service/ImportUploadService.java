@@ -0,0 +1,261 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.ImportJobStatus;
+import de.iske.kistogramm.dto.ImportUploadStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives import archives in chunks, so large archives neither hit the multipart limit nor have to arrive in one
+ * piece. Chunks are appended to a temporary file in order; a chunk that fails its checksum or breaks off is cut off
+ * again, so the file always ends at {@link ImportUploadStatus#getReceived()} and the client resumes from there.
+ * Completing the upload hands the file to {@link ImportJobService} without copying it.
+ */
+@Service
+public class ImportUploadService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ImportUploadService.class);
+
+  private final ImportJobService importJobService;
+  private final Duration expiry;
+  private final long maxChunkSize;
+  private final Map<UUID, ImportUpload> uploads = new ConcurrentHashMap<>();
+
+  public ImportUploadService(ImportJobService importJobService,
+                             @Value("${import.upload-expiry:PT24H}") Duration expiry,
+                             @Value("${import.upload-max-chunk-size:100MB}") DataSize maxChunkSize) {
+    this.importJobService = importJobService;
+    this.expiry = expiry;
+    this.maxChunkSize = maxChunkSize.toBytes();
+  }
+
+  public ImportUploadStatus create(Long size) throws IOException {
+    if (size != null && size <= 0) {
+      throw new IllegalArgumentException("Upload size must be positive");
+    }
+    removeExpiredUploads();
+    ImportUpload upload = new ImportUpload(Files.createTempFile("kistogramm-upload-", ".zip"), size);
+    uploads.put(upload.getId(), upload);
+    LOG.info("Import upload {} created ({} bytes announced)", upload.getId(), size);
+    return toStatus(upload);
+  }
+
+  public ImportUploadStatus getUpload(UUID uploadId) {
+    return toStatus(findUpload(uploadId));
+  }
+
+  /**
+   * Appends a chunk. Its offset has to match the bytes received so far; if a SHA-256 is given, the chunk is only
+   * kept when it matches. The chunk arrives at the client's pace, so it is written without holding the upload's
+   * monitor; a second request for the same upload meanwhile is rejected.
+   */
+  public ImportUploadStatus appendChunk(UUID uploadId, long offset, String sha256, InputStream body)
+          throws IOException {
+    ImportUpload upload = findUpload(uploadId);
+    synchronized (upload) {
+      requireIdle(upload);
+      if (offset != upload.getReceived()) {
+        throw new ResponseStatusException(HttpStatus.CONFLICT,
+                "Chunk offset " + offset + " does not match received bytes " + upload.getReceived());
+      }
+      upload.setBusy(true);
+    }
+    long written = -1;
+    try {
+      written = writeChunk(upload, offset, sha256, body);
+    } finally {
+      synchronized (upload) {
+        if (written >= 0) {
+          upload.received(written);
+        }
+        upload.setBusy(false);
+      }
+    }
+    return toStatus(upload);
+  }
+
+  /**
+   * Appends the chunk to the file and cuts it off again unless it is complete and valid. The body is read no
+   * further than the bytes still missing from the announced size, or {@code import.upload-max-chunk-size} if no
+   * size was announced, so an oversized chunk is rejected before it reaches the disk in full.
+   *
+   * @return the number of bytes kept
+   */
+  private long writeChunk(ImportUpload upload, long offset, String sha256, InputStream body) throws IOException {
+    long limit = upload.getSize() != null ? upload.getSize() - offset : maxChunkSize;
+    MessageDigest digest = sha256();
+    long written = 0;
+    boolean kept = false;
+    try {
+      try (OutputStream out = Files.newOutputStream(upload.getFile(), StandardOpenOption.APPEND);
+           InputStream in = new DigestInputStream(body, digest)) {
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          if (written + read > limit) {
+            throw new IllegalArgumentException(upload.getSize() != null
+                    ? "Chunk exceeds the announced upload size of " + upload.getSize() + " bytes"
+                    : "Chunk exceeds the maximum chunk size of " + maxChunkSize + " bytes");
+          }
+          out.write(buffer, 0, read);
+          written += read;
+        }
+      }
+      if (sha256 != null && !sha256.equalsIgnoreCase(HexFormat.of().formatHex(digest.digest()))) {
+        throw new IllegalArgumentException("Checksum mismatch for chunk at offset " + offset);
+      }
+      kept = true;
+      return written;
+    } finally {
+      if (!kept) {
+        truncate(upload.getFile(), offset);
+      }
+    }
+  }
+
+  /**
+   * Finishes the upload and queues its import. If a SHA-256 is given, it has to match the whole archive. When the
+   * import queue is full the upload stays open, so completing can simply be retried.
+   */
+  public ImportJobStatus complete(UUID uploadId, String sha256, boolean overwrite, boolean failOnError)
+          throws IOException {
+    ImportUpload upload = findUpload(uploadId);
+    synchronized (upload) {
+      requireIdle(upload);
+      if (upload.getSize() != null && upload.getReceived() != upload.getSize()) {
+        throw new ResponseStatusException(HttpStatus.CONFLICT,
+                "Upload incomplete: " + upload.getReceived() + " of " + upload.getSize() + " bytes received");
+      }
+      if (upload.getReceived() == 0) {
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is empty");
+      }
+      upload.setBusy(true);
+    }
+    try {
+      // reading the whole archive takes a while, so it happens outside the monitor as well
+      if (sha256 != null && !sha256.equalsIgnoreCase(checksumOf(upload.getFile()))) {
+        throw new IllegalArgumentException("Checksum mismatch for upload " + uploadId);
+      }
+      synchronized (upload) {
+        ImportJobStatus job = importJobService.submit(upload.getFile(), overwrite, failOnError);
+        upload.close();
+        uploads.remove(uploadId);
+        LOG.info("Import upload {} completed as import job {}", uploadId, job.getJobId());
+        return job;
+      }
+    } finally {
+      upload.setBusy(false);
+    }
+  }
+
+  public void abort(UUID uploadId) throws IOException {
+    ImportUpload upload = findUpload(uploadId);
+    synchronized (upload) {
+      requireIdle(upload);
+      discard(upload);
+    }
+    LOG.info("Import upload {} aborted", uploadId);
+  }
+
+  /**
+   * Drops uploads without a new chunk for longer than {@code import.upload-expiry}, together with their files.
+   * Uploads that are being written or checked right now are left for the next run.
+   */
+  @Scheduled(fixedDelayString = "${import.upload-cleanup-interval:PT1H}")
+  public void removeExpiredUploads() {
+    LocalDateTime cutoff = LocalDateTime.now().minus(expiry);
+    for (ImportUpload upload : uploads.values()) {
+      synchronized (upload) {
+        if (!upload.isClosed() && !upload.isBusy() && upload.getDateUpdated().isBefore(cutoff)) {
+          try {
+            discard(upload);
+            LOG.info("Import upload {} expired", upload.getId());
+          } catch (IOException e) {
+            LOG.warn("Could not delete expired upload {}: {}", upload.getFile(), e.getMessage());
+          }
+        }
+      }
+    }
+  }
+
+  private void discard(ImportUpload upload) throws IOException {
+    upload.close();
+    uploads.remove(upload.getId());
+    Files.deleteIfExists(upload.getFile());
+  }
+
+  private ImportUpload findUpload(UUID uploadId) {
+    ImportUpload upload = uploads.get(uploadId);
+    if (upload == null) {
+      throw new NoSuchElementException("Import upload not found: " + uploadId);
+    }
+    return upload;
+  }
+
+  private static void requireIdle(ImportUpload upload) {
+    // another request may have completed or aborted the upload while this one waited for it
+    if (upload.isClosed()) {
+      throw new NoSuchElementException("Import upload not found: " + upload.getId());
+    }
+    if (upload.isBusy()) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT,
+              "Import upload " + upload.getId() + " is busy with another request");
+    }
+  }
+
+  private static void truncate(Path file, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(size);
+    }
+  }
+
+  private static String checksumOf(Path file) throws IOException {
+    MessageDigest digest = sha256();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private static ImportUploadStatus toStatus(ImportUpload upload) {
+    ImportUploadStatus status = new ImportUploadStatus();
+    status.setUploadId(upload.getId());
+    status.setSize(upload.getSize());
+    status.setReceived(upload.getReceived());
+    status.setDateCreated(upload.getDateCreated());
+    status.setDateUpdated(upload.getDateUpdated());
+    return status;
+  }
+}
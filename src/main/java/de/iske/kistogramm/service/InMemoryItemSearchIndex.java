@@ -0,0 +1,293 @@
+package de.iske.kistogramm.service;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index held in memory, for databases without full-text support (H2 in development and tests). Every
+ * word maps to the ids of the items containing it, each with the most important field it occurs in; the score of
+ * an item is the sum of the field weights of the query terms, with the weights {@code ts_rank} uses by default.
+ * Rankings therefore resemble those of {@link PostgresItemSearchIndex} without being identical.
+ */
+public class InMemoryItemSearchIndex implements ItemSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryItemSearchIndex.class);
+    private static final int CHUNK_SIZE = 1000;
+
+    static final int NAME = 0;
+    static final int TAGS = 1;
+    static final int DESCRIPTION = 2;
+    static final int ATTRIBUTES = 3;
+    private static final float[] WEIGHTS = {1.0f, 0.4f, 0.2f, 0.1f};
+
+    // null in JMH benchmarks, which fill the index through put()
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    // words of each indexed item, to find its postings again on update and removal
+    private final Map<Integer, String[]> words = new HashMap<>();
+    private int maxId;
+
+    public InMemoryItemSearchIndex(NamedParameterJdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        if (transactionManager != null) {
+            // updates run after the commit of the changing transaction, which must not be joined any more
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.transactionTemplate.setReadOnly(true);
+        } else {
+            this.transactionTemplate = null;
+        }
+    }
+
+    @Override
+    public void update(Collection<Integer> itemIds) {
+        for (List<Integer> chunk : Lists.partition(List.copyOf(itemIds), CHUNK_SIZE)) {
+            Map<Integer, Document> documents = transactionTemplate.execute(status -> load(chunk));
+            lock.writeLock().lock();
+            try {
+                for (Integer id : chunk) {
+                    Document document = documents.get(id);
+                    if (document == null) {
+                        remove(id);
+                    } else {
+                        put(id, document);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        List<Integer> ids = jdbcTemplate.getJdbcTemplate().queryForList("SELECT id FROM items ORDER BY id", Integer.class);
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            words.clear();
+            maxId = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long start = System.nanoTime();
+        update(ids);
+        log.info("Search index: indexed {} item(s) in memory in {} ms", ids.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public List<Match> search(List<String> terms, int limit) {
+        if (terms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            float[] scores = new float[maxId + 1];
+            float[] termScores = new float[maxId + 1];
+            // number of terms an item matched so far; only items matching all previous terms are still candidates
+            int[] matched = new int[maxId + 1];
+            int[] candidates = new int[0];
+            int candidateCount = 0;
+            for (int term = 0; term < terms.size(); term++) {
+                String prefix = terms.get(term);
+                int[] touched = new int[16];
+                int touchedCount = 0;
+                for (Postings list : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                    for (int i = 0; i < list.size; i++) {
+                        int id = list.entries[i] >>> 2;
+                        if (matched[id] != term) {
+                            continue;
+                        }
+                        float weight = WEIGHTS[list.entries[i] & 3];
+                        if (termScores[id] == 0) {
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, touchedCount * 2);
+                            }
+                            touched[touchedCount++] = id;
+                        }
+                        termScores[id] = Math.max(termScores[id], weight);
+                    }
+                }
+                for (int i = 0; i < touchedCount; i++) {
+                    int id = touched[i];
+                    scores[id] += termScores[id];
+                    termScores[id] = 0;
+                    matched[id]++;
+                }
+                candidates = touched;
+                candidateCount = touchedCount;
+                if (candidateCount == 0) {
+                    return List.of();
+                }
+            }
+            return best(candidates, candidateCount, scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Match> best(int[] candidates, int count, float[] scores, int limit) {
+        Comparator<Match> order = Comparator.comparingDouble(Match::score).reversed()
+                .thenComparingInt(Match::itemId);
+        // worst of the best matches on top, so it can be replaced by a better one
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, order.reversed());
+        for (int i = 0; i < count; i++) {
+            best.add(new Match(candidates[i], scores[candidates[i]]));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Match> result = new ArrayList<>(best);
+        result.sort(order);
+        return result;
+    }
+
+    /**
+     * Indexes an item under the words of its fields; must be called with the write lock held or before the index
+     * is shared.
+     */
+    void put(int id, Document document) {
+        remove(id);
+        // first field wins, the fields being listed from the most to the least important
+        Map<String, Integer> fields = new LinkedHashMap<>();
+        addWords(fields, Collections.singletonList(document.name()), NAME);
+        addWords(fields, document.tags(), TAGS);
+        addWords(fields, Collections.singletonList(document.description()), DESCRIPTION);
+        addWords(fields, document.attributes(), ATTRIBUTES);
+        String[] itemWords = new String[fields.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> field : fields.entrySet()) {
+            Map.Entry<String, Postings> entry = postings.ceilingEntry(field.getKey());
+            if (entry == null || !entry.getKey().equals(field.getKey())) {
+                postings.put(field.getKey(), new Postings());
+                entry = postings.ceilingEntry(field.getKey());
+            }
+            entry.getValue().put(id, field.getValue());
+            // keep the map's key instance, so every word is held once
+            itemWords[i++] = entry.getKey();
+        }
+        words.put(id, itemWords);
+        maxId = Math.max(maxId, id);
+    }
+
+    private void remove(int id) {
+        String[] itemWords = words.remove(id);
+        if (itemWords == null) {
+            return;
+        }
+        for (String word : itemWords) {
+            Postings list = postings.get(word);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    private static void addWords(Map<String, Integer> fields, Collection<String> texts, int field) {
+        for (String text : texts) {
+            for (String word : ItemSearchIndex.terms(text)) {
+                fields.putIfAbsent(word, field);
+            }
+        }
+    }
+
+    private Map<Integer, Document> load(List<Integer> ids) {
+        Map<String, List<Integer>> params = Map.of("ids", ids);
+        Map<Integer, Document> documents = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, description FROM items WHERE id IN (:ids)", params, rs -> {
+            documents.put(rs.getInt("id"), new Document(rs.getString("name"), rs.getString("description"),
+                    new ArrayList<>(), new ArrayList<>()));
+        });
+        jdbcTemplate.query("SELECT it.item_id, t.name FROM item_tags it JOIN tags t ON t.id = it.tag_id "
+                + "WHERE it.item_id IN (:ids)", params, rs -> {
+            Document document = documents.get(rs.getInt(1));
+            if (document != null) {
+                document.tags().add(rs.getString(2));
+            }
+        });
+        jdbcTemplate.query("SELECT item_id, attribute_value FROM item_attributes WHERE item_id IN (:ids)", params, rs -> {
+            Document document = documents.get(rs.getInt(1));
+            if (document != null) {
+                document.attributes().add(rs.getString(2));
+            }
+        });
+        return documents;
+    }
+
+    record Document(String name, String description, List<String> tags, List<String> attributes) {
+    }
+
+    /**
+     * Ids of the items containing a word, sorted, each packed with the field it occurs in: {@code id << 2 | field}.
+     */
+    private static final class Postings {
+
+        private int[] entries = new int[2];
+        private int size;
+
+        void put(int id, int field) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                entries[index] = id << 2 | field;
+                return;
+            }
+            index = -index - 1;
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            System.arraycopy(entries, index, entries, index + 1, size - index);
+            entries[index] = id << 2 | field;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private int indexOf(int id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midId = entries[mid] >>> 2;
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package de.iske.kistogramm.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text index over item name, tag names, description and custom attribute values, weighted in that order.
+ * A query matches the items containing every term, each term also matching longer words it is a prefix of.
+ * {@link de.iske.kistogramm.config.SearchConfig} picks the implementation that fits the database.
+ */
+public interface ItemSearchIndex {
+
+    Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    /**
+     * Brings the given items up to date with the database; items that no longer exist are dropped.
+     */
+    void update(Collection<Integer> itemIds);
+
+    /**
+     * Indexes all items that are not indexed yet. Called once at startup.
+     */
+    void rebuild();
+
+    /**
+     * The best {@code limit} matches, best first and by id among equal scores.
+     */
+    List<Match> search(List<String> terms, int limit);
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     */
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        Matcher matcher = TERM.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            terms.add(matcher.group());
+        }
+        return terms;
+    }
+
+    record Match(int itemId, double score) {
+    }
+}
@@ -0,0 +1,101 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.model.ItemEntity;
+import de.iske.kistogramm.model.TagEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PreRemove;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the {@link ItemSearchIndex} in step with the items: collects the ids of the items a transaction creates,
+ * changes or removes, including items whose tags are renamed, and updates the index with all of them once the
+ * transaction has committed. The index is looked up lazily, since Hibernate obtains this listener while the
+ * persistence unit the index depends on is still being built.
+ */
+@Component
+public class ItemSearchListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemSearchListener.class);
+
+    private final ObjectProvider<ItemSearchIndex> searchIndex;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ItemSearchListener(ObjectProvider<ItemSearchIndex> searchIndex, NamedParameterJdbcTemplate jdbcTemplate) {
+        this.searchIndex = searchIndex;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Removals are handled before the fact: once a tag is removed, its {@code item_tags} rows are gone as well and
+     * the items still carrying its name could no longer be found. The index is updated after the commit either way.
+     */
+    @PostPersist
+    @PostUpdate
+    @PreRemove
+    public void onChange(Object entity) {
+        switch (entity) {
+            case ItemEntity item -> changed(List.of(item.getId()));
+            // plain JDBC, the entity manager must not be used in lifecycle callbacks
+            case TagEntity tag -> changed(jdbcTemplate.queryForList(
+                    "SELECT item_id FROM item_tags WHERE tag_id = :tagId", Map.of("tagId", tag.getId()), Integer.class));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Updates the index for items changed without passing through JPA, after the commit of the current transaction
+     * if there is one.
+     */
+    public void changed(Collection<Integer> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            searchIndex.getObject().update(itemIds);
+            return;
+        }
+        PendingUpdate pending = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(PendingUpdate.class::isInstance)
+                .map(PendingUpdate.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    PendingUpdate update = new PendingUpdate();
+                    TransactionSynchronizationManager.registerSynchronization(update);
+                    return update;
+                });
+        pending.itemIds.addAll(itemIds);
+    }
+
+    /**
+     * The items changed by one transaction, indexed after its commit. Registered per transaction, so a transaction
+     * suspended for a nested one keeps its own.
+     */
+    private class PendingUpdate implements TransactionSynchronization {
+
+        private final Set<Integer> itemIds = new HashSet<>();
+
+        @Override
+        public void afterCommit() {
+            try {
+                searchIndex.getObject().update(itemIds);
+            } catch (RuntimeException e) {
+                // the change itself is committed; the items are indexed again with their next change
+                log.error("Search index update failed for {} item(s): {}", itemIds.size(), e.getMessage());
+            }
+        }
+    }
+}
@@ -1,17 +1,26 @@
 package de.iske.kistogramm.service;
 
+import com.google.common.collect.Lists;
+import de.iske.kistogramm.dto.FacetCount;
 import de.iske.kistogramm.dto.Image;
 import de.iske.kistogramm.dto.Item;
+import de.iske.kistogramm.dto.ItemCursor;
+import de.iske.kistogramm.dto.ItemFacets;
+import de.iske.kistogramm.dto.ItemQuery;
 import de.iske.kistogramm.mapper.ImageMapper;
 import de.iske.kistogramm.mapper.ItemMapper;
 import de.iske.kistogramm.model.*;
 import de.iske.kistogramm.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -20,6 +29,8 @@ import java.util.stream.Collectors;
 public class ItemService {
 
     private static final Logger log = LoggerFactory.getLogger(ItemService.class);
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private final ItemRepository itemRepository;
     private final CategoryRepository categoryRepository;
@@ -30,7 +41,7 @@ public class ItemService {
     private final AiJobRepository aiJobRepository;
     private final ItemMapper itemMapper;
     private final ImageMapper imageMapper;
-    private final ImageCompressionService imageCompressionService;
+    private final ImageService imageService;
 
     public ItemService(ItemRepository itemRepository,
                        CategoryRepository categoryRepository,
@@ -41,7 +52,7 @@ public class ItemService {
                        AiJobRepository aiJobRepository,
                        ImageMapper imageMapper,
                        ItemMapper itemMapper,
-                       ImageCompressionService imageCompressionService) {
+                       ImageService imageService) {
         this.itemRepository = itemRepository;
         this.categoryRepository = categoryRepository;
         this.storageRepository = storageRepository;
@@ -51,29 +62,145 @@ public class ItemService {
         this.aiJobRepository = aiJobRepository;
         this.itemMapper = itemMapper;
         this.imageMapper = imageMapper;
-        this.imageCompressionService = imageCompressionService;
+        this.imageService = imageService;
     }
 
-    public List<Item> getAllItems() {
-        return itemRepository.findAll().stream().map(entity -> {
-            Item dto = itemMapper.toDto(entity);
-            dto.setTagIds(entity.getTags().stream().map(TagEntity::getId).collect(Collectors.toSet()));
-            dto.setImageIds(entity.getImages().stream().map(ImageEntity::getId).collect(Collectors.toSet()));
-            dto.setReceiptIds(entity.getReceipts().stream().map(ImageEntity::getId).collect(Collectors.toSet()));
-            dto.setRelatedItemIds(entity.getRelatedItems().stream().map(ItemEntity::getId).collect(Collectors.toSet()));
-            return dto;
-        }).toList();
+    /**
+     * One page of items matching the query, read as plain rows in a single select; see {@link #toDtos(List)} for
+     * the associated ids. Without a limit the page holds {@value #DEFAULT_PAGE_SIZE} items.
+     */
+    public Slice<Item> getItems(ItemQuery query) {
+        int limit = query.getLimit() != null ? query.getLimit() : DEFAULT_PAGE_SIZE;
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // one row more than requested tells whether there is a next page
+        List<ItemRow> rows = itemRepository.findRows(specification(query), order(query), limit + 1);
+        boolean hasNext = rows.size() > limit;
+        List<Item> items = toDtos(rows.subList(0, Math.min(limit, rows.size())));
+        return new SliceImpl<>(items, PageRequest.ofSize(limit), hasNext);
+    }
+
+    /**
+     * All items matching the query, regardless of its limit. Only for internal callers whose filters already bound
+     * the result, such as the items of a single room.
+     */
+    public List<Item> getAllItems(ItemQuery query) {
+        return toDtos(itemRepository.findRows(specification(query), order(query), null));
+    }
+
+    private Specification<ItemEntity> specification(ItemQuery query) {
+        List<Specification<ItemEntity>> conditions = new ArrayList<>(filters(query).values());
+        if (query.getAfter() != null) {
+            ItemCursor last = ItemCursor.decode(query.getAfter(), query.getSort());
+            conditions.add(ItemSpecifications.after(last, query.getDirection()));
+        }
+        return Specification.allOf(conditions);
+    }
+
+    private static Sort order(ItemQuery query) {
+        return ItemSpecifications.order(query.getSort(), query.getDirection());
+    }
+
+    /**
+     * Item counts per category, tag, room and storage for the filters of the query, one grouped select each. A facet
+     * ignores the query's own filter on it, e.g. the category counts are those of all categories as if no
+     * {@code categoryId} was given; paging does not affect the counts.
+     */
+    public ItemFacets getFacets(ItemQuery query) {
+        Map<String, Specification<ItemEntity>> filters = filters(query);
+        ItemFacets facets = new ItemFacets();
+        facets.setCategories(countFacet(filters, "categoryId", "category"));
+        facets.setTags(countFacet(filters, "tagId", "tags"));
+        facets.setRooms(countFacet(filters, "roomId", "storage", "room"));
+        facets.setStorages(countFacet(filters, "storageId", "storage"));
+        return facets;
+    }
+
+    private List<FacetCount> countFacet(Map<String, Specification<ItemEntity>> filters,
+                                        String ownFilter,
+                                        String... path) {
+        List<Specification<ItemEntity>> others = filters.entrySet().stream()
+                .filter(filter -> !filter.getKey().equals(ownFilter))
+                .map(Map.Entry::getValue)
+                .toList();
+        return itemRepository.countFacet(Specification.allOf(others), path).stream()
+                .map(row -> new FacetCount(row.id(), row.name(), row.count()))
+                .toList();
+    }
+
+    /**
+     * The filters set in the query, keyed by their parameter name.
+     */
+    private static Map<String, Specification<ItemEntity>> filters(ItemQuery query) {
+        Map<String, Specification<ItemEntity>> filters = new LinkedHashMap<>();
+        if (query.getCategoryId() != null) {
+            filters.put("categoryId", ItemSpecifications.inCategory(query.getCategoryId()));
+        }
+        if (query.getStorageId() != null) {
+            filters.put("storageId", ItemSpecifications.inStorage(query.getStorageId()));
+        }
+        if (query.getRoomId() != null) {
+            filters.put("roomId", ItemSpecifications.inRoom(query.getRoomId()));
+        }
+        if (query.getTagId() != null) {
+            filters.put("tagId", ItemSpecifications.taggedWith(query.getTagId()));
+        }
+        if (query.getModifiedSince() != null) {
+            filters.put("modifiedSince", ItemSpecifications.modifiedSince(query.getModifiedSince()));
+        }
+        if (query.getModifiedBefore() != null) {
+            filters.put("modifiedBefore", ItemSpecifications.modifiedBefore(query.getModifiedBefore()));
+        }
+        return filters;
+    }
+
+    /**
+     * The existing items among the given ids, in the order of the ids.
+     */
+    public List<Item> getItemsByIds(List<Integer> ids) {
+        Map<Integer, Item> byId = new HashMap<>();
+        for (List<Integer> chunk : Lists.partition(ids, MAX_PAGE_SIZE)) {
+            toDtos(itemRepository.findRows(ItemSpecifications.withIds(chunk), Sort.unsorted(), null))
+                    .forEach(item -> byId.put(item.getId(), item));
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Completes listed rows with their tag, related item, image and receipt ids and custom attributes: one query
+     * per association and {@value #MAX_PAGE_SIZE} items, instead of a lazy load per item and association.
+     */
+    private List<Item> toDtos(List<ItemRow> rows) {
+        Map<Integer, Item> byId = new LinkedHashMap<>();
+        rows.forEach(row -> byId.put(row.id(), itemMapper.toDto(row)));
+        for (List<Integer> ids : Lists.partition(List.copyOf(byId.keySet()), MAX_PAGE_SIZE)) {
+            itemRepository.findTagLinks(ids)
+                    .forEach(link -> byId.get(link.ownerId()).getTagIds().add(link.targetId()));
+            itemRepository.findRelatedLinks(ids)
+                    .forEach(link -> byId.get(link.ownerId()).getRelatedItemIds().add(link.targetId()));
+            imageRepository.findItemImageLinks(ids)
+                    .forEach(link -> byId.get(link.ownerId()).getImageIds().add(link.targetId()));
+            imageRepository.findReceiptLinks(ids)
+                    .forEach(link -> byId.get(link.ownerId()).getReceiptIds().add(link.targetId()));
+            itemRepository.findAttributes(ids)
+                    .forEach(attribute -> byId.get(attribute.itemId()).getCustomAttributes()
+                            .put(attribute.key(), attribute.value()));
+        }
+        return List.copyOf(byId.values());
+    }
+
+    private Item toDto(ItemEntity entity) {
+        Item dto = itemMapper.toDto(entity);
+        dto.setTagIds(entity.getTags().stream().map(TagEntity::getId).collect(Collectors.toSet()));
+        dto.setImageIds(entity.getImages().stream().map(ImageEntity::getId).collect(Collectors.toSet()));
+        dto.setReceiptIds(entity.getReceipts().stream().map(ImageEntity::getId).collect(Collectors.toSet()));
+        dto.setRelatedItemIds(entity.getRelatedItems().stream().map(ItemEntity::getId).collect(Collectors.toSet()));
+        return dto;
     }
 
     public Optional<Item> getItemById(Integer id) {
-        return itemRepository.findById(id).map(entity -> {
-            Item dto = itemMapper.toDto(entity);
-            dto.setTagIds(entity.getTags().stream().map(TagEntity::getId).collect(Collectors.toSet()));
-            dto.setImageIds(entity.getImages().stream().map(ImageEntity::getId).collect(Collectors.toSet()));
-            dto.setReceiptIds(entity.getReceipts().stream().map(ImageEntity::getId).collect(Collectors.toSet()));
-            dto.setRelatedItemIds(entity.getRelatedItems().stream().map(ItemEntity::getId).collect(Collectors.toSet()));
-            return dto;
-        });
+        return itemRepository.findById(id).map(this::toDto);
     }
 
     public Item createItem(Item dto) {
@@ -217,12 +344,12 @@ public class ItemService {
         ItemEntity item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found: " + itemId));
 
-        List<ItemEntity> desiredRelatedItems = itemRepository.findAllById(relatedItemIds);
+        Set<ItemEntity> desiredRelatedItems = new HashSet<>(itemRepository.findAllById(relatedItemIds));
         Set<ItemEntity> currentRelatedItems = new HashSet<>(item.getRelatedItems());
 
         // Remove old links not included in the new list
         for (ItemEntity oldRelated : currentRelatedItems) {
-            if (desiredRelatedItems.stream().noneMatch(r -> r.getId().equals(oldRelated.getId()))) {
+            if (!desiredRelatedItems.contains(oldRelated)) {
                 oldRelated.getRelatedItems().remove(item);
                 item.getRelatedItems().remove(oldRelated);
                 itemRepository.save(oldRelated);
@@ -248,12 +375,12 @@ public class ItemService {
         ItemEntity item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found: " + itemId));
 
-        List<TagEntity> newTags = tagRepository.findAllById(tagIds);
+        Set<TagEntity> newTags = new HashSet<>(tagRepository.findAllById(tagIds));
 
         // Remove tags not in the new list
         Set<TagEntity> currentTags = new HashSet<>(item.getTags());
         for (TagEntity oldTag : currentTags) {
-            if (newTags.stream().noneMatch(t -> t.getId().equals(oldTag.getId()))) {
+            if (!newTags.contains(oldTag)) {
                 item.getTags().remove(oldTag);
             }
         }
@@ -271,20 +398,7 @@ public class ItemService {
         ItemEntity item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found: " + itemId));
 
-        for (MultipartFile file : files) {
-            try {
-                ImageEntity image = new ImageEntity();
-                image.setData(imageCompressionService.compress(file.getBytes(), file.getContentType()));
-                image.setType(file.getContentType());
-                image.setDateAdded(LocalDateTime.now());
-                image.setDateModified(LocalDateTime.now());
-                image.setItem(item);
-                imageRepository.save(image);
-            } catch (IOException e) {
-                log.error("Failed to read uploaded image file for itemId={}: {}", itemId, e.getMessage());
-                throw new RuntimeException("Failed to read uploaded file", e);
-            }
-        }
+        imageService.createFromUploads(files, image -> image.setItem(item));
 
         item.setDateModified(LocalDateTime.now());
         log.info("Uploaded {} image(s) to itemId={}", files.size(), itemId);
@@ -295,20 +409,7 @@ public class ItemService {
         ItemEntity item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found: " + itemId));
 
-        for (MultipartFile file : files) {
-            try {
-                ImageEntity image = new ImageEntity();
-                image.setData(imageCompressionService.compress(file.getBytes(), file.getContentType()));
-                image.setType(file.getContentType());
-                image.setDateAdded(LocalDateTime.now());
-                image.setDateModified(LocalDateTime.now());
-                image.setReceiptItem(item);
-                imageRepository.save(image);
-            } catch (IOException e) {
-                log.error("Failed to read uploaded receipt file for itemId={}: {}", itemId, e.getMessage());
-                throw new RuntimeException("Failed to read uploaded file", e);
-            }
-        }
+        imageService.createFromUploads(files, image -> image.setReceiptItem(item));
 
         item.setDateModified(LocalDateTime.now());
         log.info("Uploaded {} receipt(s) to itemId={}", files.size(), itemId);
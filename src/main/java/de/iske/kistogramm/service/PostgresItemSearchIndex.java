@@ -0,0 +1,87 @@
+package de.iske.kistogramm.service;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@code items.search_vector} column (added by V24 on PostgreSQL) up to date and queries it through its
+ * GIN index. The vector is computed in the database from the current rows, so updating an item only needs its id;
+ * weights A to D map to name, tag names, description and attribute values, ranked by {@code ts_rank}.
+ */
+public class PostgresItemSearchIndex implements ItemSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresItemSearchIndex.class);
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String DOCUMENT = """
+            setweight(to_tsvector('simple', coalesce(i.name, '')), 'A')
+            || setweight(to_tsvector('simple', coalesce((SELECT string_agg(t.name, ' ') FROM item_tags it
+                    JOIN tags t ON t.id = it.tag_id WHERE it.item_id = i.id), '')), 'B')
+            || setweight(to_tsvector('simple', coalesce(i.description, '')), 'C')
+            || setweight(to_tsvector('simple', coalesce((SELECT string_agg(a.attribute_value, ' ')
+                    FROM item_attributes a WHERE a.item_id = i.id), '')), 'D')
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    // updates run after the commit of the changing transaction, which must not be joined any more
+    private final TransactionTemplate transactionTemplate;
+
+    public PostgresItemSearchIndex(NamedParameterJdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void update(Collection<Integer> itemIds) {
+        for (List<Integer> chunk : Lists.partition(List.copyOf(itemIds), CHUNK_SIZE)) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "UPDATE items i SET search_vector = " + DOCUMENT + " WHERE i.id IN (:ids)",
+                    Map.of("ids", chunk)));
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        int indexed = 0;
+        int updated;
+        do {
+            updated = transactionTemplate.execute(status -> jdbcTemplate.update(
+                    "UPDATE items i SET search_vector = " + DOCUMENT + " WHERE i.id IN "
+                            + "(SELECT id FROM items WHERE search_vector IS NULL ORDER BY id LIMIT :limit)",
+                    Map.of("limit", CHUNK_SIZE)));
+            indexed += updated;
+        } while (updated > 0);
+        if (indexed > 0) {
+            log.info("Search index: computed the search vector of {} item(s)", indexed);
+        }
+    }
+
+    @Override
+    public List<Match> search(List<String> terms, int limit) {
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        // terms consist of letters and digits only, so they cannot carry tsquery operators
+        String query = terms.stream().map(term -> term + ":*").collect(Collectors.joining(" & "));
+        return jdbcTemplate.query(
+                "SELECT i.id, ts_rank(i.search_vector, q) AS score FROM items i, to_tsquery('simple', :query) q "
+                        + "WHERE i.search_vector @@ q ORDER BY score DESC, i.id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("query", query)
+                        .addValue("limit", limit),
+                (rs, rowNum) -> new Match(rs.getInt("id"), rs.getDouble("score")));
+    }
+}
@@ -2,12 +2,11 @@ package de.iske.kistogramm.service;
 
 import de.iske.kistogramm.dto.Image;
 import de.iske.kistogramm.dto.Item;
+import de.iske.kistogramm.dto.ItemQuery;
 import de.iske.kistogramm.dto.Room;
 import de.iske.kistogramm.dto.Storage;
 import de.iske.kistogramm.mapper.ImageMapper;
-import de.iske.kistogramm.mapper.ItemMapper;
 import de.iske.kistogramm.mapper.RoomMapper;
-import de.iske.kistogramm.mapper.StorageMapper;
 import de.iske.kistogramm.model.ImageEntity;
 import de.iske.kistogramm.model.RoomEntity;
 import de.iske.kistogramm.repository.ImageRepository;
@@ -16,9 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import de.iske.kistogramm.service.ImageCompressionService;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -30,31 +27,31 @@ public class RoomService {
 
     private final RoomRepository roomRepository;
     private final ImageRepository imageRepository;
-    private final StorageMapper storageMapper;
     private final RoomMapper roomMapper;
     private final ImageMapper imageMapper;
-    private final ItemMapper itemMapper;
-    private final ImageCompressionService imageCompressionService;
+    private final ImageService imageService;
+    private final ItemService itemService;
+    private final StorageService storageService;
 
     public RoomService(
             RoomRepository roomRepository,
             ImageRepository imageRepository,
-            StorageMapper storageMapper,
             ImageMapper imageMapper,
-            ItemMapper itemMapper,
             RoomMapper roomMapper,
-            ImageCompressionService imageCompressionService) {
+            ImageService imageService,
+            ItemService itemService,
+            StorageService storageService) {
         this.roomRepository = roomRepository;
         this.imageRepository = imageRepository;
-        this.storageMapper = storageMapper;
         this.roomMapper = roomMapper;
-        this.itemMapper = itemMapper;
         this.imageMapper = imageMapper;
-        this.imageCompressionService = imageCompressionService;
+        this.imageService = imageService;
+        this.itemService = itemService;
+        this.storageService = storageService;
     }
 
     public List<Room> getAllRooms() {
-        return roomRepository.findAll().stream()
+        return roomRepository.findAllRows().stream()
                 .map(roomMapper::toDto)
                 .toList();
     }
@@ -91,44 +88,33 @@ public class RoomService {
     }
 
     public List<Item> getItemsByRoomId(Integer roomId) {
-        return roomRepository.findById(roomId)
-                .map(RoomEntity::getStorages)
-                .orElseThrow(() -> new IllegalArgumentException("Room not found"))
-                .stream()
-                .flatMap(storage -> storage.getItems().stream())
-                .map(itemMapper::toDto)
-                .toList();
+        requireRoom(roomId);
+        ItemQuery query = new ItemQuery();
+        query.setRoomId(roomId);
+        return itemService.getAllItems(query);
     }
 
     public List<Storage> getStorageByRoomId(Integer roomId) {
-        return roomRepository.findById(roomId)
-                .map(RoomEntity::getStorages)
-                .orElseThrow(() -> new IllegalArgumentException("Room not found"))
-                .stream()
-                .map(storageMapper::toDto)
-                .toList();
+        requireRoom(roomId);
+        return storageService.getByRoomId(roomId);
+    }
+
+    private void requireRoom(Integer roomId) {
+        if (!roomRepository.existsById(roomId)) {
+            throw new IllegalArgumentException("Room not found");
+        }
     }
 
     public Room uploadImage(Integer roomId, MultipartFile file) {
         RoomEntity room = roomRepository.findById(roomId)
                 .orElseThrow(() -> new IllegalArgumentException("Room not found: " + roomId));
 
-        try {
-            ImageEntity image = new ImageEntity();
-            image.setData(imageCompressionService.compress(file.getBytes(), file.getContentType()));
-            image.setType(file.getContentType());
-            image.setDateAdded(LocalDateTime.now());
-            image.setDateModified(LocalDateTime.now());
-            imageRepository.save(image);
+        ImageEntity image = imageService.createFromUploads(List.of(file), uploaded -> { }).getFirst();
 
-            room.setImage(image);
-            room.setDateModified(LocalDateTime.now());
+        room.setImage(image);
+        room.setDateModified(LocalDateTime.now());
 
-            return roomMapper.toDto(roomRepository.save(room));
-        } catch (IOException e) {
-            log.error("Failed to read uploaded image for roomId={}: {}", roomId, e.getMessage());
-            throw new RuntimeException("Error reading uploaded file", e);
-        }
+        return roomMapper.toDto(roomRepository.save(room));
     }
 
     public void deleteImage(Integer roomId) {
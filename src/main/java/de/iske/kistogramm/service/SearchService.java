@@ -1,18 +1,29 @@
 package de.iske.kistogramm.service;
 
+import de.iske.kistogramm.dto.Item;
+import de.iske.kistogramm.dto.Suggestion;
 import de.iske.kistogramm.mapper.*;
 import de.iske.kistogramm.repository.*;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
 public class SearchService {
 
+    private static final int MAX_RESULTS = 100;
+    private static final int MAX_TERMS = 10;
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final ItemRepository itemRepository;
     private final StorageRepository storageRepository;
     private final RoomRepository roomRepository;
@@ -25,6 +36,10 @@ public class SearchService {
     private final TagMapper tagMapper;
     private final CategoryMapper categoryMapper;
 
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemService itemService;
+    private final SuggestionIndex suggestionIndex;
+
     public SearchService(ItemRepository itemRepository,
                          StorageRepository storageRepository,
                          RoomRepository roomRepository,
@@ -34,7 +49,10 @@ public class SearchService {
                          StorageMapper storageMapper,
                          RoomMapper roomMapper,
                          TagMapper tagMapper,
-                         CategoryMapper categoryMapper) {
+                         CategoryMapper categoryMapper,
+                         ItemSearchIndex itemSearchIndex,
+                         ItemService itemService,
+                         SuggestionIndex suggestionIndex) {
         this.itemRepository = itemRepository;
         this.storageRepository = storageRepository;
         this.roomRepository = roomRepository;
@@ -45,6 +63,36 @@ public class SearchService {
         this.roomMapper = roomMapper;
         this.tagMapper = tagMapper;
         this.categoryMapper = categoryMapper;
+        this.itemSearchIndex = itemSearchIndex;
+        this.itemService = itemService;
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSearchIndex() {
+        itemSearchIndex.rebuild();
+        suggestionIndex.rebuild();
+    }
+
+    /**
+     * The items containing every word of the query in their name, tags, description or attribute values, best
+     * matches first. A word also matches longer words starting with it, so the query can be typed incrementally.
+     */
+    public List<Item> searchItems(String query, int limit) {
+        if (limit < 1 || limit > MAX_RESULTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_RESULTS);
+        }
+        List<String> terms = ItemSearchIndex.terms(query).stream().distinct().limit(MAX_TERMS).toList();
+        List<Integer> ids = itemSearchIndex.search(terms, limit).stream().map(ItemSearchIndex.Match::itemId).toList();
+        List<Item> items = itemService.getItemsByIds(ids);
+        if (items.size() < ids.size()) {
+            // items deleted behind the index's back, e.g. by plain SQL; drop them and search once more
+            Set<Integer> found = items.stream().map(Item::getId).collect(Collectors.toSet());
+            itemSearchIndex.update(ids.stream().filter(id -> !found.contains(id)).toList());
+            ids = itemSearchIndex.search(terms, limit).stream().map(ItemSearchIndex.Match::itemId).toList();
+            items = itemService.getItemsByIds(ids);
+        }
+        return items;
     }
 
     public Optional<Map<String, Object>> search(UUID uuid, String type) {
@@ -73,6 +121,16 @@ public class SearchService {
         ).flatMap(Optional::stream).findFirst();
     }
 
+    /**
+     * Items, tags, storages and rooms whose name completes the query or resembles it, see {@link SuggestionIndex}.
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return suggestionIndex.suggest(query, limit);
+    }
+
     private Map<String, Object> wrap(String type, Object payload) {
         Map<String, Object> result = new HashMap<>();
         result.put("type", type);
@@ -0,0 +1,306 @@
+package de.iske.kistogramm.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.IsoFields;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes scheduled snapshots of the inventory below {@code backup.dir}:
+ * <pre>
+ * snapshots/2026-01-31_02-00-00/data.json
+ * snapshots/2026-01-31_02-00-00/images/&lt;uuid&gt;   hard link into blobs/
+ * blobs/ab/cd/abcd…                                  one file per image content
+ * </pre>
+ * Image content is copied into {@code blobs/} only the first time it shows up; snapshots just link to it, so a
+ * snapshot costs disk space and I/O only for new images, plus a fresh {@code data.json}. Old snapshots are thinned
+ * out by daily, weekly and monthly retention, and content no snapshot links to any more is removed with them.
+ * Zipping a snapshot directory yields an archive for {@code POST /api/import}.
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+    static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    private final ExportService exportService;
+    private final BlobStore blobStore;
+    // null when backups are disabled
+    private final Path root;
+    private final int keepDaily;
+    private final int keepWeekly;
+    private final int keepMonthly;
+    private final Clock clock;
+
+    @Autowired
+    public SnapshotService(ExportService exportService,
+                           BlobStore blobStore,
+                           @Value("${backup.dir:}") String backupDir,
+                           @Value("${backup.keep-daily:7}") int keepDaily,
+                           @Value("${backup.keep-weekly:4}") int keepWeekly,
+                           @Value("${backup.keep-monthly:12}") int keepMonthly) {
+        this(exportService, blobStore, backupDir, keepDaily, keepWeekly, keepMonthly, Clock.systemDefaultZone());
+    }
+
+    SnapshotService(ExportService exportService,
+                    BlobStore blobStore,
+                    String backupDir,
+                    int keepDaily,
+                    int keepWeekly,
+                    int keepMonthly,
+                    Clock clock) {
+        this.exportService = exportService;
+        this.blobStore = blobStore;
+        this.root = backupDir.isBlank() ? null : Path.of(backupDir).toAbsolutePath().normalize();
+        this.keepDaily = keepDaily;
+        this.keepWeekly = keepWeekly;
+        this.keepMonthly = keepMonthly;
+        this.clock = clock;
+    }
+
+    @Scheduled(cron = "${backup.cron:0 0 2 * * *}")
+    public void scheduledSnapshot() {
+        if (root == null) {
+            return;
+        }
+        try {
+            createSnapshot();
+            prune();
+        } catch (IOException | RuntimeException e) {
+            log.error("Snapshot backup failed", e);
+        }
+    }
+
+    /**
+     * Writes a new snapshot. It is assembled in a hidden directory and renamed when complete, so a crash never
+     * leaves a half-written snapshot behind; the hidden directories of such crashes are removed first.
+     */
+    public synchronized Path createSnapshot() throws IOException {
+        Path snapshots = Files.createDirectories(requireRoot().resolve("snapshots"));
+        deleteUnfinished(snapshots);
+        String name = LocalDateTime.now(clock).format(NAME_FORMAT);
+        Path target = snapshots.resolve(name);
+        if (Files.exists(target)) {
+            throw new IllegalStateException("Snapshot already exists: " + name);
+        }
+        Path tmp = snapshots.resolve("." + name + ".tmp");
+        AtomicInteger newImages = new AtomicInteger();
+        AtomicInteger linkedImages = new AtomicInteger();
+        AtomicLong copiedBytes = new AtomicLong();
+        try {
+            exportService.writeDirectory(tmp, (file, blobKey) -> {
+                long copied = linkContent(file, blobKey);
+                if (copied > 0) {
+                    newImages.incrementAndGet();
+                    copiedBytes.addAndGet(copied);
+                } else {
+                    linkedImages.incrementAndGet();
+                }
+            });
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            deleteRecursively(tmp);
+        }
+        log.info("Snapshot {} written: {} new image(s) ({} bytes copied), {} unchanged image(s) linked",
+                name, newImages.get(), copiedBytes.get(), linkedImages.get());
+        return target;
+    }
+
+    /**
+     * Deletes snapshots outside the retention policy, unfinished snapshots and the content only they were linking to.
+     */
+    public synchronized void prune() throws IOException {
+        Path snapshots = requireRoot().resolve("snapshots");
+        if (!Files.isDirectory(snapshots)) {
+            return;
+        }
+        deleteUnfinished(snapshots);
+        Map<LocalDateTime, Path> byTime = new TreeMap<>();
+        try (Stream<Path> dirs = Files.list(snapshots)) {
+            dirs.forEach(dir -> parseName(dir.getFileName().toString()).ifPresent(time -> byTime.put(time, dir)));
+        }
+        Set<LocalDateTime> retained = selectRetained(byTime.keySet(), keepDaily, keepWeekly, keepMonthly);
+        int removed = 0;
+        for (Map.Entry<LocalDateTime, Path> snapshot : byTime.entrySet()) {
+            if (!retained.contains(snapshot.getKey())) {
+                deleteRecursively(snapshot.getValue());
+                removed++;
+            }
+        }
+        int released = releaseUnlinkedContent();
+        if (removed > 0 || released > 0) {
+            log.info("Snapshot retention: removed {} snapshot(s) and {} image file(s) no longer linked", removed, released);
+        }
+    }
+
+    /**
+     * Both callers hold the monitor, so any hidden directory found here was left by a snapshot that never finished,
+     * e.g. because the process was killed while writing it.
+     */
+    private static void deleteUnfinished(Path snapshots) throws IOException {
+        List<Path> unfinished;
+        try (Stream<Path> dirs = Files.list(snapshots)) {
+            unfinished = dirs.filter(dir -> {
+                String name = dir.getFileName().toString();
+                return name.startsWith(".") && name.endsWith(".tmp");
+            }).toList();
+        }
+        for (Path dir : unfinished) {
+            log.warn("Deleting unfinished snapshot {}", dir.getFileName());
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * The snapshots to keep: the newest one overall, plus the newest one of each of the latest {@code keepDaily} days,
+     * {@code keepWeekly} ISO weeks and {@code keepMonthly} months that have a snapshot at all.
+     */
+    static Set<LocalDateTime> selectRetained(Collection<LocalDateTime> snapshots,
+                                             int keepDaily, int keepWeekly, int keepMonthly) {
+        List<LocalDateTime> newestFirst = snapshots.stream().sorted(Comparator.reverseOrder()).toList();
+        Set<LocalDateTime> retained = new HashSet<>();
+        if (!newestFirst.isEmpty()) {
+            retained.add(newestFirst.getFirst());
+        }
+        retainNewestPerPeriod(newestFirst, keepDaily, LocalDateTime::toLocalDate, retained);
+        retainNewestPerPeriod(newestFirst, keepWeekly,
+                time -> time.get(IsoFields.WEEK_BASED_YEAR) + "-W" + time.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR), retained);
+        retainNewestPerPeriod(newestFirst, keepMonthly, YearMonth::from, retained);
+        return retained;
+    }
+
+    private static void retainNewestPerPeriod(List<LocalDateTime> newestFirst,
+                                              int periods,
+                                              Function<LocalDateTime, Object> periodOf,
+                                              Set<LocalDateTime> retained) {
+        Set<Object> seen = new HashSet<>();
+        for (LocalDateTime time : newestFirst) {
+            if (seen.size() >= periods) {
+                return;
+            }
+            if (seen.add(periodOf.apply(time))) {
+                retained.add(time);
+            }
+        }
+    }
+
+    /**
+     * Links the snapshot file to the pooled content, copying the content into the pool first if it is new.
+     *
+     * @return the number of bytes copied, 0 if the content was pooled already
+     */
+    private long linkContent(Path file, String blobKey) throws IOException {
+        Path pooled = requireRoot().resolve("blobs")
+                .resolve(blobKey.substring(0, 2)).resolve(blobKey.substring(2, 4)).resolve(blobKey);
+        long copied = 0;
+        if (!Files.exists(pooled)) {
+            Files.createDirectories(pooled.getParent());
+            Path tmp = Files.createTempFile(pooled.getParent(), blobKey, ".tmp");
+            try {
+                try (InputStream in = blobStore.open(blobKey)) {
+                    copied = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(tmp, pooled, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        try {
+            Files.createLink(file, pooled);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // filesystems without hard links, or a pooled file at the link limit, still get a complete snapshot at
+            // the price of a copy. Content pooled just now is moved instead: left in the pool without a link, it
+            // would only be released again by the next prune.
+            if (copied > 0) {
+                Files.move(pooled, file);
+            } else {
+                Files.copy(pooled, file);
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Pooled files whose link count dropped to one belong to no snapshot any more. Filesystems without a link count
+     * keep the pool as it is.
+     */
+    private int releaseUnlinkedContent() throws IOException {
+        Path pool = requireRoot().resolve("blobs");
+        if (!Files.isDirectory(pool)) {
+            return 0;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(pool)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        int released = 0;
+        for (Path file : files) {
+            Object links;
+            try {
+                links = Files.getAttribute(file, "unix:nlink");
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                return released;
+            }
+            if (links instanceof Integer count && count <= 1) {
+                Files.deleteIfExists(file);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    private Path requireRoot() {
+        if (root == null) {
+            throw new IllegalStateException("Snapshot backups are disabled, set backup.dir to enable them");
+        }
+        return root;
+    }
+
+    private static Optional<LocalDateTime> parseName(String name) {
+        try {
+            return Optional.of(LocalDateTime.parse(name, NAME_FORMAT));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(path)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+    }
+}
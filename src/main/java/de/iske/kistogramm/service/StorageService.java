@@ -1,5 +1,6 @@
 package de.iske.kistogramm.service;
 
+import com.google.common.collect.Lists;
 import de.iske.kistogramm.dto.Image;
 import de.iske.kistogramm.dto.Storage;
 import de.iske.kistogramm.mapper.ImageMapper;
@@ -11,6 +12,7 @@ import de.iske.kistogramm.model.TagEntity;
 import de.iske.kistogramm.repository.ImageRepository;
 import de.iske.kistogramm.repository.RoomRepository;
 import de.iske.kistogramm.repository.StorageRepository;
+import de.iske.kistogramm.repository.StorageRow;
 import de.iske.kistogramm.repository.TagRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
@@ -19,7 +21,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -28,6 +29,7 @@ import java.util.stream.Collectors;
 public class StorageService {
 
     private static final Logger log = LoggerFactory.getLogger(StorageService.class);
+    private static final int ID_CHUNK_SIZE = 1000;
 
     private final StorageRepository storageRepository;
     private final RoomRepository roomRepository;
@@ -35,7 +37,7 @@ public class StorageService {
     private final StorageMapper storageMapper;
     private final ImageRepository imageRepository;
     private final ImageMapper imageMapper;
-    private final ImageCompressionService imageCompressionService;
+    private final ImageService imageService;
 
     public StorageService(StorageRepository storageRepository,
                           RoomRepository roomRepository,
@@ -43,27 +45,43 @@ public class StorageService {
                           ImageRepository imageRepository,
                           StorageMapper storageMapper,
                           ImageMapper imageMapper,
-                          ImageCompressionService imageCompressionService) {
+                          ImageService imageService) {
         this.storageRepository = storageRepository;
         this.roomRepository = roomRepository;
         this.imageRepository = imageRepository;
         this.tagRepository = tagRepository;
         this.storageMapper = storageMapper;
         this.imageMapper = imageMapper;
-        this.imageCompressionService = imageCompressionService;
+        this.imageService = imageService;
     }
 
     public List<Storage> getAll() {
-        return storageRepository.findAll().stream()
-                .map(entity -> {
-                    Storage dto = storageMapper.toDto(entity);
-                    List<Integer> tagIds = entity.getTags() != null
-                            ? entity.getTags().stream().map(TagEntity::getId).collect(Collectors.toList())
-                            : new ArrayList<>();
-                    dto.setTagIds(tagIds);
-                    return dto;
-                })
-                .toList();
+        return toDtos(storageRepository.findAllRows());
+    }
+
+    public List<Storage> getByRoomId(Integer roomId) {
+        return toDtos(storageRepository.findRowsByRoomId(roomId));
+    }
+
+    /**
+     * Completes listed rows with their tag and image ids, one query per association and {@value #ID_CHUNK_SIZE}
+     * storages.
+     */
+    private List<Storage> toDtos(List<StorageRow> rows) {
+        Map<Integer, Storage> byId = new LinkedHashMap<>();
+        rows.forEach(row -> {
+            Storage dto = storageMapper.toDto(row);
+            dto.setTagIds(new ArrayList<>());
+            dto.setImageIds(new ArrayList<>());
+            byId.put(row.id(), dto);
+        });
+        for (List<Integer> ids : Lists.partition(List.copyOf(byId.keySet()), ID_CHUNK_SIZE)) {
+            storageRepository.findTagLinks(ids)
+                    .forEach(link -> byId.get(link.ownerId()).getTagIds().add(link.targetId()));
+            imageRepository.findStorageImageLinks(ids)
+                    .forEach(link -> byId.get(link.ownerId()).getImageIds().add(link.targetId()));
+        }
+        return List.copyOf(byId.values());
     }
 
     @Transactional(readOnly = true)
@@ -154,19 +172,7 @@ public class StorageService {
         StorageEntity storage = storageRepository.findById(storageId)
                 .orElseThrow(() -> new EntityNotFoundException("Storage not found: " + storageId));
 
-        for (MultipartFile file : files) {
-            try {
-                ImageEntity image = new ImageEntity();
-                image.setData(imageCompressionService.compress(file.getBytes(), file.getContentType()));
-                image.setType(file.getContentType());
-                image.setDateAdded(LocalDateTime.now());
-                image.setDateModified(LocalDateTime.now());
-                image.setStorage(storage);
-                imageRepository.save(image);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to read uploaded file", e);
-            }
-        }
+        imageService.createFromUploads(files, image -> image.setStorage(storage));
 
         storage.setDateModified(LocalDateTime.now());
 
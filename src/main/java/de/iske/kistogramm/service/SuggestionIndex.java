@@ -0,0 +1,322 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.Suggestion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Names of items, tags, storages and rooms held in memory for autocompletion, so a suggestion per keystroke never
+ * reaches the database. Names are found, in this order, by
+ * <ol>
+ *     <li>the query being the start of the whole name ({@code "hdmi ka"} → "HDMI Kabel"),</li>
+ *     <li>the query being the start of a word of the name ({@code "kab"} → "HDMI Kabel"),</li>
+ *     <li>the name containing most of the trigrams of the query, which tolerates typos and the endings of
+ *     compound words ({@code "schraubenzieer"} → "Schraubenzieher").</li>
+ * </ol>
+ * Filled at startup by {@link #rebuild()} and kept up to date by {@link SuggestionListener}.
+ */
+@Component
+public class SuggestionIndex {
+
+    public static final String ITEM = "Item";
+    public static final String TAG = "Tag";
+    public static final String STORAGE = "Storage";
+    public static final String ROOM = "Room";
+
+    private static final Logger log = LoggerFactory.getLogger(SuggestionIndex.class);
+    // share of the query's trigrams a name has to contain to count as a fuzzy match
+    private static final double MIN_SIMILARITY = 0.5;
+    // shorter queries have too few trigrams to tell a typo from a different word
+    private static final int MIN_FUZZY_LENGTH = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // entries by slot, the slot being what the lookup maps hold; null for free slots
+    private final List<Entry> entries = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<Key, Integer> slots = new HashMap<>();
+    private final TreeMap<String, Slots> names = new TreeMap<>();
+    private final TreeMap<String, Slots> words = new TreeMap<>();
+    private final Map<String, Slots> trigrams = new HashMap<>();
+    // puts (entry) and removes (null) made while rebuild() reads the database, replayed onto what it read;
+    // null while no rebuild is running
+    private Map<Key, Entry> changedDuringRebuild;
+
+    public SuggestionIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Loads all names from the database, replacing the current content. Suggestions keep being served from the
+     * current content while the names are read; changes made meanwhile are applied again on top of what was read,
+     * since the reads may not have seen them.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<Entry> loaded = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            load(loaded, ITEM, "SELECT id, name FROM items");
+            load(loaded, TAG, "SELECT id, name FROM tags");
+            load(loaded, STORAGE, "SELECT id, name FROM storages");
+            load(loaded, ROOM, "SELECT id, name FROM rooms");
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            freeSlots.clear();
+            slots.clear();
+            names.clear();
+            words.clear();
+            trigrams.clear();
+            loaded.forEach(this::add);
+            changedDuringRebuild.forEach((key, entry) -> {
+                remove(key);
+                if (entry != null) {
+                    add(entry);
+                }
+            });
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Suggestion index: {} name(s) loaded in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void put(String type, int id, String name) {
+        lock.writeLock().lock();
+        try {
+            Key key = new Key(type, id);
+            Entry entry = new Entry(type, id, name);
+            remove(key);
+            add(entry);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(key, entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String type, int id) {
+        lock.writeLock().lock();
+        try {
+            Key key = new Key(type, id);
+            remove(key);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(key, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String query, int limit) {
+        List<String> queryWords = ItemSearchIndex.terms(query);
+        if (queryWords.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        String prefix = String.join(" ", queryWords);
+        lock.readLock().lock();
+        try {
+            Set<Integer> found = new LinkedHashSet<>();
+            collectPrefixed(names, prefix, found, limit);
+            collectPrefixed(words, prefix, found, limit);
+            if (found.size() < limit && prefix.length() >= MIN_FUZZY_LENGTH) {
+                collectSimilar(queryWords, found, limit);
+            }
+            return found.stream()
+                    .map(entries::get)
+                    .map(entry -> new Suggestion(entry.type(), entry.id(), entry.name()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void collectPrefixed(TreeMap<String, Slots> map, String prefix, Set<Integer> found, int limit) {
+        for (Slots matching : map.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < matching.size; i++) {
+                if (found.size() >= limit) {
+                    return;
+                }
+                found.add(matching.values[i]);
+            }
+        }
+    }
+
+    private void collectSimilar(List<String> queryWords, Set<Integer> found, int limit) {
+        Set<String> queryTrigrams = trigramsOf(queryWords);
+        int[] shared = new int[entries.size()];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (String trigram : queryTrigrams) {
+            Slots matching = trigrams.get(trigram);
+            if (matching == null) {
+                continue;
+            }
+            for (int i = 0; i < matching.size; i++) {
+                int slot = matching.values[i];
+                if (shared[slot]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = slot;
+                }
+            }
+        }
+        int required = (int) Math.ceil(queryTrigrams.size() * MIN_SIMILARITY);
+        List<Integer> similar = new ArrayList<>();
+        for (int i = 0; i < touchedCount; i++) {
+            if (shared[touched[i]] >= required && !found.contains(touched[i])) {
+                similar.add(touched[i]);
+            }
+        }
+        // most shared trigrams first, then the shorter, i.e. closer, name
+        similar.sort(Comparator.<Integer>comparingInt(slot -> -shared[slot])
+                .thenComparingInt(slot -> entries.get(slot).name().length()));
+        for (Integer slot : similar) {
+            if (found.size() >= limit) {
+                return;
+            }
+            found.add(slot);
+        }
+    }
+
+    private void add(Entry entry) {
+        List<String> nameWords = ItemSearchIndex.terms(entry.name());
+        if (nameWords.isEmpty()) {
+            return;
+        }
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = entries.size();
+            entries.add(entry);
+        } else {
+            slot = freeSlots.pop();
+            entries.set(slot, entry);
+        }
+        slots.put(new Key(entry.type(), entry.id()), slot);
+        names.computeIfAbsent(String.join(" ", nameWords), name -> new Slots()).add(slot);
+        for (String word : new LinkedHashSet<>(nameWords)) {
+            words.computeIfAbsent(word, w -> new Slots()).add(slot);
+        }
+        for (String trigram : trigramsOf(nameWords)) {
+            trigrams.computeIfAbsent(trigram, t -> new Slots()).add(slot);
+        }
+    }
+
+    private void remove(Key key) {
+        Integer slot = slots.remove(key);
+        if (slot == null) {
+            return;
+        }
+        List<String> nameWords = ItemSearchIndex.terms(entries.get(slot).name());
+        removeSlot(names, String.join(" ", nameWords), slot);
+        for (String word : new LinkedHashSet<>(nameWords)) {
+            removeSlot(words, word, slot);
+        }
+        for (String trigram : trigramsOf(nameWords)) {
+            removeSlot(trigrams, trigram, slot);
+        }
+        entries.set(slot, null);
+        freeSlots.push(slot);
+    }
+
+    private static void removeSlot(Map<String, Slots> map, String key, int slot) {
+        Slots matching = map.get(key);
+        if (matching != null && matching.remove(slot) && matching.size == 0) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * Trigrams of the words, each word padded like PostgreSQL's pg_trgm does, so beginnings weigh more than endings.
+     */
+    static Set<String> trigramsOf(List<String> words) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String word : words) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                result.add(padded.substring(i, i + 3));
+            }
+        }
+        return result;
+    }
+
+    private void load(List<Entry> loaded, String type, String sql) {
+        jdbcTemplate.query(sql, rs -> {
+            loaded.add(new Entry(type, rs.getInt("id"), rs.getString("name")));
+        });
+    }
+
+    private record Key(String type, int id) {
+    }
+
+    private record Entry(String type, int id, String name) {
+    }
+
+    /**
+     * Slots of the entries sharing a name, word or trigram, in ascending order.
+     */
+    private static final class Slots {
+
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int slot) {
+            int index = Arrays.binarySearch(values, 0, size, slot);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            int index = Arrays.binarySearch(values, 0, size, slot);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.model.ItemEntity;
+import de.iske.kistogramm.model.RoomEntity;
+import de.iske.kistogramm.model.StorageEntity;
+import de.iske.kistogramm.model.TagEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Passes new, renamed and removed items, tags, storages and rooms on to the {@link SuggestionIndex} once the
+ * transaction has committed, so rolled back changes never show up as suggestions.
+ */
+@Component
+public class SuggestionListener {
+
+    private final SuggestionIndex suggestionIndex;
+
+    public SuggestionListener(SuggestionIndex suggestionIndex) {
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        switch (entity) {
+            case ItemEntity item -> afterCommit(() -> suggestionIndex.put(SuggestionIndex.ITEM, item.getId(), item.getName()));
+            case TagEntity tag -> afterCommit(() -> suggestionIndex.put(SuggestionIndex.TAG, tag.getId(), tag.getName()));
+            case StorageEntity storage ->
+                    afterCommit(() -> suggestionIndex.put(SuggestionIndex.STORAGE, storage.getId(), storage.getName()));
+            case RoomEntity room -> afterCommit(() -> suggestionIndex.put(SuggestionIndex.ROOM, room.getId(), room.getName()));
+            default -> {
+            }
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        switch (entity) {
+            case ItemEntity item -> afterCommit(() -> suggestionIndex.remove(SuggestionIndex.ITEM, item.getId()));
+            case TagEntity tag -> afterCommit(() -> suggestionIndex.remove(SuggestionIndex.TAG, tag.getId()));
+            case StorageEntity storage -> afterCommit(() -> suggestionIndex.remove(SuggestionIndex.STORAGE, storage.getId()));
+            case RoomEntity room -> afterCommit(() -> suggestionIndex.remove(SuggestionIndex.ROOM, room.getId()));
+            default -> {
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        PendingChanges pending = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(PendingChanges.class::isInstance)
+                .map(PendingChanges.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    PendingChanges changes = new PendingChanges();
+                    TransactionSynchronizationManager.registerSynchronization(changes);
+                    return changes;
+                });
+        pending.changes.add(change);
+    }
+
+    /**
+     * The changes of one transaction in the order they were flushed.
+     */
+    private static class PendingChanges implements TransactionSynchronization {
+
+        private final List<Runnable> changes = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            changes.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.export.ExportScope;
+import de.iske.kistogramm.model.*;
+import jakarta.persistence.PreRemove;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records a tombstone for every exported entity type that is removed, including removals by cascade. Hibernate
+ * obtains this listener from the Spring context, so it can be injected like any other bean.
+ */
+@Component
+public class TombstoneListener {
+
+    private final TombstoneService tombstoneService;
+
+    public TombstoneListener(TombstoneService tombstoneService) {
+        this.tombstoneService = tombstoneService;
+    }
+
+    @PreRemove
+    public void onRemove(Object entity) {
+        switch (entity) {
+            case ItemEntity item -> tombstoneService.record(ExportScope.ITEMS, item.getUuid());
+            case CategoryEntity category -> tombstoneService.record(ExportScope.CATEGORIES, category.getUuid());
+            case TagEntity tag -> tombstoneService.record(ExportScope.TAGS, tag.getUuid());
+            case ImageEntity image -> tombstoneService.record(ExportScope.IMAGES, image.getUuid());
+            case StorageEntity storage -> tombstoneService.record(ExportScope.STORAGES, storage.getUuid());
+            case RoomEntity room -> tombstoneService.record(ExportScope.ROOMS, room.getUuid());
+            case CategoryAttributeTemplateEntity template ->
+                    tombstoneService.record(ExportScope.CATEGORY_ATTRIBUTE_TEMPLATES, template.getUuid());
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.export.ExportScope;
+import de.iske.kistogramm.dto.export.ExportTombstone;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Remembers deleted entities by UUID so that delta exports can carry the deletions along.
+ * <p>
+ * Plain JDBC on purpose: rows are written from JPA remove callbacks, where the entity manager must not be used.
+ * The insert joins the surrounding transaction, so a rolled back delete leaves no tombstone.
+ */
+@Service
+public class TombstoneService {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public TombstoneService(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void record(ExportScope type, UUID uuid) {
+        if (uuid == null) {
+            return;
+        }
+        jdbcTemplate.update(
+                "INSERT INTO tombstones (entity_type, uuid, date_deleted) VALUES (:type, :uuid, :dateDeleted)",
+                new MapSqlParameterSource()
+                        .addValue("type", type.name())
+                        .addValue("uuid", uuid)
+                        .addValue("dateDeleted", Timestamp.valueOf(LocalDateTime.now())));
+    }
+
+    /**
+     * Deletions of the given types at or after {@code since}, oldest first.
+     */
+    public List<ExportTombstone> findSince(LocalDateTime since, Collection<ExportScope> types) {
+        if (types.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "SELECT entity_type, uuid, date_deleted FROM tombstones "
+                        + "WHERE date_deleted >= :since AND entity_type IN (:types) ORDER BY date_deleted, id",
+                new MapSqlParameterSource()
+                        .addValue("since", Timestamp.valueOf(since))
+                        .addValue("types", types.stream().map(ExportScope::name).toList()),
+                (rs, rowNum) -> new ExportTombstone(
+                        ExportScope.valueOf(rs.getString("entity_type")),
+                        rs.getObject("uuid", UUID.class),
+                        rs.getTimestamp("date_deleted").toLocalDateTime()));
+    }
+}
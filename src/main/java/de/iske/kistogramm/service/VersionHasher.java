@@ -0,0 +1,83 @@
+package de.iske.kistogramm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.iske.kistogramm.dto.export.VersionedExport;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Computes the {@link VersionedExport#getVersionHash() version hash} of export rows: the SHA-256 of their JSON with
+ * fields sorted by name, reference lists sorted and empty values left out. Reference lists come from unordered
+ * associations, so their order says nothing about the row; an absent list and an empty one mean the same.
+ */
+@Component
+public class VersionHasher {
+
+    private static final String FIELD = "versionHash";
+
+    private final ObjectMapper objectMapper;
+
+    public VersionHasher(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String hash(VersionedExport row) {
+        JsonNode canonical = canonical(objectMapper.valueToTree(row));
+        ((ObjectNode) canonical).remove(FIELD);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(canonical);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize export row", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Sets the version hash of the row and returns it.
+     */
+    public <T extends VersionedExport> T stamp(T row) {
+        row.setVersionHash(hash(row));
+        return row;
+    }
+
+    static JsonNode canonical(JsonNode node) {
+        if (node.isObject()) {
+            Map<String, JsonNode> fields = new TreeMap<>();
+            node.properties().forEach(field -> {
+                JsonNode value = canonical(field.getValue());
+                if (!value.isNull() && !(value.isContainerNode() && value.isEmpty())) {
+                    fields.put(field.getKey(), value);
+                }
+            });
+            ObjectNode sorted = JsonNodeFactory.instance.objectNode();
+            fields.forEach(sorted::set);
+            return sorted;
+        }
+        if (node.isArray()) {
+            List<JsonNode> elements = new ArrayList<>();
+            node.forEach(element -> elements.add(canonical(element)));
+            if (elements.stream().allMatch(JsonNode::isTextual)) {
+                elements.sort(Comparator.comparing(JsonNode::asText));
+            }
+            ArrayNode sorted = JsonNodeFactory.instance.arrayNode();
+            sorted.addAll(elements);
+            return sorted;
+        }
+        return node;
+    }
+}
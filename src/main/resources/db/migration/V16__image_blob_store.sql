@@ -0,0 +1,3 @@
+ALTER TABLE images ADD COLUMN blob_key VARCHAR(64);
+ALTER TABLE images ADD COLUMN size BIGINT;
+ALTER TABLE images ADD COLUMN content_hash VARCHAR(64);
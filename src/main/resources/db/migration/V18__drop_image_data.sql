@@ -0,0 +1,3 @@
+-- Image bytes now live in the blob store (moved by V17__MoveImageDataToBlobStore)
+ALTER TABLE images DROP COLUMN data;
+ALTER TABLE images ALTER COLUMN blob_key SET NOT NULL;
@@ -0,0 +1 @@
+ALTER TABLE images ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'READY';
@@ -0,0 +1 @@
+CREATE INDEX idx_images_content_hash ON images (content_hash);
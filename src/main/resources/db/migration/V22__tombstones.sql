@@ -0,0 +1,9 @@
+-- Deleted entities, so delta exports can tell the receiving side what to remove
+CREATE TABLE IF NOT EXISTS tombstones (
+    id SERIAL PRIMARY KEY,
+    entity_type VARCHAR(40) NOT NULL,
+    uuid UUID NOT NULL,
+    date_deleted TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_tombstones_date_deleted ON tombstones (date_deleted);
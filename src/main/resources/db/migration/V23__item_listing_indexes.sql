@@ -0,0 +1,14 @@
+-- keyset pagination of GET /api/items: sort key plus id as tie-breaker
+CREATE INDEX idx_items_name_id ON items (name, id);
+CREATE INDEX idx_items_date_modified_id ON items (date_modified, id);
+CREATE INDEX idx_items_purchase_price_id ON items (purchase_price, id);
+
+-- filters of the listing
+CREATE INDEX idx_items_category_id ON items (category_id);
+CREATE INDEX idx_items_storage_id ON items (storage_id);
+CREATE INDEX idx_storages_room_id ON storages (room_id);
+CREATE INDEX idx_item_tags_tag_id ON item_tags (tag_id);
+
+-- batch loading of the image and receipt ids of a page
+CREATE INDEX idx_images_item_id ON images (item_id);
+CREATE INDEX idx_images_receipt_item_id ON images (receipt_item_id);
@@ -0,0 +1,5 @@
+-- descending pages of GET /api/items sort items without a value last as well; the ascending (key, id) indexes of
+-- V23 already keep nulls last, a backward scan of them would put nulls first
+CREATE INDEX idx_items_name_desc_id ON items (name DESC NULLS LAST, id DESC);
+CREATE INDEX idx_items_date_modified_desc_id ON items (date_modified DESC NULLS LAST, id DESC);
+CREATE INDEX idx_items_purchase_price_desc_id ON items (purchase_price DESC NULLS LAST, id DESC);
@@ -1,25 +1,40 @@
 package de.iske.kistogramm.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import de.iske.kistogramm.dto.export.ExportFormat;
 import de.iske.kistogramm.dto.export.ExportImage;
+import de.iske.kistogramm.dto.export.ExportManifest;
 import de.iske.kistogramm.dto.export.ExportResult;
+import de.iske.kistogramm.dto.export.ExportScope;
+import de.iske.kistogramm.dto.export.ExportTag;
+import de.iske.kistogramm.model.TagEntity;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class ExportControllerTest extends AbstractControllerTest {
@@ -85,7 +100,10 @@ class ExportControllerTest extends AbstractControllerTest {
                 Map.of(), List.of(tagDeko), 1);
 
         // Step 6: Perform export
-        MvcResult result = mockMvc.perform(get("/api/export"))
+        MvcResult started = mockMvc.perform(get("/api/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
                 .andExpect(status().isOk())
                 .andExpect(header().string("Content-Type", "application/zip"))
                 .andReturn();
@@ -102,17 +120,173 @@ class ExportControllerTest extends AbstractControllerTest {
         ExportResult export = objectMapper.readValue(extractedFiles.get("data.json"), ExportResult.class);
 
         // Step 5: Validate ExportResult contents
+        assertThat(export.getVersion()).isEqualTo(ExportResult.VERSION);
         assertThat(export.getCategories()).isNotEmpty();
         assertThat(export.getRooms()).isNotEmpty();
         assertThat(export.getItems()).isNotEmpty();
         assertThat(export.getTags()).isNotEmpty();
         assertThat(export.getImages()).isNotEmpty();
 
-        // Step 6: Prüfen ob zu jeder Image-UUID eine Datei im ZIP liegt
-        for (ExportImage image : export.getImages()) {
-            String imageFileName = "images/" + image.getUuid();
-            assertThat(extractedFiles).containsKey(imageFileName);
+        // Step 6: Prüfen ob zu jedem Bildinhalt genau eine Datei im ZIP liegt
+        Map<String, List<ExportImage>> imagesByContent = export.getImages().stream()
+                .collect(Collectors.groupingBy(ExportImage::getContentHash));
+        for (List<ExportImage> sameContent : imagesByContent.values()) {
+            assertThat(sameContent)
+                    .filteredOn(image -> extractedFiles.containsKey("images/" + image.getUuid()))
+                    .hasSize(1);
+        }
+        assertThat(extractedFiles.keySet()).filteredOn(name -> name.startsWith("images/"))
+                .hasSize(imagesByContent.size());
+
+        // Step 7: JPEGs werden unkomprimiert abgelegt, data.json komprimiert
+        Map<String, Integer> methods = zipEntryMethods(zipBytes);
+        assertThat(methods.get("data.json")).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(methods).allSatisfy((name, method) -> {
+            if (name.startsWith("images/")) {
+                assertThat(method).isEqualTo(ZipEntry.STORED);
+            }
+        });
+    }
+
+    @Test
+    void shouldExportOnlyChangesSinceWatermark() throws Exception {
+        TestDataUtil.createTag(mockMvc, objectMapper, "Alt");
+        int wegId = TestDataUtil.createTag(mockMvc, objectMapper, "Weg");
+        UUID wegUuid = tagRepository.findById(wegId).orElseThrow().getUuid();
+        Thread.sleep(10);
+        LocalDateTime since = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+        TestDataUtil.createTag(mockMvc, objectMapper, "Neu");
+        mockMvc.perform(delete("/api/tags/{id}", wegId)).andExpect(status().is2xxSuccessful());
+
+        MvcResult started = mockMvc.perform(get("/api/export")
+                        .param("since", since.toString())
+                        .param("scope", "TAGS"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Map<String, byte[]> extractedFiles = extractZipContents(result.getResponse().getContentAsByteArray());
+        ExportResult export = objectMapper.readValue(extractedFiles.get("data.json"), ExportResult.class);
+
+        assertThat(export.getSince()).isEqualTo(since);
+        assertThat(export.getTags()).extracting(ExportTag::getName).containsExactly("Neu");
+        assertThat(export.getItems()).isNull();
+        assertThat(export.getImages()).isNull();
+        assertThat(export.getDeleted()).singleElement().satisfies(tombstone -> {
+            assertThat(tombstone.getType()).isEqualTo(ExportScope.TAGS);
+            assertThat(tombstone.getUuid()).isEqualTo(wegUuid);
+        });
+        assertThat(extractedFiles.keySet()).containsExactly("data.json");
+    }
+
+    @Test
+    void shouldExportChangeCommittedAfterPreviousExportInNextDelta() throws Exception {
+        TestDataUtil.createTag(mockMvc, objectMapper, "Alt");
+        ExportResult first = exportTagsSince(null);
+
+        assertThat(first.getWatermark()).isBefore(first.getExportedAt());
+
+        // stamped before the first export read the tags, committed after it
+        TagEntity late = new TagEntity();
+        late.setName("Spät");
+        late.setDateAdded(first.getExportedAt().minusSeconds(1));
+        late.setDateModified(first.getExportedAt().minusSeconds(1));
+        tagRepository.save(late);
+
+        ExportResult next = exportTagsSince(first.getWatermark());
+
+        assertThat(next.getTags()).extracting(ExportTag::getName).contains("Spät");
+    }
+
+    @Test
+    void shouldExportEveryRowAcrossPages() throws Exception {
+        // two full pages of 500, so the last page comes back empty
+        List<TagEntity> tags = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            TagEntity tag = new TagEntity();
+            tag.setName("Tag " + i);
+            tag.setDateAdded(LocalDateTime.now());
+            tag.setDateModified(LocalDateTime.now());
+            tags.add(tag);
+        }
+        tagRepository.saveAll(tags);
+
+        ExportResult export = exportTagsSince(null);
+
+        assertThat(export.getTags()).hasSize(1000);
+        assertThat(export.getTags()).extracting(ExportTag::getName).doesNotHaveDuplicates();
+    }
+
+    private ExportResult exportTagsSince(LocalDateTime since) throws Exception {
+        MockHttpServletRequestBuilder export = get("/api/export").param("scope", "TAGS");
+        if (since != null) {
+            export.param("since", since.toString());
+        }
+        MvcResult started = mockMvc.perform(export)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+        Map<String, byte[]> extractedFiles = extractZipContents(result.getResponse().getContentAsByteArray());
+        return objectMapper.readValue(extractedFiles.get("data.json"), ExportResult.class);
+    }
+
+    @Test
+    void shouldExportShardedNdjsonArchive() throws Exception {
+        TestDataUtil.createTag(mockMvc, objectMapper, "Werkzeug");
+        TestDataUtil.createTag(mockMvc, objectMapper, "Garten");
+
+        MvcResult started = mockMvc.perform(get("/api/export")
+                        .param("format", "NDJSON")
+                        .param("scope", "TAGS"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Map<String, byte[]> extractedFiles = extractZipContents(result.getResponse().getContentAsByteArray());
+        ExportManifest manifest = objectMapper.readValue(extractedFiles.get("manifest.json"), ExportManifest.class);
+
+        assertThat(extractedFiles).doesNotContainKey("data.json");
+        assertThat(manifest.getVersion()).isEqualTo(ExportManifest.VERSION);
+        assertThat(manifest.getFormat()).isEqualTo(ExportFormat.NDJSON);
+        assertThat(manifest.getEntities()).containsOnlyKeys("tags");
+        ExportManifest.Shards tags = manifest.getEntities().get("tags");
+        assertThat(tags.getCount()).isEqualTo(2);
+        assertThat(tags.getFiles()).containsExactly("tags/00000.ndjson");
+        List<String> lines = new String(extractedFiles.get("tags/00000.ndjson"), StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.stream().map(line -> readTag(line).getName())).containsExactly("Werkzeug", "Garten");
+    }
+
+    @Test
+    void shouldRejectArchiveFormatWithoutArchiveLayout() throws Exception {
+        mockMvc.perform(get("/api/export").param("format", "CSV"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ExportTag readTag(String line) {
+        try {
+            return objectMapper.readValue(line, ExportTag.class);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Integer> zipEntryMethods(byte[] zipBytes) throws IOException {
+        Map<String, Integer> methods = new HashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                methods.put(entry.getName(), entry.getMethod());
+            }
         }
+        return methods;
     }
 
     private Map<String, byte[]> extractZipContents(byte[] zipBytes) throws IOException {
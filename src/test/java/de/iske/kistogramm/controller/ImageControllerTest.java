@@ -1,4 +1,172 @@
 package de.iske.kistogramm.controller;
 
-class ImageControllerTest {
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.iske.kistogramm.dto.Image;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ImageControllerTest extends AbstractControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${images.rendition-dir}")
+    private String renditionDir;
+
+    @Test
+    void shouldStreamImageDataWithETagAndRangeSupport() throws Exception {
+        byte[] imageData = "0123456789".getBytes(StandardCharsets.UTF_8);
+        MockMultipartFile file = new MockMultipartFile("file", "image.png", MediaType.IMAGE_PNG_VALUE, imageData);
+
+        Image image = objectMapper.readValue(mockMvc.perform(multipart("/api/images/upload").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), Image.class);
+
+        // full download
+        String etag = mockMvc.perform(get("/api/images/" + image.getId() + "/data"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(content().bytes(imageData))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+
+        // conditional request with a matching ETag
+        mockMvc.perform(get("/api/images/" + image.getId() + "/data")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // byte range
+        mockMvc.perform(get("/api/images/" + image.getId() + "/data")
+                        .header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("2345".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void shouldListImageMetadataWithoutData() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "image.jpg", MediaType.IMAGE_JPEG_VALUE,
+                "some image bytes".getBytes(StandardCharsets.UTF_8));
+        Image image = objectMapper.readValue(mockMvc.perform(multipart("/api/images/upload").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), Image.class);
+
+        mockMvc.perform(get("/api/images"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(image.getId()))
+                .andExpect(jsonPath("$[0].size").value(16))
+                .andExpect(jsonPath("$[0].contentHash").value(image.getContentHash()))
+                .andExpect(jsonPath("$[0].dataUrl").value("/api/images/" + image.getId() + "/data"))
+                .andExpect(jsonPath("$[0].data").doesNotExist());
+    }
+
+    @Test
+    void shouldServeDownscaledRendition() throws Exception {
+        BufferedImage source = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(source, "png", png);
+        MockMultipartFile file = new MockMultipartFile("file", "large.png", MediaType.IMAGE_PNG_VALUE, png.toByteArray());
+
+        Image image = objectMapper.readValue(mockMvc.perform(multipart("/api/images/upload").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), Image.class);
+        assertThat(image.getWidth()).isEqualTo(800);
+        assertThat(image.getThumbnailUrl()).isEqualTo("/api/images/" + image.getId() + "/data?size=thumb");
+
+        for (int i = 0; i < 2; i++) { // second request is served from the rendition cache
+            byte[] thumb = mockMvc.perform(get(image.getThumbnailUrl()))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                    .andExpect(header().string(HttpHeaders.ETAG, containsString(image.getContentHash() + "-thumb")))
+                    .andReturn().getResponse().getContentAsByteArray();
+            BufferedImage rendition = ImageIO.read(new ByteArrayInputStream(thumb));
+            assertThat(rendition.getWidth()).isEqualTo(128);
+            assertThat(rendition.getHeight()).isEqualTo(64);
+        }
+
+        mockMvc.perform(get("/api/images/" + image.getId() + "/data").param("size", "huge"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldServeOriginalWithoutRenderingWhenNoRenditionApplies() throws Exception {
+        BufferedImage source = new BufferedImage(64, 32, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(source, "png", png);
+        Image small = upload(new MockMultipartFile("file", "small.png", MediaType.IMAGE_PNG_VALUE, png.toByteArray()));
+        Image broken = upload(new MockMultipartFile("file", "broken.jpg", MediaType.IMAGE_JPEG_VALUE,
+                "not a jpeg".getBytes(StandardCharsets.UTF_8)));
+
+        for (int i = 0; i < 2; i++) { // second request is answered from the marker
+            mockMvc.perform(get(small.getThumbnailUrl()))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(png.toByteArray()));
+            mockMvc.perform(get(broken.getThumbnailUrl()))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes("not a jpeg".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // the stored dimensions tell that the small image fits, without reading it
+        Path thumbs = Path.of(renditionDir, "128");
+        assertThat(thumbs.resolve(small.getContentHash() + ".original")).doesNotExist();
+        assertThat(thumbs.resolve(broken.getContentHash() + ".original")).exists();
+    }
+
+    private Image upload(MockMultipartFile file) throws Exception {
+        return objectMapper.readValue(mockMvc.perform(multipart("/api/images/upload").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), Image.class);
+    }
+
+    @Test
+    void shouldStoreIdenticalContentOnceAndReportSavings() throws Exception {
+        byte[] imageData = "same receipt".getBytes(StandardCharsets.UTF_8);
+        MockMultipartFile file = new MockMultipartFile("file", "receipt.jpg", MediaType.IMAGE_JPEG_VALUE, imageData);
+
+        Image first = objectMapper.readValue(mockMvc.perform(multipart("/api/images/upload").file(file))
+                .andReturn().getResponse().getContentAsString(), Image.class);
+        Image second = objectMapper.readValue(mockMvc.perform(multipart("/api/images/upload").file(file))
+                .andReturn().getResponse().getContentAsString(), Image.class);
+
+        assertThat(second.getId()).isNotEqualTo(first.getId());
+        assertThat(second.getContentHash()).isEqualTo(first.getContentHash());
+
+        mockMvc.perform(get("/api/images/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imageCount").value(2))
+                .andExpect(jsonPath("$.uniqueContentCount").value(1))
+                .andExpect(jsonPath("$.totalBytes").value(2 * imageData.length))
+                .andExpect(jsonPath("$.storedBytes").value(imageData.length))
+                .andExpect(jsonPath("$.savedBytes").value(imageData.length));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownImageData() throws Exception {
+        mockMvc.perform(get("/api/images/999999/data"))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -1,28 +1,57 @@
 package de.iske.kistogramm.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import de.iske.kistogramm.dto.ImportJobStatus;
 import de.iske.kistogramm.dto.ImportResult;
+import de.iske.kistogramm.dto.ImportUploadStatus;
+import de.iske.kistogramm.dto.export.ExportItem;
+import de.iske.kistogramm.dto.export.ExportManifest;
 import de.iske.kistogramm.dto.export.ExportResult;
+import de.iske.kistogramm.dto.export.ExportScope;
+import de.iske.kistogramm.dto.export.ExportStorage;
+import de.iske.kistogramm.dto.export.ExportTag;
+import de.iske.kistogramm.dto.export.ExportTombstone;
 import de.iske.kistogramm.repository.*;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class ImportControllerTest extends AbstractControllerTest {
@@ -47,6 +76,8 @@ class ImportControllerTest extends AbstractControllerTest {
     private ImageRepository imageRepository;
     @Autowired
     private CategoryAttributeTemplateRepository categoryAttributeTemplateRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @Test
     void shouldExportAndImportArchive() throws Exception {
@@ -90,7 +121,10 @@ class ImportControllerTest extends AbstractControllerTest {
                 Map.of(), List.of(tagDeko), 1);
 
         // export archive
-        MvcResult exportRes = mockMvc.perform(get("/api/export"))
+        MvcResult exportStarted = mockMvc.perform(get("/api/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult exportRes = mockMvc.perform(asyncDispatch(exportStarted))
                 .andExpect(status().isOk())
                 .andReturn();
         byte[] zipBytes = exportRes.getResponse().getContentAsByteArray();
@@ -107,10 +141,11 @@ class ImportControllerTest extends AbstractControllerTest {
         imageRepository.deleteAll();
 
         MockMultipartFile file = new MockMultipartFile("file", "export.zip", MediaType.APPLICATION_OCTET_STREAM_VALUE, zipBytes);
-        String resp = mockMvc.perform(multipart("/api/import").file(file))
-                .andExpect(status().isOk())
-                .andReturn().getResponse().getContentAsString();
-        ImportResult importResult = objectMapper.readValue(resp, ImportResult.class);
+        ImportJobStatus job = runImport(multipart("/api/import").file(file));
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getProcessedCount()).isEqualTo(job.getTotalCount());
+        assertThat(job.getProcessed()).isEqualTo(job.getTotal());
+        ImportResult importResult = job.getResult();
         assertThat(importResult.isSuccess()).isTrue();
         assertThat(itemRepository.count()).isEqualTo(exportResult.getItems().size());
         assertThat(categoryRepository.count()).isEqualTo(exportResult.getCategories().size());
@@ -129,7 +164,10 @@ class ImportControllerTest extends AbstractControllerTest {
         int itemId = TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "BuchA", "desc", storageId, catId,
                 Map.of("Autor", "A"), List.of(tagId), 1);
 
-        MvcResult exportRes = mockMvc.perform(get("/api/export"))
+        MvcResult exportStarted = mockMvc.perform(get("/api/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult exportRes = mockMvc.perform(asyncDispatch(exportStarted))
                 .andExpect(status().isOk())
                 .andReturn();
         byte[] zipBytes = exportRes.getResponse().getContentAsByteArray();
@@ -142,15 +180,93 @@ class ImportControllerTest extends AbstractControllerTest {
         itemRepository.save(entity);
 
         MockMultipartFile file = new MockMultipartFile("file", "export.zip", MediaType.APPLICATION_OCTET_STREAM_VALUE, zipBytes);
-        mockMvc.perform(multipart("/api/import").file(file).param("overwrite","false"))
-                .andExpect(status().isOk());
+        runImport(multipart("/api/import").file(file).param("overwrite","false"));
         assertThat(itemRepository.findById(itemId).orElseThrow().getName()).isEqualTo("Changed");
 
-        mockMvc.perform(multipart("/api/import").file(file).param("overwrite","true"))
-                .andExpect(status().isOk());
+        runImport(multipart("/api/import").file(file).param("overwrite","true"));
         assertThat(itemRepository.findById(itemId).orElseThrow().getName()).isEqualTo(originalName);
     }
 
+    @Test
+    void shouldReturnNotFoundForUnknownImportJob() throws Exception {
+        mockMvc.perform(get("/api/import/{jobId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/import/{jobId}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldLeaveFinishedJobUnchangedWhenCancelled() throws Exception {
+        ExportResult data = new ExportResult();
+        data.setTags(List.of(exportTag("Werkzeug")));
+        ImportJobStatus job = runImport(multipart("/api/import").file(archiveOf(data)));
+
+        String resp = mockMvc.perform(delete("/api/import/{jobId}", job.getJobId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(objectMapper.readValue(resp, ImportJobStatus.class).getStatus()).isEqualTo("COMPLETED");
+        assertThat(tagRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectCorruptArchiveWithBadRequestAndDeleteSpooledFile() throws Exception {
+        Set<Path> spooledBefore = spooledArchives();
+        byte[] archive = archiveOf(new ExportResult()).getBytes();
+        byte[] truncated = Arrays.copyOf(archive, archive.length / 2);
+
+        for (byte[] content : List.of("kein Archiv".getBytes(StandardCharsets.UTF_8), truncated)) {
+            MockMultipartFile file = new MockMultipartFile("file", "export.zip", "application/zip", content);
+            mockMvc.perform(multipart("/api/import").file(file))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value(startsWith("Invalid ZIP archive")));
+        }
+
+        assertThat(spooledArchives()).isEqualTo(spooledBefore);
+    }
+
+    @Test
+    void shouldDeleteSpooledArchiveOnceImportHasFinished() throws Exception {
+        Set<Path> spooledBefore = spooledArchives();
+        ExportResult data = new ExportResult();
+        data.setTags(List.of(exportTag("Werkzeug")));
+
+        ImportJobStatus job = runImport(multipart("/api/import").file(archiveOf(data)));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(spooledArchives()).isEqualTo(spooledBefore);
+    }
+
+    private static Set<Path> spooledArchives() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("kistogramm-import-"))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Starts an import job and polls it until it has finished.
+     */
+    private ImportJobStatus runImport(MockHttpServletRequestBuilder request) throws Exception {
+        String resp = mockMvc.perform(request)
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        ImportJobStatus job = objectMapper.readValue(resp, ImportJobStatus.class);
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!isFinished(job) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            resp = mockMvc.perform(get("/api/import/{jobId}", job.getJobId()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            job = objectMapper.readValue(resp, ImportJobStatus.class);
+        }
+        assertThat(isFinished(job)).isTrue();
+        return job;
+    }
+
+    private static boolean isFinished(ImportJobStatus job) {
+        return !"QUEUED".equals(job.getStatus()) && !"RUNNING".equals(job.getStatus());
+    }
+
     private Map<String, byte[]> extractZipContents(byte[] zipBytes) throws IOException {
         Map<String, byte[]> files = new HashMap<>();
         try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
@@ -175,11 +291,277 @@ class ImportControllerTest extends AbstractControllerTest {
         }
 
         MockMultipartFile file = new MockMultipartFile("file", "nodata.zip", MediaType.APPLICATION_OCTET_STREAM_VALUE, baos.toByteArray());
-        String resp = mockMvc.perform(multipart("/api/import").file(file))
-                .andExpect(status().isBadRequest())
-                .andReturn().getResponse().getContentAsString();
-        ImportResult result = objectMapper.readValue(resp, ImportResult.class);
+        ImportJobStatus job = runImport(multipart("/api/import").file(file));
+        assertThat(job.getStatus()).isEqualTo("FAILED");
+        ImportResult result = job.getResult();
         assertThat(result.isSuccess()).isFalse();
         assertThat(result.getErrors()).contains("data.json missing in archive");
     }
+
+    @Test
+    void shouldRestoreReferencesBetweenImportedEntities() throws Exception {
+        ExportTag tagA = exportTag("Werkzeug");
+        ExportTag tagB = exportTag("Garten");
+        ExportStorage parent = exportStorage("Schrank", null);
+        ExportStorage child = exportStorage("Schublade", parent.getUuid());
+        ExportItem hammer = exportItem("Hammer", child.getUuid(), List.of(tagA.getUuid(), tagB.getUuid()));
+        ExportItem zange = exportItem("Zange", child.getUuid(), List.of(tagA.getUuid()));
+        hammer.setRelatedItems(List.of(zange.getUuid()));
+        zange.setRelatedItems(List.of(hammer.getUuid()));
+
+        ExportResult data = new ExportResult();
+        data.setTags(List.of(tagA, tagB));
+        // child first, so its parent is not yet persisted when the child is
+        data.setStorages(List.of(child, parent));
+        data.setItems(List.of(hammer, zange));
+
+        runImport(multipart("/api/import").file(archiveOf(data)));
+
+        Integer parentId = storageRepository.findByUuid(parent.getUuid()).orElseThrow().getId();
+        assertThat(jdbcTemplate.queryForObject("SELECT parent_storage_id FROM storages WHERE uuid = ?",
+                Integer.class, child.getUuid())).isEqualTo(parentId);
+        assertThat(countRows("item_tags", hammer.getUuid())).isEqualTo(2);
+        assertThat(countRows("item_related", hammer.getUuid())).isEqualTo(1);
+        assertThat(countRows("item_related", zange.getUuid())).isEqualTo(1);
+
+        // overwriting replaces the tags instead of adding to them
+        hammer.setTags(List.of(tagB.getUuid()));
+        runImport(multipart("/api/import").file(archiveOf(data)).param("overwrite", "true"));
+        assertThat(countRows("item_tags", hammer.getUuid())).isEqualTo(1);
+        assertThat(countRows("item_related", hammer.getUuid())).isEqualTo(1);
+    }
+
+    @Test
+    void shouldApplyDeltaArchive() throws Exception {
+        ExportTag werkzeug = exportTag("Werkzeug");
+        ExportTag garten = exportTag("Garten");
+        ExportStorage schrank = exportStorage("Schrank", null);
+        ExportItem hammer = exportItem("Hammer", schrank.getUuid(), List.of(werkzeug.getUuid()));
+        ExportItem rechen = exportItem("Rechen", schrank.getUuid(), List.of(garten.getUuid()));
+
+        ExportResult full = new ExportResult();
+        full.setTags(List.of(werkzeug, garten));
+        full.setStorages(List.of(schrank));
+        full.setItems(List.of(hammer, rechen));
+        runImport(multipart("/api/import").file(archiveOf(full)));
+
+        // the delta only carries the changed item; its storage and tag are already there
+        hammer.setName("Vorschlaghammer");
+        ExportResult delta = new ExportResult();
+        delta.setSince(LocalDateTime.now().minusHours(1));
+        delta.setItems(List.of(hammer));
+        delta.setDeleted(List.of(new ExportTombstone(ExportScope.ITEMS, rechen.getUuid(), LocalDateTime.now())));
+
+        ImportJobStatus job = runImport(multipart("/api/import").file(archiveOf(delta)));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getResult().isOverwriteMode()).isTrue();
+        assertThat(job.getResult().getDeletedTotalCount()).isEqualTo(1);
+        assertThat(itemRepository.findByUuid(hammer.getUuid()).orElseThrow().getName()).isEqualTo("Vorschlaghammer");
+        assertThat(jdbcTemplate.queryForObject("SELECT s.uuid FROM items i JOIN storages s ON s.id = i.storage_id WHERE i.uuid = ?",
+                UUID.class, hammer.getUuid())).isEqualTo(schrank.getUuid());
+        assertThat(countRows("item_tags", hammer.getUuid())).isEqualTo(1);
+        assertThat(itemRepository.findByUuid(rechen.getUuid())).isEmpty();
+    }
+
+    @Test
+    void shouldLeaveUnchangedRowsAloneOnOverwrite() throws Exception {
+        int roomId = TestDataUtil.createRoomWithImage(mockMvc, objectMapper, "Keller", "Vorräte");
+        int storageId = TestDataUtil.createStorageWithImage(mockMvc, objectMapper, "Regal", "Metall", roomId);
+        int tagId = TestDataUtil.createTag(mockMvc, objectMapper, "Werkzeug");
+        int categoryId = TestDataUtil.createCategoryWithTemplate(mockMvc, objectMapper, "Buch", List.of("Autor"));
+        TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "Roman", "Historisch", storageId, categoryId,
+                Map.of("Autor", "M. Mustermann"), List.of(tagId), 2);
+
+        MvcResult exportStarted = mockMvc.perform(get("/api/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] zipBytes = mockMvc.perform(asyncDispatch(exportStarted))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        MockMultipartFile file = new MockMultipartFile("file", "export.zip", MediaType.APPLICATION_OCTET_STREAM_VALUE, zipBytes);
+
+        ImportJobStatus unchanged = runImport(multipart("/api/import").file(file).param("overwrite", "true"));
+        assertThat(unchanged.getStatus()).isEqualTo("COMPLETED");
+        assertThat(unchanged.getResult().getUpdatedTotalCount()).isZero();
+        assertThat(unchanged.getResult().getImportedTotalCount()).isZero();
+        assertThat(unchanged.getResult().getUnchangedTotalCount()).isEqualTo(unchanged.getTotalCount());
+
+        var tag = tagRepository.findById(tagId).orElseThrow();
+        tag.setName("Werkzeuge");
+        tagRepository.save(tag);
+
+        ImportJobStatus oneChanged = runImport(multipart("/api/import").file(file).param("overwrite", "true"));
+        assertThat(oneChanged.getResult().getUpdatedTotalCount()).isEqualTo(1);
+        assertThat(oneChanged.getResult().getUnchangedTotalCount()).isEqualTo(oneChanged.getTotalCount() - 1);
+        assertThat(tagRepository.findById(tagId).orElseThrow().getName()).isEqualTo("Werkzeug");
+    }
+
+    @Test
+    void shouldImportRestOfBatchWhenOneRowFails() throws Exception {
+        int werkzeugId = TestDataUtil.createTag(mockMvc, objectMapper, "Werkzeug");
+        TestDataUtil.createTag(mockMvc, objectMapper, "Garten");
+        // renaming an existing tag to a taken name only fails once the batch is flushed
+        ExportTag renamed = exportTag("Garten");
+        renamed.setUuid(tagRepository.findById(werkzeugId).orElseThrow().getUuid());
+        ExportTag kueche = exportTag("Küche");
+        ExportTag sport = exportTag("Sport");
+        ExportResult data = new ExportResult();
+        data.setTags(List.of(renamed, kueche, sport));
+
+        ImportJobStatus job = runImport(multipart("/api/import").file(archiveOf(data))
+                .param("overwrite", "true")
+                .param("failOnError", "false"));
+
+        ImportResult result = job.getResult();
+        assertThat(result.getImportedTotalCount()).isEqualTo(2);
+        assertThat(result.getFailedTotalCount()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().asString().contains(renamed.getUuid().toString());
+        assertThat(tagRepository.findByUuid(kueche.getUuid())).isPresent();
+        assertThat(tagRepository.findByUuid(sport.getUuid())).isPresent();
+        assertThat(tagRepository.findById(werkzeugId).orElseThrow().getName()).isEqualTo("Werkzeug");
+    }
+
+    @Test
+    void shouldImportShardedArchive() throws Exception {
+        ExportTag werkzeug = exportTag("Werkzeug");
+        ExportTag garten = exportTag("Garten");
+        ExportStorage schrank = exportStorage("Schrank", null);
+        ExportItem hammer = exportItem("Hammer", schrank.getUuid(), List.of(werkzeug.getUuid()));
+        ExportItem zange = exportItem("Zange", schrank.getUuid(), List.of(werkzeug.getUuid()));
+        ExportItem rechen = exportItem("Rechen", schrank.getUuid(), List.of(garten.getUuid()));
+        rechen.setRelatedItems(List.of(hammer.getUuid()));
+
+        // items are spread over two shards, the relation points from the second shard into the first
+        ImportJobStatus job = runImport(multipart("/api/import").file(shardedArchiveOf(Map.<String, List<List<?>>>of(
+                "tags", List.of(List.of(werkzeug, garten)),
+                "storages", List.of(List.of(schrank)),
+                "items", List.of(List.of(hammer, zange), List.of(rechen))))));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getTotal()).containsEntry("items", 3).containsEntry("tags", 2).containsEntry("storages", 1);
+        assertThat(job.getProcessed()).isEqualTo(job.getTotal());
+        assertThat(itemRepository.count()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT s.uuid FROM items i JOIN storages s ON s.id = i.storage_id WHERE i.uuid = ?",
+                UUID.class, rechen.getUuid())).isEqualTo(schrank.getUuid());
+        assertThat(countRows("item_tags", zange.getUuid())).isEqualTo(1);
+        assertThat(countRows("item_related", rechen.getUuid())).isEqualTo(1);
+    }
+
+    @Test
+    void shouldImportArchiveUploadedInChunks() throws Exception {
+        ExportTag tag = exportTag("Werkzeug");
+        ExportStorage storage = exportStorage("Schrank", null);
+        ExportItem hammer = exportItem("Hammer", storage.getUuid(), List.of(tag.getUuid()));
+        ExportResult data = new ExportResult();
+        data.setTags(List.of(tag));
+        data.setStorages(List.of(storage));
+        data.setItems(List.of(hammer));
+        byte[] archive = archiveOf(data).getBytes();
+        byte[] first = Arrays.copyOfRange(archive, 0, archive.length / 2);
+        byte[] second = Arrays.copyOfRange(archive, archive.length / 2, archive.length);
+
+        String resp = mockMvc.perform(post("/api/import/uploads").param("size", String.valueOf(archive.length)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        UUID uploadId = objectMapper.readValue(resp, ImportUploadStatus.class).getUploadId();
+
+        mockMvc.perform(put("/api/import/uploads/{uploadId}", uploadId).param("offset", "0")
+                        .param("sha256", sha256(first)).content(first))
+                .andExpect(status().isOk());
+        // a chunk that does not continue the upload, and one that does not match its checksum, are not kept
+        mockMvc.perform(put("/api/import/uploads/{uploadId}", uploadId).param("offset", "0").content(second))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/api/import/uploads/{uploadId}", uploadId).param("offset", String.valueOf(first.length))
+                        .param("sha256", sha256(first)).content(second))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/import/uploads/{uploadId}/complete", uploadId))
+                .andExpect(status().isConflict());
+
+        resp = mockMvc.perform(get("/api/import/uploads/{uploadId}", uploadId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long received = objectMapper.readValue(resp, ImportUploadStatus.class).getReceived();
+        assertThat(received).isEqualTo(first.length);
+
+        mockMvc.perform(put("/api/import/uploads/{uploadId}", uploadId).param("offset", String.valueOf(received))
+                        .param("sha256", sha256(second)).content(second))
+                .andExpect(status().isOk());
+        ImportJobStatus job = runImport(post("/api/import/uploads/{uploadId}/complete", uploadId)
+                .param("sha256", sha256(archive)));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(itemRepository.findByUuid(hammer.getUuid())).isPresent();
+        mockMvc.perform(get("/api/import/uploads/{uploadId}", uploadId))
+                .andExpect(status().isNotFound());
+    }
+
+    private int countRows(String linkTable, UUID itemUuid) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + linkTable
+                + " l JOIN items i ON i.id = l.item_id WHERE i.uuid = ?", Integer.class, itemUuid);
+    }
+
+    private MockMultipartFile archiveOf(ExportResult data) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(new ZipEntry("data.json"));
+            zos.write(objectMapper.writeValueAsBytes(data));
+            zos.closeEntry();
+        }
+        return new MockMultipartFile("file", "export.zip", MediaType.APPLICATION_OCTET_STREAM_VALUE, baos.toByteArray());
+    }
+
+    private MockMultipartFile shardedArchiveOf(Map<String, List<List<?>>> shardsByType) throws IOException {
+        ExportManifest manifest = new ExportManifest();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            for (Map.Entry<String, List<List<?>>> type : shardsByType.entrySet()) {
+                ExportManifest.Shards shards = new ExportManifest.Shards();
+                for (List<?> shard : type.getValue()) {
+                    String name = "%s/%05d.ndjson".formatted(type.getKey(), shards.getFiles().size());
+                    zos.putNextEntry(new ZipEntry(name));
+                    for (Object row : shard) {
+                        zos.write(objectMapper.writeValueAsBytes(row));
+                        zos.write('\n');
+                    }
+                    zos.closeEntry();
+                    shards.getFiles().add(name);
+                    shards.setCount(shards.getCount() + shard.size());
+                }
+                manifest.getEntities().put(type.getKey(), shards);
+            }
+            zos.putNextEntry(new ZipEntry("manifest.json"));
+            zos.write(objectMapper.writeValueAsBytes(manifest));
+            zos.closeEntry();
+        }
+        return new MockMultipartFile("file", "export.zip", MediaType.APPLICATION_OCTET_STREAM_VALUE, baos.toByteArray());
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private static ExportTag exportTag(String name) {
+        ExportTag tag = new ExportTag();
+        tag.setUuid(UUID.randomUUID());
+        tag.setName(name);
+        return tag;
+    }
+
+    private static ExportStorage exportStorage(String name, UUID parentStorage) {
+        ExportStorage storage = new ExportStorage();
+        storage.setUuid(UUID.randomUUID());
+        storage.setName(name);
+        storage.setParentStorage(parentStorage);
+        return storage;
+    }
+
+    private static ExportItem exportItem(String name, UUID storage, List<UUID> tags) {
+        ExportItem item = new ExportItem();
+        item.setUuid(UUID.randomUUID());
+        item.setName(name);
+        item.setStorage(storage);
+        item.setTags(tags);
+        return item;
+    }
 }
@@ -1,21 +1,29 @@
 package de.iske.kistogramm.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import de.iske.kistogramm.dto.FacetCount;
 import de.iske.kistogramm.dto.Item;
+import de.iske.kistogramm.dto.ItemFacets;
 import de.iske.kistogramm.dto.Room;
 import de.iske.kistogramm.dto.Storage;
+import de.iske.kistogramm.service.ItemService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -805,4 +813,147 @@ class ItemControllerTest extends AbstractControllerTest {
         assertThat(updatedItem.getStorageId()).isNull();
         assertThat(updatedItem.getDateModified()).isNotNull();
     }
+
+    @Test
+    void shouldPageThroughItemsSortedByPrice() throws Exception {
+        Item hammer = createItem("Hammer", 12.5, electronicCategoryId);
+        Item zange = createItem("Zange", 7.0, electronicCategoryId);
+        Item kabel = createItem("Kabel", null, electronicCategoryId);
+        Item bohrer = createItem("Bohrer", 7.0, electronicCategoryId);
+        createItem("Mütze", 5.0, clothingCategoryId);
+
+        List<Integer> ids = new ArrayList<>();
+        int pages = 0;
+        MockHttpServletRequestBuilder request = get("/api/items")
+                .param("categoryId", electronicCategoryId.toString())
+                .param("sort", "PRICE")
+                .param("limit", "2");
+        while (request != null) {
+            MvcResult result = mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+            Item[] page = objectMapper.readValue(result.getResponse().getContentAsString(), Item[].class);
+            assertThat(page).hasSizeLessThanOrEqualTo(2);
+            Arrays.stream(page).map(Item::getId).forEach(ids::add);
+            String link = result.getResponse().getHeader(HttpHeaders.LINK);
+            request = link == null ? null : get(URI.create(link.substring(1, link.indexOf('>'))));
+            pages++;
+        }
+
+        // equal prices in id order, items without a price last
+        assertThat(ids).containsExactly(zange.getId(), bohrer.getId(), hammer.getId(), kabel.getId());
+        assertThat(pages).isEqualTo(2);
+    }
+
+    @Test
+    void shouldContinueDescendingPagesAfterLastItemWasDeleted() throws Exception {
+        Item hammer = createItem("Hammer", 12.5, electronicCategoryId);
+        Item zange = createItem("Zange", 7.0, electronicCategoryId);
+        Item kabel = createItem("Kabel", null, electronicCategoryId);
+        Item bohrer = createItem("Bohrer", 7.0, electronicCategoryId);
+
+        MvcResult first = mockMvc.perform(get("/api/items")
+                        .param("categoryId", electronicCategoryId.toString())
+                        .param("sort", "PRICE")
+                        .param("direction", "DESC")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Item[] page = objectMapper.readValue(first.getResponse().getContentAsString(), Item[].class);
+        assertThat(page).extracting(Item::getId).containsExactly(hammer.getId(), bohrer.getId());
+
+        // the cursor carries the price and id of the last item, it is not looked up again
+        mockMvc.perform(delete("/api/items/" + bohrer.getId())).andExpect(status().is2xxSuccessful());
+        String link = first.getResponse().getHeader(HttpHeaders.LINK);
+        Item[] next = objectMapper.readValue(mockMvc.perform(get(URI.create(link.substring(1, link.indexOf('>')))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), Item[].class);
+
+        // equal prices in descending id order, items without a price still last
+        assertThat(next).extracting(Item::getId).containsExactly(zange.getId(), kabel.getId());
+        mockMvc.perform(get("/api/items").param("limit", "2").param("after", "kein-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldFilterItemsByTagAndSortByNameDescending() throws Exception {
+        Integer tagId = createTag("Werkzeug");
+        Item hammer = createItem("Hammer", null, null);
+        Item zange = createItem("Zange", null, null);
+        createItem("Buch", null, null);
+        for (Item item : List.of(hammer, zange)) {
+            mockMvc.perform(put("/api/items/" + item.getId() + "/tags")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(List.of(tagId))))
+                    .andExpect(status().isOk());
+        }
+
+        Item[] items = objectMapper.readValue(mockMvc.perform(get("/api/items")
+                        .param("tagId", tagId.toString())
+                        .param("sort", "NAME")
+                        .param("direction", "DESC"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), Item[].class);
+
+        assertThat(items).extracting(Item::getName).containsExactly("Zange", "Hammer");
+        mockMvc.perform(get("/api/items").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldCountFacetsWithoutTheirOwnFilter() throws Exception {
+        Integer tagId = createTag("Werkzeug");
+        Item hammer = createItem("Hammer", null, electronicCategoryId);
+        createItem("Kabel", null, electronicCategoryId);
+        Item muetze = createItem("Mütze", null, clothingCategoryId);
+        for (Item item : List.of(hammer, muetze)) {
+            mockMvc.perform(put("/api/items/" + item.getId() + "/tags")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(List.of(tagId))))
+                    .andExpect(status().isOk());
+        }
+
+        ItemFacets facets = objectMapper.readValue(mockMvc.perform(get("/api/items/facets")
+                        .param("categoryId", electronicCategoryId.toString())
+                        .param("tagId", tagId.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), ItemFacets.class);
+
+        assertThat(facets.getItems()).extracting(Item::getId).containsExactly(hammer.getId());
+        // categories of the tagged items, tags of the electronics
+        assertThat(facets.getCategories())
+                .extracting(FacetCount::getId, FacetCount::getCount)
+                .containsExactlyInAnyOrder(tuple(electronicCategoryId, 1L), tuple(clothingCategoryId, 1L));
+        assertThat(facets.getTags())
+                .extracting(FacetCount::getName, FacetCount::getCount)
+                .containsExactly(tuple("Werkzeug", 1L));
+        assertThat(facets.getRooms()).isEmpty();
+        assertThat(facets.getStorages()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnDefaultPageWithoutLimit() throws Exception {
+        for (int i = 0; i <= ItemService.DEFAULT_PAGE_SIZE; i++) {
+            createItem("Schraube " + i, null, electronicCategoryId);
+        }
+
+        MvcResult result = mockMvc.perform(get("/api/items"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Item[] page = objectMapper.readValue(result.getResponse().getContentAsString(), Item[].class);
+        assertThat(page).hasSize(ItemService.DEFAULT_PAGE_SIZE);
+        assertThat(result.getResponse().getHeader(HttpHeaders.LINK)).contains("after=");
+    }
+
+    private Item createItem(String name, Double price, Integer categoryId) throws Exception {
+        Item item = new Item();
+        item.setName(name);
+        item.setPurchasePrice(price);
+        item.setCategoryId(categoryId);
+        item.setQuantity(1);
+        return objectMapper.readValue(mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(item)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), Item.class);
+    }
 }
@@ -0,0 +1,126 @@
+package de.iske.kistogramm.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.iske.kistogramm.dto.Item;
+import de.iske.kistogramm.dto.ItemFacets;
+import de.iske.kistogramm.dto.Room;
+import de.iske.kistogramm.dto.Storage;
+import de.iske.kistogramm.support.StatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Listings read their rows and the ids of each association in one query each, however many entries there are.
+ */
+class ListingStatementCountTest extends AbstractControllerTest {
+
+    private static final int STORAGES = 3;
+    private static final int ITEMS_PER_STORAGE = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private int roomId;
+
+    @BeforeEach
+    void createInventory() throws Exception {
+        roomId = TestDataUtil.createRoomWithImage(mockMvc, objectMapper, "Keller", "Regale an der Wand");
+        int categoryId = TestDataUtil.createCategoryWithTemplate(mockMvc, objectMapper, "Werkzeug", List.of("Marke"));
+        int tagId = TestDataUtil.createTag(mockMvc, objectMapper, "Garage");
+        for (int s = 0; s < STORAGES; s++) {
+            int storageId = TestDataUtil.createStorageWithImage(mockMvc, objectMapper, "Regal " + s, "Metall", roomId);
+            for (int i = 0; i < ITEMS_PER_STORAGE; i++) {
+                TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "Werkzeug " + s + "-" + i, "Gebraucht",
+                        storageId, categoryId, Map.of("Marke", "Acme"), List.of(tagId), 1);
+            }
+        }
+    }
+
+    @Test
+    void shouldListItemsWithConstantNumberOfStatements() throws Exception {
+        // rows, then tags, related items, images, receipts and attributes
+        List<Item> items = fetch("/api/items", Item.class, 6);
+
+        assertThat(items).hasSize(STORAGES * ITEMS_PER_STORAGE);
+        assertThat(items).allSatisfy(item -> {
+            assertThat(item.getTagIds()).hasSize(1);
+            assertThat(item.getImageIds()).hasSize(1);
+            assertThat(item.getReceiptIds()).isEmpty();
+            assertThat(item.getCustomAttributes()).containsEntry("Marke", "Acme");
+            assertThat(item.getStorageId()).isNotNull();
+            assertThat(item.getCategoryId()).isNotNull();
+        });
+    }
+
+    @Test
+    void shouldListItemsOfRoomWithConstantNumberOfStatements() throws Exception {
+        // room lookup plus the item listing
+        List<Item> items = fetch("/api/rooms/" + roomId + "/items", Item.class, 7);
+
+        assertThat(items).hasSize(STORAGES * ITEMS_PER_STORAGE);
+    }
+
+    @Test
+    void shouldListStoragesWithConstantNumberOfStatements() throws Exception {
+        // rows, tags and images
+        List<Storage> storages = fetch("/api/storages", Storage.class, 3);
+
+        assertThat(storages).hasSize(STORAGES);
+        assertThat(storages).allSatisfy(storage -> {
+            assertThat(storage.getRoomId()).isEqualTo(roomId);
+            assertThat(storage.getImageIds()).hasSize(1);
+            assertThat(storage.getTagIds()).isEmpty();
+        });
+        assertThat(fetch("/api/rooms/" + roomId + "/storages", Storage.class, 4)).hasSize(STORAGES);
+    }
+
+    @Test
+    void shouldListRoomsWithOneStatement() throws Exception {
+        List<Room> rooms = fetch("/api/rooms", Room.class, 1);
+
+        assertThat(rooms).singleElement().satisfies(room -> assertThat(room.getImageId()).isNotNull());
+    }
+
+    @Test
+    void shouldCountFacetsWithOneStatementEach() throws Exception {
+        // the item listing plus one grouped select per facet
+        String json = perform("/api/items/facets", 10);
+        ItemFacets facets = objectMapper.readValue(json, ItemFacets.class);
+
+        assertThat(facets.getItems()).hasSize(STORAGES * ITEMS_PER_STORAGE);
+        assertThat(facets.getCategories()).singleElement()
+                .satisfies(category -> assertThat(category.getCount()).isEqualTo(STORAGES * ITEMS_PER_STORAGE));
+        assertThat(facets.getTags()).singleElement()
+                .satisfies(tag -> assertThat(tag.getName()).isEqualTo("Garage"));
+        assertThat(facets.getRooms()).singleElement()
+                .satisfies(room -> assertThat(room.getId()).isEqualTo(roomId));
+        assertThat(facets.getStorages()).hasSize(STORAGES)
+                .allSatisfy(storage -> assertThat(storage.getCount()).isEqualTo(ITEMS_PER_STORAGE));
+    }
+
+    private <T> List<T> fetch(String path, Class<T> type, int maxStatements) throws Exception {
+        String json = perform(path, maxStatements);
+        return objectMapper.readValue(json, objectMapper.getTypeFactory().constructCollectionType(List.class, type));
+    }
+
+    private String perform(String path, int maxStatements) throws Exception {
+        StatementCounter.reset();
+        String json = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(StatementCounter.count()).isLessThanOrEqualTo(maxStatements);
+        return json;
+    }
+}
@@ -1,19 +1,27 @@
 package de.iske.kistogramm.controller;
 
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.iske.kistogramm.dto.*;
+import de.iske.kistogramm.model.TagEntity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class SearchControllerTest extends AbstractControllerTest {
@@ -30,6 +38,9 @@ class SearchControllerTest extends AbstractControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @BeforeEach
     void setUp() throws Exception {
         // Step 1: Create category
@@ -151,4 +162,133 @@ class SearchControllerTest extends AbstractControllerTest {
         mockMvc.perform(get("/api/search/" + unknown))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void shouldRankNameMatchesFirst() throws Exception {
+        int beamer = TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "Beamer", "Mit HDMI-Kabel",
+                null, null, Map.of(), List.of(), 0);
+        int cable = TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "HDMI Kabel", "2 Meter",
+                null, null, Map.of(), List.of(), 0);
+        TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "USB Kabel", "1 Meter",
+                null, null, Map.of(), List.of(), 0);
+
+        assertThat(search("hdmi kab")).extracting(Item::getId).containsExactly(cable, beamer);
+    }
+
+    @Test
+    void shouldFindItemsByTagAndAttributeValue() throws Exception {
+        int tagId = TestDataUtil.createTag(mockMvc, objectMapper, "Elektronik");
+        int itemId = TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "Radio", null,
+                null, null, Map.of("Farbe", "Anthrazit"), List.of(tagId), 0);
+
+        assertThat(search("elektro")).extracting(Item::getId).containsExactly(itemId);
+        assertThat(search("ANTHRAZIT")).extracting(Item::getId).containsExactly(itemId);
+        assertThat(search("radio blau")).isEmpty();
+    }
+
+    @Test
+    void shouldFollowChangesOfItemsAndTags() throws Exception {
+        int tagId = TestDataUtil.createTag(mockMvc, objectMapper, "Werkstatt");
+        int itemId = TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "Akkuschrauber", null,
+                null, null, Map.of(), List.of(tagId), 0);
+
+        Item renamed = new Item();
+        renamed.setName("Bohrmaschine");
+        renamed.setTagIds(Set.of(tagId));
+        mockMvc.perform(put("/api/items/" + itemId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(renamed)))
+                .andExpect(status().isOk());
+        assertThat(search("akkuschrauber")).isEmpty();
+        assertThat(search("bohrmaschine")).extracting(Item::getId).containsExactly(itemId);
+
+        Tag tag = new Tag();
+        tag.setName("Keller");
+        mockMvc.perform(put("/api/tags/" + tagId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(tag)))
+                .andExpect(status().isOk());
+        assertThat(search("werkstatt")).isEmpty();
+        assertThat(search("keller")).extracting(Item::getId).containsExactly(itemId);
+
+        mockMvc.perform(delete("/api/items/" + itemId))
+                .andExpect(status().isNoContent());
+        assertThat(search("bohrmaschine")).isEmpty();
+    }
+
+    @Test
+    void shouldDropRemovedTagFromItsItems() throws Exception {
+        int tagId = TestDataUtil.createTag(mockMvc, objectMapper, "Dachboden");
+        int itemId = TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "Koffer", null,
+                null, null, Map.of(), List.of(tagId), 0);
+        assertThat(search("dachboden")).extracting(Item::getId).containsExactly(itemId);
+
+        // unlinked and removed in one transaction, so the item_tags row is deleted in the same flush as the tag
+        transactionTemplate.executeWithoutResult(status -> {
+            TagEntity tag = tagRepository.findById(tagId).orElseThrow();
+            itemRepository.findById(itemId).orElseThrow().getTags().remove(tag);
+            tagRepository.delete(tag);
+        });
+
+        assertThat(search("dachboden")).isEmpty();
+        assertThat(search("koffer")).extracting(Item::getId).containsExactly(itemId);
+    }
+
+    @Test
+    void shouldSuggestNamesByPrefix() throws Exception {
+        List<Suggestion> suggestions = suggest("searchtest");
+
+        assertThat(suggestions).extracting(Suggestion::getName)
+                .startsWith("SearchTestRoom", "SearchTestStorage", "SearchTestTag");
+        assertThat(suggestions).extracting(Suggestion::getType).startsWith("Room", "Storage", "Tag");
+    }
+
+    @Test
+    void shouldSuggestItemsByWordPrefixAndDespiteTypos() throws Exception {
+        int itemId = TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "Kreuz Schraubenzieher", null,
+                null, null, Map.of(), List.of(), 0);
+
+        assertThat(suggest("schraub")).extracting(Suggestion::getId).containsExactly(itemId);
+        assertThat(suggest("Schraubenzieer")).first()
+                .satisfies(suggestion -> {
+                    assertThat(suggestion.getId()).isEqualTo(itemId);
+                    assertThat(suggestion.getType()).isEqualTo("Item");
+                    assertThat(suggestion.getName()).isEqualTo("Kreuz Schraubenzieher");
+                });
+    }
+
+    @Test
+    void shouldFollowRenamesAndDeletionsInSuggestions() throws Exception {
+        int itemId = TestDataUtil.createItemWithDetails(mockMvc, objectMapper, "Wasserwaage", null,
+                null, null, Map.of(), List.of(), 0);
+
+        Item renamed = new Item();
+        renamed.setName("Zollstock");
+        mockMvc.perform(put("/api/items/" + itemId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(renamed)))
+                .andExpect(status().isOk());
+        assertThat(suggest("wasserw")).isEmpty();
+        assertThat(suggest("zoll")).extracting(Suggestion::getName).containsExactly("Zollstock");
+
+        mockMvc.perform(delete("/api/items/" + itemId))
+                .andExpect(status().isNoContent());
+        assertThat(suggest("zoll")).isEmpty();
+    }
+
+    private List<Suggestion> suggest(String query) throws Exception {
+        String json = mockMvc.perform(get("/api/search/suggest").param("q", query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(json, new TypeReference<>() {
+        });
+    }
+
+    private List<Item> search(String query) throws Exception {
+        String json = mockMvc.perform(get("/api/search").param("q", query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(json, new TypeReference<>() {
+        });
+    }
 }
@@ -196,7 +196,9 @@ class StorageControllerTest extends AbstractControllerTest {
                 .andExpect(status().isOk())
                 .andReturn().getResponse().getContentAsString(), Image.class);
         assertThat(image.getId()).isEqualTo(imageId);
-        assertThat(image.getData()).isNotNull(); // Ensure image data is not null
+        assertThat(image.getData()).isNull(); // Image bytes are never part of the JSON
+        assertThat(image.getSize()).isPositive();
+        assertThat(image.getDataUrl()).isEqualTo("/api/images/" + imageId + "/data");
 
         // Check if image is available via storage api path
         mockMvc.perform(get("/api/storages/" + savedStorage.getId() + "/images/" + imageId))
@@ -0,0 +1,66 @@
+package de.iske.kistogramm.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EntityIdentityTest {
+
+    @Test
+    void shouldAssignUuidOnConstruction() {
+        ItemEntity item = new ItemEntity();
+        UUID uuid = item.getUuid();
+        Set<ItemEntity> items = new HashSet<>();
+        items.add(item);
+
+        // getUuid() has no side effect, so equals and hashCode never make an entity dirty
+        assertThat(uuid).isNotNull();
+        assertThat(item.getUuid()).isSameAs(uuid);
+        assertThat(items).contains(item);
+    }
+
+    @Test
+    void shouldRejectNullUuid() {
+        ItemEntity item = new ItemEntity();
+        UUID uuid = item.getUuid();
+
+        assertThatThrownBy(() -> item.setUuid(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TagEntity().setUuid(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(item.getUuid()).isEqualTo(uuid);
+    }
+
+    @Test
+    void shouldTellNewEntitiesApart() {
+        assertThat(new TagEntity()).isNotEqualTo(new TagEntity());
+        assertThat(new StorageEntity().hashCode()).isNotEqualTo(new StorageEntity().hashCode());
+    }
+
+    @Test
+    void shouldSpreadHashCodesOfNewEntities() {
+        // a constant hash code degrades every set of relations into a linear scan
+        int entities = 10_000;
+        Set<Integer> hashCodes = new HashSet<>();
+        for (int i = 0; i < entities; i++) {
+            hashCodes.add(new ItemEntity().hashCode());
+        }
+
+        assertThat(hashCodes).hasSizeGreaterThan(entities - 10);
+    }
+
+    @Test
+    void shouldTreatInstancesWithSameUuidAsEqual() {
+        UUID uuid = UUID.randomUUID();
+        RoomEntity first = new RoomEntity();
+        first.setUuid(uuid);
+        RoomEntity second = new RoomEntity();
+        second.setUuid(uuid);
+
+        assertThat(first).isEqualTo(second).hasSameHashCodeAs(second);
+        assertThat(first).isNotEqualTo(new CategoryEntity());
+    }
+}
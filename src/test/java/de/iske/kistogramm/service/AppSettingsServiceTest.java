@@ -0,0 +1,47 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.AppSettingsDto;
+import de.iske.kistogramm.repository.AppSettingsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.profiles.active=test")
+@RecordApplicationEvents
+class AppSettingsServiceTest {
+
+    @Autowired
+    private AppSettingsService appSettingsService;
+
+    @Autowired
+    private AppSettingsRepository appSettingsRepository;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Test
+    void shouldServeSnapshotAndRefreshItOnUpdate() {
+        AppSettingsDto original = appSettingsService.getSettings();
+        try {
+            AppSettingsDto first = appSettingsService.getSettings();
+            first.setImageQuality(1); // copies must not leak into the snapshot
+            assertThat(appSettingsService.getSettings().getImageQuality()).isEqualTo(original.getImageQuality());
+
+            AppSettingsDto changed = appSettingsService.getSettings();
+            changed.setImageQuality(42);
+            appSettingsService.updateSettings(changed);
+
+            assertThat(appSettingsService.getSettings().getImageQuality()).isEqualTo(42);
+            assertThat(appSettingsRepository.findById(1).orElseThrow().getImageQuality()).isEqualTo(42);
+            assertThat(applicationEvents.stream(AppSettingsChangedEvent.class))
+                    .singleElement()
+                    .satisfies(event -> assertThat(event.getSettings().getImageQuality()).isEqualTo(42));
+        } finally {
+            appSettingsService.updateSettings(original);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.iske.kistogramm.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void shouldStoreContentAddressedAndSharded() {
+        FileSystemBlobStore store = new FileSystemBlobStore(root.toString());
+        byte[] data = "hello blob".getBytes(StandardCharsets.UTF_8);
+
+        String key = store.put(data);
+
+        assertThat(key).hasSize(64).isEqualTo(FileSystemBlobStore.sha256Hex(data));
+        assertThat(Files.exists(root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key))).isTrue();
+        assertThat(store.read(key)).isEqualTo(data);
+    }
+
+    @Test
+    void shouldStoreIdenticalContentOnce() {
+        FileSystemBlobStore store = new FileSystemBlobStore(root.toString());
+        byte[] data = "same bytes".getBytes(StandardCharsets.UTF_8);
+
+        String first = store.put(data);
+        String second = store.put(data.clone());
+
+        assertThat(second).isEqualTo(first);
+        try (Stream<String> keys = store.listKeys(Instant.now().plusSeconds(60))) {
+            assertThat(keys.toList()).containsExactly(first);
+        }
+    }
+
+    @Test
+    void shouldRefreshModificationTimeWhenStoredAgain() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(root.toString());
+        byte[] data = "uploaded again".getBytes(StandardCharsets.UTF_8);
+        String key = store.put(data);
+        Path blob = root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+
+        store.put(data);
+
+        // no longer a candidate for the cleanup, whose grace period is an hour
+        try (Stream<String> keys = store.listKeys(Instant.now().minus(Duration.ofHours(1)))) {
+            assertThat(keys.toList()).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldDeleteAndListOnlyOlderBlobs() {
+        FileSystemBlobStore store = new FileSystemBlobStore(root.toString());
+        String key = store.put("to be deleted".getBytes(StandardCharsets.UTF_8));
+
+        try (Stream<String> keys = store.listKeys(Instant.now().minusSeconds(60))) {
+            assertThat(keys.toList()).isEmpty();
+        }
+
+        store.delete(key);
+
+        assertThat(store.exists(key)).isFalse();
+        try (Stream<String> keys = store.listKeys(Instant.now().plusSeconds(60))) {
+            assertThat(keys.toList()).isEqualTo(List.of());
+        }
+    }
+
+    @Test
+    void shouldKeepBlobStoredAgainSinceItWasListed() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(root.toString());
+        byte[] data = "listed, then uploaded again".getBytes(StandardCharsets.UTF_8);
+        String key = store.put(data);
+        Path blob = root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Instant cutoff = Instant.now().minus(Duration.ofHours(1));
+        try (Stream<String> keys = store.listKeys(cutoff)) {
+            assertThat(keys.toList()).containsExactly(key);
+        }
+
+        store.put(data);
+
+        assertThat(store.deleteIfModifiedBefore(key, cutoff)).isFalse();
+        assertThat(store.exists(key)).isTrue();
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        assertThat(store.deleteIfModifiedBefore(key, cutoff)).isTrue();
+        assertThat(store.exists(key)).isFalse();
+    }
+
+    @Test
+    void shouldRejectKeysOutsideTheStore() {
+        FileSystemBlobStore store = new FileSystemBlobStore(root.toString());
+
+        assertThatThrownBy(() -> store.read("../../etc/passwd"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
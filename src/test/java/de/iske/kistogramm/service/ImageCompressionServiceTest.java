@@ -0,0 +1,72 @@
+package de.iske.kistogramm.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.profiles.active=test")
+class ImageCompressionServiceTest {
+
+    @Autowired
+    private ImageCompressionService imageCompressionService;
+
+    @Test
+    void shouldChooseSubsamplingThatStaysAboveTarget() {
+        assertThat(ImageCompressionService.subsamplingFor(new ImageDimensions(8000, 6000), 1920, 1080)).isEqualTo(5);
+        assertThat(ImageCompressionService.subsamplingFor(new ImageDimensions(4000, 2000), 1920, 1080)).isEqualTo(2);
+        assertThat(ImageCompressionService.subsamplingFor(new ImageDimensions(2000, 1000), 1920, 1080)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDownscaleLargeJpegToConfiguredBox() throws Exception {
+        BufferedImage source = new BufferedImage(4000, 2000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = source.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.BLUE, 4000, 2000, Color.ORANGE));
+        g.fillRect(0, 0, 4000, 2000);
+        g.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(source, "jpg", jpeg);
+
+        byte[] compressed = imageCompressionService.compress(jpeg.toByteArray(), "image/jpeg");
+
+        BufferedImage result = ImageIO.read(new ByteArrayInputStream(compressed));
+        assertThat(result.getWidth()).isEqualTo(1920);
+        assertThat(result.getHeight()).isEqualTo(960);
+    }
+
+    @Test
+    void shouldWriteScaledCopyIntoBox() throws Exception {
+        BufferedImage source = new BufferedImage(3000, 1500, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(source, "jpg", jpeg);
+        ByteArrayOutputStream scaled = new ByteArrayOutputStream();
+
+        boolean written = imageCompressionService.writeScaled(new ByteArrayInputStream(jpeg.toByteArray()),
+                new ImageDimensions(3000, 1500), 128, 128, builder -> builder.outputFormat("jpg").toOutputStream(scaled));
+
+        assertThat(written).isTrue();
+        BufferedImage result = ImageIO.read(new ByteArrayInputStream(scaled.toByteArray()));
+        assertThat(result.getWidth()).isEqualTo(128);
+        assertThat(result.getHeight()).isEqualTo(64);
+    }
+
+    @Test
+    void shouldNotWriteScaledCopyOfUndecodableData() throws Exception {
+        boolean written = imageCompressionService.writeScaled(new ByteArrayInputStream(new byte[]{1, 2, 3}),
+                new ImageDimensions(3000, 1500), 128, 128, builder -> {
+                    throw new AssertionError("no image to write");
+                });
+
+        assertThat(written).isFalse();
+    }
+}
@@ -0,0 +1,117 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.model.ImageEntity;
+import de.iske.kistogramm.repository.ImageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"spring.profiles.active=test", "images.async-compression=true",
+        "images.compression-threads=1"})
+class ImageServiceAsyncCompressionTest {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    @Qualifier("imageCompressionExecutor")
+    private TaskExecutor compressionExecutor;
+
+    @Test
+    void shouldStoreOriginalFirstAndFinishInBackground() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "photo.jpg", MediaType.IMAGE_JPEG_VALUE, jpeg());
+
+        CountDownLatch release = blockCompression();
+        List<ImageEntity> created = imageService.createFromUploads(List.of(file, file), image -> { });
+
+        assertThat(created).hasSize(2);
+        assertThat(created).allSatisfy(image -> {
+            assertThat(image.getBlobKey()).isNotNull();
+            assertThat(statusOf(image)).isEqualTo(ImageEntity.Status.PROCESSING);
+        });
+
+        release.countDown();
+        for (ImageEntity image : created) {
+            assertThat(awaitCompression(image)).isEqualTo(ImageEntity.Status.READY);
+        }
+        imageRepository.deleteAll(created);
+    }
+
+    @Test
+    void shouldResumeCompressionOfImagesLeftProcessing() throws Exception {
+        // uploaded before a shutdown, compression never ran
+        ImageEntity image = new ImageEntity();
+        imageService.storeData(image, jpeg());
+        image.setType(MediaType.IMAGE_JPEG_VALUE);
+        image.setStatus(ImageEntity.Status.PROCESSING);
+        image.setDateAdded(LocalDateTime.now());
+        image.setDateModified(LocalDateTime.now());
+        image = imageRepository.save(image);
+
+        CountDownLatch release = blockCompression();
+        imageService.resumeCompression();
+
+        assertThat(statusOf(image)).isEqualTo(ImageEntity.Status.PROCESSING);
+
+        release.countDown();
+        assertThat(awaitCompression(image)).isEqualTo(ImageEntity.Status.READY);
+        imageRepository.delete(image);
+    }
+
+    /**
+     * Occupies the single compression thread until the returned latch is released, so queued compressions cannot
+     * finish before the test has looked at them.
+     */
+    private CountDownLatch blockCompression() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        compressionExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        return release;
+    }
+
+    private ImageEntity.Status awaitCompression(ImageEntity image) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        ImageEntity.Status status = statusOf(image);
+        while (status == ImageEntity.Status.PROCESSING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = statusOf(image);
+        }
+        return status;
+    }
+
+    private ImageEntity.Status statusOf(ImageEntity image) {
+        return imageRepository.findById(image.getId()).orElseThrow().getStatus();
+    }
+
+    private static byte[] jpeg() throws Exception {
+        BufferedImage source = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(source, "jpg", jpeg);
+        return jpeg.toByteArray();
+    }
+}
@@ -0,0 +1,148 @@
+package de.iske.kistogramm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.iske.kistogramm.dto.ImportResult;
+import de.iske.kistogramm.dto.export.ExportItem;
+import de.iske.kistogramm.dto.export.ExportResult;
+import de.iske.kistogramm.dto.export.ExportStorage;
+import de.iske.kistogramm.dto.export.ExportTag;
+import de.iske.kistogramm.repository.ItemRepository;
+import de.iske.kistogramm.support.StatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The import looks rows up and links them per batch: besides the one insert per new row it issues a constant number
+ * of statements per batch, however many tags and related items the rows reference.
+ */
+@SpringBootTest(properties = {"spring.profiles.active=test", "spring.jpa.properties.hibernate.jdbc.batch_size=100"})
+class ImportStatementCountTest {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int TAGS = 20;
+    private static final int ITEMS_PER_STORAGE = 50;
+    // uuid lookup, flush and commit bookkeeping of one batch, with room to spare
+    private static final int STATEMENTS_PER_BATCH = 10;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    @AfterEach
+    void cleanDatabase() {
+        jdbcTemplate.update("DELETE FROM item_related");
+        jdbcTemplate.update("DELETE FROM item_tags");
+        jdbcTemplate.update("DELETE FROM items");
+        jdbcTemplate.update("UPDATE storages SET parent_storage_id = NULL");
+        jdbcTemplate.update("DELETE FROM storages");
+        jdbcTemplate.update("DELETE FROM tags");
+    }
+
+    @Test
+    void shouldImportWithOneStatementPerRowPlusConstantPerBatch() throws Exception {
+        int items = 1_000;
+        int storages = items / ITEMS_PER_STORAGE;
+        MockMultipartFile archive = syntheticArchive(items);
+
+        // within a caller transaction all phases run on this thread, where the statements are counted
+        StatementCounter.reset();
+        ImportResult result = new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                return importService.importArchive(archive, false, true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        int statements = StatementCounter.count();
+
+        assertThat(result).isNotNull();
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(itemRepository.count()).isEqualTo(items);
+        int rows = items + storages + TAGS;
+        int batches = ceilDiv(items) + ceilDiv(storages) + ceilDiv(TAGS);
+        assertThat(statements).isLessThanOrEqualTo(rows + STATEMENTS_PER_BATCH * batches);
+    }
+
+    private static int ceilDiv(int rows) {
+        return (rows + BATCH_SIZE - 1) / BATCH_SIZE;
+    }
+
+    /**
+     * Items spread over nested storages, each with two tags and one related item.
+     */
+    private MockMultipartFile syntheticArchive(int itemCount) throws IOException {
+        List<ExportTag> tags = new ArrayList<>();
+        for (int i = 0; i < TAGS; i++) {
+            ExportTag tag = new ExportTag();
+            tag.setUuid(UUID.randomUUID());
+            tag.setName("Tag " + i);
+            tags.add(tag);
+        }
+        List<ExportStorage> storages = new ArrayList<>();
+        for (int i = 0; i < itemCount / ITEMS_PER_STORAGE; i++) {
+            ExportStorage storage = new ExportStorage();
+            storage.setUuid(UUID.randomUUID());
+            storage.setName("Storage " + i);
+            if (i > 0) {
+                storage.setParentStorage(storages.get((i - 1) / 10).getUuid());
+            }
+            storages.add(storage);
+        }
+        List<ExportItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            ExportItem item = new ExportItem();
+            item.setUuid(UUID.randomUUID());
+            item.setName("Item " + i);
+            item.setQuantity(1);
+            item.setStorage(storages.get(i / ITEMS_PER_STORAGE).getUuid());
+            item.setTags(List.of(tags.get(i % TAGS).getUuid(), tags.get((i + 1) % TAGS).getUuid()));
+            if (i > 0) {
+                item.setRelatedItems(List.of(items.get(i - 1).getUuid()));
+            }
+            items.add(item);
+        }
+        ExportResult data = new ExportResult();
+        data.setTags(tags);
+        data.setStorages(storages);
+        data.setItems(items);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(new ZipEntry("data.json"));
+            zos.write(objectMapper.writeValueAsBytes(data));
+            zos.closeEntry();
+        }
+        return new MockMultipartFile("file", "import.zip", MediaType.APPLICATION_OCTET_STREAM_VALUE, baos.toByteArray());
+    }
+}
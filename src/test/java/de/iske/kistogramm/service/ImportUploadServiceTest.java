@@ -0,0 +1,107 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.ImportUploadStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportUploadServiceTest {
+
+    @Test
+    void shouldNotBlockOtherRequestsWhileAChunkIsReceived() throws Exception {
+        // every upload is expired right away, except while a chunk is being received
+        ImportUploadService service = new ImportUploadService(null, Duration.ZERO, DataSize.ofMegabytes(1));
+        ImportUploadStatus upload = service.create(null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slowClient = new SequenceInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3}), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return -1;
+            }
+        });
+
+        CompletableFuture<ImportUploadStatus> chunk = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.appendChunk(upload.getUploadId(), 0, null, slowClient);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Void> expiry = CompletableFuture.runAsync(service::removeExpiredUploads);
+        expiry.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> service.appendChunk(upload.getUploadId(), 0, null, InputStream.nullInputStream()))
+                .hasMessageContaining("busy");
+
+        release.countDown();
+        assertThat(chunk.get(5, TimeUnit.SECONDS).getReceived()).isEqualTo(3);
+        assertThat(service.getUpload(upload.getUploadId()).getReceived()).isEqualTo(3);
+        service.abort(upload.getUploadId());
+    }
+
+    @Test
+    void shouldRejectOversizedChunkBeforeReadingItInFull() throws Exception {
+        ImportUploadService service = new ImportUploadService(null, Duration.ofHours(1), DataSize.ofBytes(1000));
+        ImportUploadStatus upload = service.create(null);
+        service.appendChunk(upload.getUploadId(), 0, null, new ByteArrayInputStream(new byte[100]));
+        AtomicLong read = new AtomicLong();
+        // a client that would send forever
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                read.incrementAndGet();
+                return 0;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                read.addAndGet(len);
+                return len;
+            }
+        };
+
+        assertThatThrownBy(() -> service.appendChunk(upload.getUploadId(), 100, null, endless))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("maximum chunk size");
+
+        assertThat(read.get()).isLessThan(1_000_000);
+        assertThat(service.getUpload(upload.getUploadId()).getReceived()).isEqualTo(100);
+        service.abort(upload.getUploadId());
+    }
+
+    @Test
+    void shouldRejectChunkBeyondTheAnnouncedSize() throws Exception {
+        ImportUploadService service = new ImportUploadService(null, Duration.ofHours(1), DataSize.ofMegabytes(1));
+        ImportUploadStatus upload = service.create(150L);
+        service.appendChunk(upload.getUploadId(), 0, null, new ByteArrayInputStream(new byte[100]));
+
+        assertThatThrownBy(() -> service.appendChunk(upload.getUploadId(), 100, null, new ByteArrayInputStream(new byte[51])))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("announced upload size");
+
+        assertThat(service.getUpload(upload.getUploadId()).getReceived()).isEqualTo(100);
+        assertThat(service.appendChunk(upload.getUploadId(), 100, null, new ByteArrayInputStream(new byte[50]))
+                .getReceived()).isEqualTo(150);
+        service.abort(upload.getUploadId());
+    }
+}
@@ -0,0 +1,104 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.model.ImageEntity;
+import de.iske.kistogramm.repository.ImageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.profiles.active=test")
+class SnapshotServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 31, 2, 0);
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @TempDir
+    Path backupDir;
+
+    @Test
+    void shouldLinkUnchangedImagesInsteadOfCopying() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("files", "notes.txt", MediaType.TEXT_PLAIN_VALUE,
+                ("snapshot " + System.nanoTime()).getBytes(StandardCharsets.UTF_8));
+        List<ImageEntity> created = imageService.createFromUploads(List.of(file), image -> { });
+        try {
+            Path first = snapshotsAt(NOW).createSnapshot();
+            Path second = snapshotsAt(NOW.plusDays(1)).createSnapshot();
+
+            Path firstImage = first.resolve("images").resolve(created.getFirst().getUuid().toString());
+            Path secondImage = second.resolve("images").resolve(created.getFirst().getUuid().toString());
+            assertThat(first.resolve("data.json")).exists();
+            assertThat(secondImage).exists();
+            assertThat(Files.isSameFile(firstImage, secondImage)).isTrue();
+        } finally {
+            imageRepository.deleteAll(created);
+        }
+    }
+
+    @Test
+    void shouldDeleteUnfinishedSnapshots() throws Exception {
+        Path snapshots = Files.createDirectories(backupDir.resolve("snapshots"));
+        Path crashed = Files.createDirectories(snapshots.resolve(".2026-03-30_02-00-00.tmp"));
+        Files.writeString(crashed.resolve("data.json"), "{");
+
+        Path written = snapshotsAt(NOW).createSnapshot();
+
+        assertThat(crashed).doesNotExist();
+        assertThat(written).exists();
+
+        Path killedAgain = Files.createDirectories(snapshots.resolve(".2026-03-31_02-00-00.tmp"));
+        snapshotsAt(NOW).prune();
+
+        assertThat(killedAgain).doesNotExist();
+        assertThat(written).exists();
+    }
+
+    private SnapshotService snapshotsAt(LocalDateTime time) {
+        Clock clock = Clock.fixed(time.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        return new SnapshotService(exportService, blobStore, backupDir.toString(), 7, 4, 12, clock);
+    }
+
+    @Test
+    void shouldKeepNewestSnapshotPerDayWeekAndMonth() {
+        LocalDateTime now = NOW; // a Tuesday
+        List<LocalDateTime> snapshots = List.of(
+                now,
+                now.minusHours(1),    // same day as now, superseded
+                now.minusDays(1),     // second day
+                now.minusDays(2),     // Sunday, newest of the previous week
+                now.minusDays(20),    // third week
+                now.minusDays(45),    // newest of February
+                now.minusDays(46),    // older in February
+                now.minusDays(400));  // beyond all periods
+
+        assertThat(SnapshotService.selectRetained(snapshots, 2, 3, 2)).containsExactlyInAnyOrder(
+                now,
+                now.minusDays(1),
+                now.minusDays(2),
+                now.minusDays(20),
+                now.minusDays(45));
+    }
+}
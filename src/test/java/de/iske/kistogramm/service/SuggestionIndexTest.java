@@ -0,0 +1,46 @@
+package de.iske.kistogramm.service;
+
+import de.iske.kistogramm.dto.Suggestion;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionIndexTest {
+
+    @Test
+    void shouldKeepNamesPutWhileRebuildReadsTheDatabase() {
+        SuggestionIndex[] index = new SuggestionIndex[1];
+        // an empty database; the item is committed after the items have been read
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler rch) {
+                if (sql.contains("FROM items")) {
+                    index[0].put(SuggestionIndex.ITEM, 1, "Akkuschrauber");
+                }
+            }
+        };
+        index[0] = new SuggestionIndex(jdbcTemplate);
+
+        index[0].rebuild();
+
+        assertThat(index[0].suggest("akku", 10)).extracting(Suggestion::getName).containsExactly("Akkuschrauber");
+    }
+
+    @Test
+    void shouldFindRemainingNamesAfterRemovingAndReusingSlots() {
+        SuggestionIndex index = new SuggestionIndex(null);
+        index.put(SuggestionIndex.ITEM, 1, "HDMI Kabel");
+        index.put(SuggestionIndex.ITEM, 2, "USB Kabel");
+        index.put(SuggestionIndex.ITEM, 3, "Kabel Trommel");
+
+        index.remove(SuggestionIndex.ITEM, 2);
+        index.put(SuggestionIndex.TAG, 4, "Kabelbinder");
+        index.remove(SuggestionIndex.ITEM, 1);
+
+        assertThat(index.suggest("kab", 10)).extracting(Suggestion::getName)
+                .containsExactlyInAnyOrder("Kabel Trommel", "Kabelbinder");
+        assertThat(index.suggest("hdmi", 10)).isEmpty();
+    }
+}